@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.benchmark;
+
+import fr.paris.lutece.plugins.testmoussia.business.NameNormalizer;
+import fr.paris.lutece.plugins.testmoussia.business.UserGenerator;
+import fr.paris.lutece.portal.service.database.PluginConnectionService;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginDefaultImplementation;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+
+/**
+ * Embedded H2 database holding the testmoussia tables, and the plugin giving access to it.
+ * The tables are created by the plugin creation script, so the benchmarks run against the real schema and indexes.
+ */
+public final class BenchmarkDatabase
+{
+    private static final String PROPERTY_SQL_SCRIPT = "testmoussia.benchmark.sqlScript";
+    private static final String DEFAULT_SQL_SCRIPT = "src/sql/plugins/testmoussia/plugin/create_db_testmoussia.sql";
+    private static final String PROPERTY_SEED = "testmoussia.benchmark.seed";
+    private static final String PLUGIN_NAME = "testmoussia";
+    private static final String URL = "jdbc:h2:mem:testmoussia_benchmark_%d;MODE=MySQL;DB_CLOSE_DELAY=-1";
+    private static final String USER = "sa";
+    private static final String PASSWORD = "";
+    private static final int MAX_CONNECTIONS = 20;
+    private static final String SQL_RUNSCRIPT = "RUNSCRIPT FROM '%s'";
+    private static final String SQL_FILL_USERS = "INSERT INTO testmoussia_user ( nom, nom_search ) VALUES ( ?, ? )";
+    private static final int FILL_BATCH_SIZE = 1000;
+    private static final int FILL_TRANSACTION_SIZE = 50000;
+    private static final String SQL_DELETE_USERS_AFTER = "DELETE FROM testmoussia_user WHERE id_user > ?";
+
+    private static final AtomicInteger _nDatabaseNumber = new AtomicInteger( );
+
+    private final JdbcConnectionPool _pool;
+    private final Plugin _plugin;
+
+    /**
+     * Constructor
+     * @param pool The connection pool of the database
+     */
+    private BenchmarkDatabase( JdbcConnectionPool pool )
+    {
+        _pool = pool;
+        _plugin = new PluginDefaultImplementation( );
+        _plugin.setName( PLUGIN_NAME );
+        _plugin.setConnectionService( new H2ConnectionService( pool ) );
+    }
+
+    /**
+     * Create a new database holding the testmoussia tables
+     * @param nUsers The number of users to create
+     * @return The database
+     * @throws SQLException if the database cannot be created
+     */
+    public static BenchmarkDatabase create( int nUsers ) throws SQLException
+    {
+        // The DAOs read the slow statements settings from the plugin properties
+        BenchmarkWebapp.init( );
+
+        JdbcConnectionPool pool = JdbcConnectionPool.create( String.format( URL, _nDatabaseNumber.incrementAndGet( ) ), USER, PASSWORD );
+        pool.setMaxConnections( MAX_CONNECTIONS );
+
+        String strScript = System.getProperty( PROPERTY_SQL_SCRIPT, DEFAULT_SQL_SCRIPT );
+
+        try ( Connection connection = pool.getConnection( ); Statement statement = connection.createStatement( ) )
+        {
+            statement.execute( String.format( SQL_RUNSCRIPT, strScript.replace( "'", "''" ) ) );
+        }
+
+        BenchmarkDatabase database = new BenchmarkDatabase( pool );
+        database.fillUsers( nUsers );
+
+        return database;
+    }
+
+    /**
+     * Returns the plugin whose connection service reads this database, to be given to the DAOs
+     * @return The plugin
+     */
+    public Plugin getPlugin( )
+    {
+        return _plugin;
+    }
+
+    /**
+     * Create users with the noms of the generator, whose seed is given by the testmoussia.benchmark.seed system property (default 0)
+     * @param nUsers The number of users to create
+     * @throws SQLException if the users cannot be created
+     */
+    public void fillUsers( int nUsers ) throws SQLException
+    {
+        UserGenerator generator = new UserGenerator( Long.getLong( PROPERTY_SEED, 0L ) );
+
+        try ( Connection connection = _pool.getConnection( ); PreparedStatement statement = connection.prepareStatement( SQL_FILL_USERS ) )
+        {
+            connection.setAutoCommit( false );
+
+            for ( int i = 0; i < nUsers; i++ )
+            {
+                String strNom = generator.getNom( i );
+                statement.setString( 1, strNom );
+                statement.setString( 2, NameNormalizer.normalize( strNom ) );
+                statement.addBatch( );
+
+                if ( ( i + 1 ) % FILL_BATCH_SIZE == 0 || i + 1 == nUsers )
+                {
+                    statement.executeBatch( );
+                }
+
+                if ( ( i + 1 ) % FILL_TRANSACTION_SIZE == 0 )
+                {
+                    connection.commit( );
+                }
+            }
+
+            connection.commit( );
+            connection.setAutoCommit( true );
+        }
+    }
+
+    /**
+     * Remove the users created after the initial fill, to keep the table size stable between iterations
+     * @param nIdUser The highest id to keep
+     * @throws SQLException if the users cannot be removed
+     */
+    public void deleteUsersAfter( int nIdUser ) throws SQLException
+    {
+        try ( Connection connection = _pool.getConnection( ); PreparedStatement statement = connection.prepareStatement( SQL_DELETE_USERS_AFTER ) )
+        {
+            statement.setInt( 1, nIdUser );
+            statement.executeUpdate( );
+        }
+    }
+
+    /**
+     * Drop the database
+     * @throws SQLException if the database cannot be dropped
+     */
+    public void close( ) throws SQLException
+    {
+        try ( Connection connection = _pool.getConnection( ); Statement statement = connection.createStatement( ) )
+        {
+            statement.execute( "SHUTDOWN" );
+        }
+        finally
+        {
+            _pool.dispose( );
+        }
+    }
+
+    /**
+     * Connection service reading the H2 pool instead of the pools of the Lutece configuration
+     */
+    private static final class H2ConnectionService extends PluginConnectionService
+    {
+        private final JdbcConnectionPool _pool;
+
+        /**
+         * Constructor
+         * @param pool The connection pool
+         */
+        private H2ConnectionService( JdbcConnectionPool pool )
+        {
+            super( PLUGIN_NAME );
+            _pool = pool;
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public Connection getConnection( )
+        {
+            try
+            {
+                return _pool.getConnection( );
+            }
+            catch( SQLException e )
+            {
+                throw new IllegalStateException( e.getMessage( ), e );
+            }
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public void freeConnection( Connection connection )
+        {
+            try
+            {
+                connection.close( );
+            }
+            catch( SQLException e )
+            {
+                throw new IllegalStateException( e.getMessage( ), e );
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.benchmark;
+
+import fr.paris.lutece.portal.service.util.AppPathService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.io.File;
+
+/**
+ * Webapp assembled by mvn lutece:exploded, whose path and properties are initialized once for all the benchmarks of a fork.
+ * Its path is given by the testmoussia.benchmark.webappPath system property (default target/lutece).
+ */
+public final class BenchmarkWebapp
+{
+    private static final String PROPERTY_WEBAPP_PATH = "testmoussia.benchmark.webappPath";
+    private static final String DEFAULT_WEBAPP_PATH = "target/lutece";
+    private static final String PATH_CONF = "/WEB-INF/conf/";
+
+    private static boolean _bInitialized;
+
+    /**
+     * Private constructor
+     */
+    private BenchmarkWebapp( )
+    {
+    }
+
+    /**
+     * Initialize the path and the properties of the webapp, if not already done
+     */
+    public static synchronized void init( )
+    {
+        if ( !_bInitialized )
+        {
+            AppPathService.init( new File( System.getProperty( PROPERTY_WEBAPP_PATH, DEFAULT_WEBAPP_PATH ) ).getAbsolutePath( ) );
+            AppPropertiesService.init( PATH_CONF );
+            _bInitialized = true;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.benchmark;
+
+import fr.paris.lutece.plugins.testmoussia.business.User;
+import fr.paris.lutece.plugins.testmoussia.business.UserGenerator;
+import fr.paris.lutece.plugins.testmoussia.business.UserPage;
+import fr.paris.lutece.plugins.testmoussia.web.IPaginatedListSource;
+import fr.paris.lutece.plugins.testmoussia.web.UserJspBean;
+import fr.paris.lutece.plugins.testmoussia.web.UserXPage;
+import fr.paris.lutece.portal.service.i18n.I18nService;
+import fr.paris.lutece.portal.service.template.AbstractFreeMarkerTemplateService;
+import fr.paris.lutece.portal.service.util.AppPathService;
+import fr.paris.lutece.util.html.AbstractPaginator;
+import fr.paris.lutece.util.html.HtmlTemplate;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * Benchmarks of the rendering of the admin and skin lists of users, with 10 to 100k users on the page.
+ * <p>
+ * The models are built by the controllers, then rendered and localized the way AppTemplateService does, from the templates of the webapp
+ * assembled by mvn lutece:exploded. The users are held in memory : the database is measured by {@link UserDAOBenchmark}. The admin page is
+ * not wrapped in the admin layout, which does not depend on the number of users.
+ * </p>
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( value = 1, jvmArgsAppend = "-Xmx2g" )
+public class ManageUsersTemplateBenchmark
+{
+    private static final String PROPERTY_COMMONS = "testmoussia.benchmark.commons";
+    private static final String DEFAULT_COMMONS = "commons.html";
+    private static final String PATH_TEMPLATES = "/WEB-INF/templates/";
+    private static final String TEMPLATE_ADMIN_MANAGE_USERS = "/admin/plugins/testmoussia/manage_users.html";
+    private static final String TEMPLATE_SKIN_MANAGE_USERS = "/skin/plugins/testmoussia/manage_users.html";
+    private static final int PAGES_COUNT = 10;
+    private static final Locale LOCALE = Locale.FRENCH;
+
+    /** Number of users on the page */
+    @Param( { "10", "100", "1000", "10000", "100000" } )
+    public int _nUsers;
+
+    private TemplateService _templateService;
+    private ManageUsersJspBean _jspBean;
+    private ManageUsersXPage _xpage;
+    private MockHttpServletRequest _request;
+    private IPaginatedListSource<User> _source;
+    private UserPage _page;
+
+    /**
+     * Initialize the properties and the templates of the webapp, and create the users
+     */
+    @Setup( Level.Trial )
+    public void setUp( )
+    {
+        BenchmarkWebapp.init( );
+
+        _templateService = new TemplateService( );
+        _templateService.init( PATH_TEMPLATES );
+        _templateService.addAutoInclude( System.getProperty( PROPERTY_COMMONS, DEFAULT_COMMONS ) );
+
+        List<User> listUsers = new UserGenerator( 0L ).getUsers( 0, _nUsers );
+
+        for ( int i = 0; i < _nUsers; i++ )
+        {
+            listUsers.get( i ).setId( i + 1 );
+        }
+
+        // The admin list shows the first of several pages, so that the paginator renders its links
+        _source = new IPaginatedListSource<User>( )
+        {
+            @Override
+            public int getItemsCount( )
+            {
+                return listUsers.size( ) * PAGES_COUNT;
+            }
+
+            @Override
+            public List<User> getPageItems( int nOffset, int nLimit )
+            {
+                return listUsers;
+            }
+        };
+        _page = new UserPage( listUsers, true, true );
+
+        _request = new MockHttpServletRequest( );
+        _request.addParameter( AbstractPaginator.PARAMETER_ITEMS_PER_PAGE, String.valueOf( _nUsers ) );
+        _jspBean = new ManageUsersJspBean( );
+        _xpage = new ManageUsersXPage( );
+    }
+
+    /**
+     * Render the admin list of users
+     * @return the html code of the list
+     */
+    @Benchmark
+    public String renderAdminManageUsers( )
+    {
+        Map<String, Object> model = _jspBean.getManageUsersModel( _request, _source );
+
+        return render( TEMPLATE_ADMIN_MANAGE_USERS, model );
+    }
+
+    /**
+     * Render the skin list of users
+     * @return the html code of the list
+     */
+    @Benchmark
+    public String renderSkinManageUsers( )
+    {
+        Map<String, Object> model = _xpage.getManageUsersModel( _page, false, null );
+
+        return render( TEMPLATE_SKIN_MANAGE_USERS, model );
+    }
+
+    /**
+     * Render and localize a template
+     * @param strTemplate The template
+     * @param model The model
+     * @return the html code
+     */
+    private String render( String strTemplate, Map<String, Object> model )
+    {
+        HtmlTemplate template = _templateService.loadTemplate( strTemplate, LOCALE, model );
+
+        return I18nService.localize( template.getHtml( ), LOCALE );
+    }
+
+    /**
+     * FreeMarker service reading the templates of the webapp, as the one of the core does
+     */
+    private static class TemplateService extends AbstractFreeMarkerTemplateService
+    {
+        @Override
+        public String getAbsolutePathFromRelativePath( String strPath )
+        {
+            return AppPathService.getAbsolutePathFromRelativePath( strPath );
+        }
+
+        @Override
+        public String getDefaultPattern( Locale locale )
+        {
+            return I18nService.getDateFormatShortPattern( locale );
+        }
+    }
+
+    /**
+     * Admin controller whose locale is not read from the admin user
+     */
+    private static class ManageUsersJspBean extends UserJspBean
+    {
+        @Override
+        public Locale getLocale( )
+        {
+            return LOCALE;
+        }
+
+        @Override
+        public Map<String, Object> getManageUsersModel( HttpServletRequest request, IPaginatedListSource<User> source )
+        {
+            return super.getManageUsersModel( request, source );
+        }
+    }
+
+    /**
+     * Skin controller exposing the model of the list
+     */
+    private static class ManageUsersXPage extends UserXPage
+    {
+        @Override
+        public Map<String, Object> getManageUsersModel( UserPage page, boolean bOrderByNom, String strSearch )
+        {
+            return super.getManageUsersModel( page, bOrderByNom, strSearch );
+        }
+    }
+}
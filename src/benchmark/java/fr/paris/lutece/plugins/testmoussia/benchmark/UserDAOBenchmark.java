@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.benchmark;
+
+import fr.paris.lutece.plugins.testmoussia.business.User;
+import fr.paris.lutece.plugins.testmoussia.business.UserDAO;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the UserDAO operations on tables of 1k, 100k and 1M users.
+ * <p>
+ * UserHome delegates its database work to these operations. It needs a started Lutece (Spring context, caches, search indexer) and is not
+ * run here : its caches would also hide the cost of the queries being measured.
+ * </p>
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( value = 1, jvmArgsAppend = "-Xmx2g" )
+public class UserDAOBenchmark
+{
+    private static final int FETCH_SIZE = 500;
+    private static final int PAGE_SIZE = 50;
+    private static final String NOM = "Benchmark";
+
+    /** Number of users in the table */
+    @Param( { "1000", "100000", "1000000" } )
+    public int _nUsers;
+
+    private final UserDAO _dao = new UserDAO( );
+    private BenchmarkDatabase _database;
+    private Plugin _plugin;
+    private int _nIdMin;
+    private int _nIdMax;
+    private User _userStored;
+    private User _userMiddle;
+
+    /**
+     * Create and fill the database
+     * @throws SQLException if the database cannot be created
+     */
+    @Setup( Level.Trial )
+    public void setUp( ) throws SQLException
+    {
+        _database = BenchmarkDatabase.create( _nUsers );
+        _plugin = _database.getPlugin( );
+
+        int [ ] bounds = _dao.selectIdUsersBounds( _plugin );
+        _nIdMin = bounds [0];
+        _nIdMax = bounds [1];
+        _userStored = _dao.load( _nIdMin, _plugin );
+        _userMiddle = _dao.load( _nIdMin + ( _nIdMax - _nIdMin ) / 2, _plugin );
+    }
+
+    /**
+     * Remove the users inserted by the iteration
+     * @throws SQLException if the users cannot be removed
+     */
+    @TearDown( Level.Iteration )
+    public void removeInsertedUsers( ) throws SQLException
+    {
+        _database.deleteUsersAfter( _nIdMax );
+    }
+
+    /**
+     * Drop the database
+     * @throws SQLException if the database cannot be dropped
+     */
+    @TearDown( Level.Trial )
+    public void tearDown( ) throws SQLException
+    {
+        _database.close( );
+    }
+
+    /**
+     * Load a user by primary key
+     * @return the user
+     */
+    @Benchmark
+    public User load( )
+    {
+        return _dao.load( ThreadLocalRandom.current( ).nextInt( _nIdMin, _nIdMax + 1 ), _plugin );
+    }
+
+    /**
+     * Insert a user
+     * @return the user
+     */
+    @Benchmark
+    public User insert( )
+    {
+        User user = new User( );
+        user.setNom( NOM );
+        _dao.insert( user, _plugin );
+
+        return user;
+    }
+
+    /**
+     * Update a user, its version being always the current one
+     * @return true if the user was updated
+     */
+    @Benchmark
+    public boolean store( )
+    {
+        return _dao.store( _userStored, _plugin );
+    }
+
+    /**
+     * Load the whole table in a list
+     * @return the users
+     */
+    @Benchmark
+    @OutputTimeUnit( TimeUnit.MILLISECONDS )
+    public List<User> selectUsersList( )
+    {
+        return _dao.selectUsersList( _plugin );
+    }
+
+    /**
+     * Read the whole table one row at a time
+     * @param blackhole the consumer of the users
+     */
+    @Benchmark
+    @OutputTimeUnit( TimeUnit.MILLISECONDS )
+    public void forEachUser( Blackhole blackhole )
+    {
+        _dao.forEachUser( blackhole::consume, FETCH_SIZE, true, _plugin );
+    }
+
+    /**
+     * Load the page in the middle of the table by offset
+     * @return the users of the page
+     */
+    @Benchmark
+    public List<User> selectUsersPage( )
+    {
+        return _dao.selectUsersPage( _nUsers / 2, PAGE_SIZE, _plugin );
+    }
+
+    /**
+     * Load the page in the middle of the table by keyset
+     * @return the users of the page
+     */
+    @Benchmark
+    public List<User> selectUsersListAfter( )
+    {
+        return _dao.selectUsersListAfter( _userMiddle, false, PAGE_SIZE, _plugin );
+    }
+}
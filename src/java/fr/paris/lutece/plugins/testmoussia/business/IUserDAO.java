@@ -36,7 +36,9 @@ package fr.paris.lutece.plugins.testmoussia.business;
 
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.util.ReferenceList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * IUserDAO Interface
@@ -51,11 +53,22 @@ public interface IUserDAO
     void insert( User user, Plugin plugin );
 
     /**
-     * Update the record in the table
+     * Insert new records in the table using JDBC batches, all within one transaction.
+     * When a transaction of the TransactionManager is open for the plugin, the records are inserted in it and committed with it.
+     * The generated ids are set on the User objects.
+     * @param listUsers the User objects to insert
+     * @param nBatchSize the number of rows sent to the database per batch
+     * @param plugin the Plugin
+     */
+    void insertBatch( Collection<User> listUsers, int nBatchSize, Plugin plugin );
+
+    /**
+     * Update the record in the table if its version is still the version of the user, then increment the version of the user
      * @param user the reference of the User
      * @param plugin the Plugin
+     * @return true if the record was updated, false if it was modified or removed since the user was read
      */
-    void store( User user, Plugin plugin );
+    boolean store( User user, Plugin plugin );
 
     /**
      * Delete a record from the table
@@ -95,4 +108,97 @@ public interface IUserDAO
      * @return The referenceList which contains the data of all the user objects
      */
     ReferenceList selectUsersReferenceList( Plugin plugin );
+
+    /**
+     * Load the users located after the given cursor, using a keyset (seek) query
+     * @param userCursor the last user of the previous page, or null to start from the beginning
+     * @param bOrderByNom true to order the users by nom then id, false to order them by id
+     * @param nLimit the maximum number of users to load
+     * @param plugin the Plugin
+     * @return The list of users, in ascending order
+     */
+    List<User> selectUsersListAfter( User userCursor, boolean bOrderByNom, int nLimit, Plugin plugin );
+
+    /**
+     * Load the users located before the given cursor, using a keyset (seek) query
+     * @param userCursor the first user of the next page, or null to start from the end
+     * @param bOrderByNom true to order the users by nom then id, false to order them by id
+     * @param nLimit the maximum number of users to load
+     * @param plugin the Plugin
+     * @return The list of users, in ascending order
+     */
+    List<User> selectUsersListBefore( User userCursor, boolean bOrderByNom, int nLimit, Plugin plugin );
+
+    /**
+     * Count the user objects
+     * @param plugin the Plugin
+     * @return The number of user objects
+     */
+    int countUsers( Plugin plugin );
+
+    /**
+     * Load the version of the users table, incremented in the transaction of every modification made through UserHome
+     * @param plugin the Plugin
+     * @return The version of the users table
+     */
+    long selectUsersVersion( Plugin plugin );
+
+    /**
+     * Increment the version of the users table. Call it in the transaction of the modification of the users.
+     * @param plugin the Plugin
+     */
+    void incrementUsersVersion( Plugin plugin );
+
+    /**
+     * Load the data of a slice of the user objects ordered by id
+     * @param nOffset the index of the first user to load
+     * @param nLimit the maximum number of users to load
+     * @param plugin the Plugin
+     * @return The list which contains the data of the users of the slice
+     */
+    List<User> selectUsersPage( int nOffset, int nLimit, Plugin plugin );
+
+    /**
+     * Load the users whose normalized nom starts with the normalized query, using the indexed search column
+     * @param strQuery the searched nom prefix
+     * @param nLimit the maximum number of users to load
+     * @param plugin the Plugin
+     * @return The list of users ordered by nom
+     */
+    List<User> selectUsersByName( String strQuery, int nLimit, Plugin plugin );
+
+    /**
+     * Fill the normalized search column of the users that have none, such as the users of a version without that column
+     * @param nLimit the maximum number of users to update
+     * @param plugin the Plugin
+     * @return The number of updated users, 0 when there are no more
+     */
+    int storeMissingNomSearch( int nLimit, Plugin plugin );
+
+    /**
+     * Read all the user objects one row at a time, without building a list
+     * @param consumer the consumer called for each user
+     * @param nFetchSize the JDBC fetch size hint
+     * @param bFlyweight true to reuse the same User instance for every row. The consumer must then not keep a reference to it.
+     * @param plugin the Plugin
+     */
+    void forEachUser( Consumer<User> consumer, int nFetchSize, boolean bFlyweight, Plugin plugin );
+
+    /**
+     * Read the user objects whose id is in a range one row at a time, ordered by id
+     * @param nIdMin the lowest id, included
+     * @param nIdMax the highest id, included
+     * @param consumer the consumer called for each user
+     * @param nFetchSize the JDBC fetch size hint
+     * @param bFlyweight true to reuse the same User instance for every row. The consumer must then not keep a reference to it.
+     * @param plugin the Plugin
+     */
+    void forEachUserInRange( int nIdMin, int nIdMax, Consumer<User> consumer, int nFetchSize, boolean bFlyweight, Plugin plugin );
+
+    /**
+     * Load the lowest and the highest user ids
+     * @param plugin the Plugin
+     * @return an array holding the lowest then the highest id, or null if there is no user
+     */
+    int [ ] selectIdUsersBounds( Plugin plugin );
 }
\ No newline at end of file
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * IUserImportDAO Interface
+ */
+public interface IUserImportDAO
+{
+    /**
+     * Insert a new record in the table.
+     * @param userImport instance of the UserImport object to insert
+     * @param plugin the Plugin
+     */
+    void insert( UserImport userImport, Plugin plugin );
+
+    /**
+     * Update the record in the table
+     * @param userImport the reference of the UserImport
+     * @param plugin the Plugin
+     */
+    void store( UserImport userImport, Plugin plugin );
+
+    /**
+     * Update the status of the record only if it still has the expected status, and clear its last error
+     * @param nKey The identifier of the userImport
+     * @param strExpectedStatus The status the record must have
+     * @param strStatus The new status
+     * @param dateUpdate The date of the update
+     * @param plugin the Plugin
+     * @return true if the record has been updated, false if its status was not the expected one
+     */
+    boolean storeStatus( int nKey, String strExpectedStatus, String strStatus, Timestamp dateUpdate, Plugin plugin );
+
+    ///////////////////////////////////////////////////////////////////////////
+    // Finders
+
+    /**
+     * Load the data from the table
+     * @param nKey The identifier of the userImport
+     * @param plugin the Plugin
+     * @return The instance of the userImport
+     */
+    UserImport load( int nKey, Plugin plugin );
+
+    /**
+     * Load the data of all the userImport objects, most recent first, and returns them as a list
+     * @param plugin the Plugin
+     * @return The list which contains the data of all the userImport objects
+     */
+    List<UserImport> selectUserImportsList( Plugin plugin );
+
+    /**
+     * Count the userImport objects
+     * @param plugin the Plugin
+     * @return The number of userImport objects
+     */
+    int countUserImports( Plugin plugin );
+}
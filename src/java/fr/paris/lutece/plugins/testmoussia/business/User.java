@@ -36,6 +36,7 @@ package fr.paris.lutece.plugins.testmoussia.business;
 import javax.validation.constraints.Size;
 import org.hibernate.validator.constraints.NotEmpty;
 import java.io.Serializable;
+import java.util.Objects;
 
 /**
  * This is the business class for the object User
@@ -50,6 +51,12 @@ public class User implements Serializable
     @Size( max = 50 , message = "#i18n{testmoussia.validation.user.Nom.size}" ) 
     private String _strNom;
 
+    private int _nVersion;
+
+    // Value of the Nom as stored in the table, to know if it was modified
+    private String _strNomStored;
+    private boolean _bStored;
+
     /**
      * Returns the Id
      * @return The Id
@@ -85,4 +92,40 @@ public class User implements Serializable
     {
         _strNom = strNom;
     }
+
+    /**
+     * Tells if the Nom differs from the value stored in the table. A user which was never stored is always modified.
+     * @return true if the user has to be written to the table
+     */
+    public boolean isModified( )
+    {
+        return !_bStored || !Objects.equals( _strNom, _strNomStored );
+    }
+
+    /**
+     * Record that the current values are the values stored in the table. Called by the DAO after a load or a write.
+     */
+    public void setUnmodified( )
+    {
+        _strNomStored = _strNom;
+        _bStored = true;
+    }
+
+    /**
+     * Returns the Version, incremented by each update and compared to detect concurrent modifications
+     * @return The Version
+     */
+    public int getVersion( )
+    {
+        return _nVersion;
+    }
+
+    /**
+     * Sets the Version
+     * @param nVersion The Version
+     */ 
+    public void setVersion( int nVersion )
+    {
+        _nVersion = nVersion;
+    }
 }
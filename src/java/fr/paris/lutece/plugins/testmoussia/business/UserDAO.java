@@ -34,13 +34,24 @@
 
 package fr.paris.lutece.plugins.testmoussia.business;
 
+import fr.paris.lutece.plugins.testmoussia.service.metrics.StatementTiming;
 import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.util.ReferenceList;
 import fr.paris.lutece.util.sql.DAOUtil;
+import fr.paris.lutece.util.sql.MultiPluginTransaction;
+import fr.paris.lutece.util.sql.TransactionManager;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * This class provides Data Access methods for User objects
@@ -48,12 +59,36 @@ import java.util.List;
 public final class UserDAO implements IUserDAO
 {
     // Constants
-    private static final String SQL_QUERY_SELECT = "SELECT id_user, nom FROM testmoussia_user WHERE id_user = ?";
-    private static final String SQL_QUERY_INSERT = "INSERT INTO testmoussia_user ( nom ) VALUES ( ? ) ";
+    private static final int NOM_SEARCH_MAX_LENGTH = 50;
+    private static final String SQL_QUERY_SELECT = "SELECT id_user, nom, version FROM testmoussia_user WHERE id_user = ?";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO testmoussia_user ( nom, nom_search ) VALUES ( ?, ? ) ";
     private static final String SQL_QUERY_DELETE = "DELETE FROM testmoussia_user WHERE id_user = ? ";
-    private static final String SQL_QUERY_UPDATE = "UPDATE testmoussia_user SET id_user = ?, nom = ? WHERE id_user = ?";
-    private static final String SQL_QUERY_SELECTALL = "SELECT id_user, nom FROM testmoussia_user";
+    private static final String SQL_QUERY_UPDATE = "UPDATE testmoussia_user SET nom = ?, nom_search = ?, version = version + 1 WHERE id_user = ? AND version = ?";
+    private static final String SQL_QUERY_SELECTALL = "SELECT id_user, nom, version FROM testmoussia_user";
     private static final String SQL_QUERY_SELECTALL_ID = "SELECT id_user FROM testmoussia_user";
+    private static final String SQL_QUERY_COUNT = "SELECT COUNT(*) FROM testmoussia_user";
+    private static final String SQL_QUERY_SELECT_PAGE = "SELECT id_user, nom FROM testmoussia_user ORDER BY id_user LIMIT ? OFFSET ?";
+    private static final String SQL_QUERY_SELECT_USERS_VERSION = "SELECT version FROM testmoussia_user_version WHERE id_version = 1";
+    private static final String SQL_QUERY_INCREMENT_USERS_VERSION = "UPDATE testmoussia_user_version SET version = version + 1 WHERE id_version = 1";
+    private static final String SQL_QUERY_SELECT_ID_BOUNDS = "SELECT MIN(id_user), MAX(id_user) FROM testmoussia_user";
+    private static final String SQL_QUERY_SELECT_ID_RANGE = "SELECT id_user, nom, version FROM testmoussia_user WHERE id_user >= ? AND id_user <= ? ORDER BY id_user";
+    private static final String SQL_QUERY_SELECT_BY_NAME = "SELECT id_user, nom FROM testmoussia_user WHERE nom_search LIKE ? ESCAPE '!' ORDER BY nom_search, id_user LIMIT ?";
+    private static final String SQL_QUERY_SELECT_NOM_SEARCH_MISSING = "SELECT id_user, nom FROM testmoussia_user WHERE nom_search IS NULL ORDER BY id_user LIMIT ?";
+    private static final String SQL_QUERY_UPDATE_NOM_SEARCH = "UPDATE testmoussia_user SET nom_search = ? WHERE id_user = ?";
+    private static final String SQL_QUERY_SELECT_FIRST_BY_ID = "SELECT id_user, nom FROM testmoussia_user ORDER BY id_user LIMIT ?";
+    private static final String SQL_QUERY_SELECT_AFTER_BY_ID = "SELECT id_user, nom FROM testmoussia_user WHERE id_user > ? ORDER BY id_user LIMIT ?";
+    private static final String SQL_QUERY_SELECT_LAST_BY_ID = "SELECT id_user, nom FROM testmoussia_user ORDER BY id_user DESC LIMIT ?";
+    private static final String SQL_QUERY_SELECT_BEFORE_BY_ID = "SELECT id_user, nom FROM testmoussia_user WHERE id_user < ? ORDER BY id_user DESC LIMIT ?";
+    private static final String SQL_QUERY_SELECT_FIRST_BY_NOM = "SELECT id_user, nom FROM testmoussia_user ORDER BY nom, id_user LIMIT ?";
+    private static final String SQL_QUERY_SELECT_AFTER_BY_NOM = "SELECT id_user, nom FROM testmoussia_user WHERE nom > ? OR ( nom = ? AND id_user > ? ) ORDER BY nom, id_user LIMIT ?";
+    private static final String SQL_QUERY_SELECT_LAST_BY_NOM = "SELECT id_user, nom FROM testmoussia_user ORDER BY nom DESC, id_user DESC LIMIT ?";
+    private static final String SQL_QUERY_SELECT_BEFORE_BY_NOM = "SELECT id_user, nom FROM testmoussia_user WHERE nom < ? OR ( nom = ? AND id_user < ? ) ORDER BY nom DESC, id_user DESC LIMIT ?";
+
+    static
+    {
+        // The slow statements are logged with the names of the constants above
+        StatementTiming.registerStatements( UserDAO.class );
+    }
 
     /**
      * {@inheritDoc }
@@ -65,16 +100,142 @@ public final class UserDAO implements IUserDAO
         {
             int nIndex = 1;
             daoUtil.setString( nIndex++ , user.getNom( ) );
+            daoUtil.setString( nIndex++ , getNomSearch( user.getNom( ) ) );
             
-            daoUtil.executeUpdate( );
-            if ( daoUtil.nextGeneratedKey( ) ) 
+            try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_INSERT, 2 ) )
             {
-                user.setId( daoUtil.getGeneratedKeyInt( 1 ) );
+                daoUtil.executeUpdate( );
+                timing.executed( );
+                if ( daoUtil.nextGeneratedKey( ) ) 
+                {
+                    user.setId( daoUtil.getGeneratedKeyInt( 1 ) );
+                }
+                timing.end( 1 );
             }
+
+            user.setUnmodified( );
         }
         
     }
 
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void insertBatch( Collection<User> listUsers, int nBatchSize, Plugin plugin )
+    {
+        MultiPluginTransaction transaction = TransactionManager.getCurrentTransaction( plugin );
+
+        if ( transaction != null )
+        {
+            // The batch is part of the transaction of the caller, which commits it
+            try ( PreparedStatement statement = transaction.prepareStatement( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS ) )
+            {
+                insertBatch( statement, listUsers, nBatchSize );
+            }
+            catch( SQLException e )
+            {
+                throw new AppException( e.getMessage( ), e );
+            }
+
+            return;
+        }
+
+        // DAOUtil does not read back the keys generated by a batch, so the batch runs on a pool connection directly
+        Connection connection = plugin.getConnectionService( ).getConnection( );
+
+        try
+        {
+            boolean bAutoCommit = connection.getAutoCommit( );
+            connection.setAutoCommit( false );
+
+            try ( PreparedStatement statement = connection.prepareStatement( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS ) )
+            {
+                insertBatch( statement, listUsers, nBatchSize );
+                connection.commit( );
+            }
+            catch( SQLException | RuntimeException e )
+            {
+                connection.rollback( );
+                throw e;
+            }
+            finally
+            {
+                connection.setAutoCommit( bAutoCommit );
+            }
+        }
+        catch( SQLException e )
+        {
+            throw new AppException( e.getMessage( ), e );
+        }
+        finally
+        {
+            plugin.getConnectionService( ).freeConnection( connection );
+        }
+    }
+
+    /**
+     * Insert users in batches
+     * @param statement the insert statement
+     * @param listUsers the users to insert
+     * @param nBatchSize the number of users sent per batch
+     * @throws SQLException if an error occurs
+     */
+    private static void insertBatch( PreparedStatement statement, Collection<User> listUsers, int nBatchSize ) throws SQLException
+    {
+        List<User> listBatch = new ArrayList<>( nBatchSize );
+
+        for ( User user : listUsers )
+        {
+            statement.setString( 1 , user.getNom( ) );
+            statement.setString( 2 , getNomSearch( user.getNom( ) ) );
+            statement.addBatch( );
+            listBatch.add( user );
+
+            if ( listBatch.size( ) >= nBatchSize )
+            {
+                executeInsertBatch( statement, listBatch );
+            }
+        }
+
+        if ( !listBatch.isEmpty( ) )
+        {
+            executeInsertBatch( statement, listBatch );
+        }
+    }
+
+    /**
+     * Send a batch of inserts and set the generated ids on the inserted users
+     * @param statement the insert statement holding the batch
+     * @param listBatch the users of the batch, in the order they were added. The list is cleared.
+     * @throws SQLException if an error occurs
+     */
+    private static void executeInsertBatch( PreparedStatement statement, List<User> listBatch ) throws SQLException
+    {
+        try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_INSERT, 2 * listBatch.size( ) ) )
+        {
+            statement.executeBatch( );
+            timing.executed( );
+
+            try ( ResultSet generatedKeys = statement.getGeneratedKeys( ) )
+            {
+                for ( User user : listBatch )
+                {
+                    if ( generatedKeys.next( ) )
+                    {
+                        user.setId( generatedKeys.getInt( 1 ) );
+                    }
+
+                    user.setUnmodified( );
+                }
+            }
+
+            timing.end( listBatch.size( ) );
+        }
+
+        listBatch.clear( );
+    }
+
     /**
      * {@inheritDoc }
      */
@@ -84,18 +245,27 @@ public final class UserDAO implements IUserDAO
         try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT, plugin ) )
         {
 	        daoUtil.setInt( 1 , nKey );
-	        daoUtil.executeQuery( );
 	        User user = null;
-	
-	        if ( daoUtil.next( ) )
+
+	        try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_SELECT, 1 ) )
 	        {
-	            user = new User();
-	            int nIndex = 1;
+	            daoUtil.executeQuery( );
+	            timing.executed( );
+	
+	            if ( daoUtil.next( ) )
+	            {
+	                timing.row( );
+	                user = new User();
+	                int nIndex = 1;
 	            
-	            user.setId( daoUtil.getInt( nIndex++ ) );
-	            user.setNom( daoUtil.getString( nIndex ) );            
-	        }
+	                user.setId( daoUtil.getInt( nIndex++ ) );
+	                user.setNom( daoUtil.getString( nIndex++ ) );
+	                user.setVersion( daoUtil.getInt( nIndex ) );
+	                user.setUnmodified( );
+	            }
 	
+	            timing.end( );
+	        }
 	        daoUtil.free( );
 	        return user;
         }
@@ -110,7 +280,11 @@ public final class UserDAO implements IUserDAO
         try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE, plugin ) )
         {
 	        daoUtil.setInt( 1 , nKey );
-	        daoUtil.executeUpdate( );
+	        try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_DELETE, 1 ) )
+	        {
+	            daoUtil.executeUpdate( );
+	            timing.end( -1 );
+	        }
 	        daoUtil.free( );
         }
     }
@@ -119,19 +293,73 @@ public final class UserDAO implements IUserDAO
      * {@inheritDoc }
      */
     @Override
-    public void store( User user, Plugin plugin )
+    public boolean store( User user, Plugin plugin )
     {
-        try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, plugin ) )
+        MultiPluginTransaction transaction = TransactionManager.getCurrentTransaction( plugin );
+
+        if ( transaction != null )
         {
-	        int nIndex = 1;
-	        
-	        daoUtil.setInt( nIndex++ , user.getId( ) );
-	        daoUtil.setString( nIndex++ , user.getNom( ) );
-	        daoUtil.setInt( nIndex , user.getId( ) );
-	
-	        daoUtil.executeUpdate( );
-	        daoUtil.free( );
+            // The update is part of the transaction of the caller, which commits it
+            try ( PreparedStatement statement = transaction.prepareStatement( SQL_QUERY_UPDATE ) )
+            {
+                return store( statement, user );
+            }
+            catch( SQLException e )
+            {
+                throw new AppException( e.getMessage( ), e );
+            }
+        }
+
+        // DAOUtil does not give the update count, which tells if the version still matched
+        Connection connection = plugin.getConnectionService( ).getConnection( );
+
+        try ( PreparedStatement statement = connection.prepareStatement( SQL_QUERY_UPDATE ) )
+        {
+            return store( statement, user );
+        }
+        catch( SQLException e )
+        {
+            throw new AppException( e.getMessage( ), e );
+        }
+        finally
+        {
+            plugin.getConnectionService( ).freeConnection( connection );
+        }
+    }
+
+    /**
+     * Update a user if its version still matches the one of the row
+     * @param statement the update statement
+     * @param user the user to update
+     * @return true if the row has been updated, false if its version has changed or if it has been removed
+     * @throws SQLException if an error occurs
+     */
+    private static boolean store( PreparedStatement statement, User user ) throws SQLException
+    {
+        int nIndex = 1;
+
+        statement.setString( nIndex++ , user.getNom( ) );
+        statement.setString( nIndex++ , getNomSearch( user.getNom( ) ) );
+        statement.setInt( nIndex++ , user.getId( ) );
+        statement.setInt( nIndex , user.getVersion( ) );
+
+        int nRowsCount;
+
+        try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_UPDATE, nIndex ) )
+        {
+            nRowsCount = statement.executeUpdate( );
+            timing.end( nRowsCount );
         }
+
+        if ( nRowsCount == 0 )
+        {
+            return false;
+        }
+
+        user.setVersion( user.getVersion( ) + 1 );
+        user.setUnmodified( );
+
+        return true;
     }
 
     /**
@@ -143,19 +371,26 @@ public final class UserDAO implements IUserDAO
         List<User> userList = new ArrayList<>(  );
         try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECTALL, plugin ) )
         {
-	        daoUtil.executeQuery(  );
-	
-	        while ( daoUtil.next(  ) )
+	        try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_SELECTALL, 0 ) )
 	        {
-	            User user = new User(  );
-	            int nIndex = 1;
+	            daoUtil.executeQuery(  );
+	            timing.executed( );
+	
+	            while ( daoUtil.next(  ) )
+	            {
+	                User user = new User(  );
+	                int nIndex = 1;
 	            
-	            user.setId( daoUtil.getInt( nIndex++ ) );
-	            user.setNom( daoUtil.getString( nIndex ) );            
+	                user.setId( daoUtil.getInt( nIndex++ ) );
+	                user.setNom( daoUtil.getString( nIndex++ ) );
+	                user.setVersion( daoUtil.getInt( nIndex ) );
+	                user.setUnmodified( );
 	
-	            userList.add( user );
-	        }
+	                userList.add( user );
+	            }
 	
+	            timing.end( userList.size( ) );
+	        }
 	        daoUtil.free( );
 	        return userList;
         }
@@ -170,13 +405,18 @@ public final class UserDAO implements IUserDAO
         List<Integer> userList = new ArrayList<>( );
         try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECTALL_ID, plugin ) )
         {
-	        daoUtil.executeQuery(  );
-	
-	        while ( daoUtil.next(  ) )
+	        try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_SELECTALL_ID, 0 ) )
 	        {
-	            userList.add( daoUtil.getInt( 1 ) );
-	        }
+	            daoUtil.executeQuery(  );
+	            timing.executed( );
+	
+	            while ( daoUtil.next(  ) )
+	            {
+	                userList.add( daoUtil.getInt( 1 ) );
+	            }
 	
+	            timing.end( userList.size( ) );
+	        }
 	        daoUtil.free( );
 	        return userList;
         }
@@ -191,15 +431,500 @@ public final class UserDAO implements IUserDAO
         ReferenceList userList = new ReferenceList();
         try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECTALL, plugin ) )
         {
-	        daoUtil.executeQuery(  );
-	
-	        while ( daoUtil.next(  ) )
+	        try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_SELECTALL, 0 ) )
 	        {
-	            userList.addItem( daoUtil.getInt( 1 ) , daoUtil.getString( 2 ) );
-	        }
+	            daoUtil.executeQuery(  );
+	            timing.executed( );
 	
+	            while ( daoUtil.next(  ) )
+	            {
+	                userList.addItem( daoUtil.getInt( 1 ) , daoUtil.getString( 2 ) );
+	            }
+	
+	            timing.end( userList.size( ) );
+	        }
 	        daoUtil.free( );
 	        return userList;
     	}
     }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<User> selectUsersListAfter( User userCursor, boolean bOrderByNom, int nLimit, Plugin plugin )
+    {
+        String strSql;
+
+        if ( bOrderByNom )
+        {
+            strSql = ( userCursor == null ) ? SQL_QUERY_SELECT_FIRST_BY_NOM : SQL_QUERY_SELECT_AFTER_BY_NOM;
+        }
+        else
+        {
+            strSql = ( userCursor == null ) ? SQL_QUERY_SELECT_FIRST_BY_ID : SQL_QUERY_SELECT_AFTER_BY_ID;
+        }
+
+        return selectUsersListSeek( strSql, userCursor, bOrderByNom, nLimit, plugin );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<User> selectUsersListBefore( User userCursor, boolean bOrderByNom, int nLimit, Plugin plugin )
+    {
+        String strSql;
+
+        if ( bOrderByNom )
+        {
+            strSql = ( userCursor == null ) ? SQL_QUERY_SELECT_LAST_BY_NOM : SQL_QUERY_SELECT_BEFORE_BY_NOM;
+        }
+        else
+        {
+            strSql = ( userCursor == null ) ? SQL_QUERY_SELECT_LAST_BY_ID : SQL_QUERY_SELECT_BEFORE_BY_ID;
+        }
+
+        // The query reads backward from the cursor, restore the ascending order
+        List<User> userList = selectUsersListSeek( strSql, userCursor, bOrderByNom, nLimit, plugin );
+        Collections.reverse( userList );
+
+        return userList;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int countUsers( Plugin plugin )
+    {
+        try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_COUNT, plugin ) )
+        {
+            int nCount = 0;
+
+            try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_COUNT, 0 ) )
+            {
+                daoUtil.executeQuery( );
+                timing.executed( );
+
+                if ( daoUtil.next( ) )
+                {
+                    timing.row( );
+                    nCount = daoUtil.getInt( 1 );
+                }
+
+                timing.end( );
+            }
+            daoUtil.free( );
+            return nCount;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public long selectUsersVersion( Plugin plugin )
+    {
+        try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_USERS_VERSION, plugin ) )
+        {
+            long lVersion = 0L;
+
+            try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_SELECT_USERS_VERSION, 0 ) )
+            {
+                daoUtil.executeQuery( );
+                timing.executed( );
+
+                if ( daoUtil.next( ) )
+                {
+                    timing.row( );
+                    lVersion = daoUtil.getLong( 1 );
+                }
+
+                timing.end( );
+            }
+            daoUtil.free( );
+            return lVersion;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void incrementUsersVersion( Plugin plugin )
+    {
+        try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INCREMENT_USERS_VERSION, plugin ) )
+        {
+            try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_INCREMENT_USERS_VERSION, 0 ) )
+            {
+                daoUtil.executeUpdate( );
+                timing.executed( );
+                timing.end( 1 );
+            }
+            daoUtil.free( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<User> selectUsersPage( int nOffset, int nLimit, Plugin plugin )
+    {
+        List<User> userList = new ArrayList<>( nLimit );
+        try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_PAGE, plugin ) )
+        {
+            daoUtil.setInt( 1 , nLimit );
+            daoUtil.setInt( 2 , nOffset );
+            try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_SELECT_PAGE, 2 ) )
+            {
+                daoUtil.executeQuery( );
+                timing.executed( );
+
+                while ( daoUtil.next( ) )
+                {
+                    User user = new User( );
+                    user.setId( daoUtil.getInt( 1 ) );
+                    user.setNom( daoUtil.getString( 2 ) );
+
+                    userList.add( user );
+                }
+
+                timing.end( userList.size( ) );
+            }
+            daoUtil.free( );
+            return userList;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void forEachUser( Consumer<User> consumer, int nFetchSize, boolean bFlyweight, Plugin plugin )
+    {
+        forEachUser( SQL_QUERY_SELECTALL, consumer, nFetchSize, bFlyweight, plugin );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void forEachUserInRange( int nIdMin, int nIdMax, Consumer<User> consumer, int nFetchSize, boolean bFlyweight, Plugin plugin )
+    {
+        forEachUser( SQL_QUERY_SELECT_ID_RANGE, consumer, nFetchSize, bFlyweight, plugin, nIdMin, nIdMax );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int [ ] selectIdUsersBounds( Plugin plugin )
+    {
+        try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_ID_BOUNDS, plugin ) )
+        {
+            int [ ] bounds = null;
+
+            try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_SELECT_ID_BOUNDS, 0 ) )
+            {
+                daoUtil.executeQuery( );
+                timing.executed( );
+
+                // MIN and MAX are null on an empty table
+                if ( daoUtil.next( ) && ( daoUtil.getObject( 1 ) != null ) )
+                {
+                    bounds = new int [ ] { daoUtil.getInt( 1 ), daoUtil.getInt( 2 ) };
+                }
+
+                timing.end( 1 );
+            }
+            daoUtil.free( );
+            return bounds;
+        }
+    }
+
+    /**
+     * Read the users selected by a query one row at a time
+     * @param strSql the query, selecting id_user, nom and version
+     * @param consumer the consumer called for each user
+     * @param nFetchSize the JDBC fetch size hint
+     * @param bFlyweight true to reuse the same User instance for every row
+     * @param plugin the Plugin
+     * @param parameters the integer parameters of the query
+     */
+    private static void forEachUser( String strSql, Consumer<User> consumer, int nFetchSize, boolean bFlyweight, Plugin plugin, int... parameters )
+    {
+        // DAOUtil gives no access to the fetch size, so the statement is run on a pool connection directly
+        Connection connection = plugin.getConnectionService( ).getConnection( );
+
+        try
+        {
+            // Some drivers (PostgreSQL) only honour the fetch size outside of auto-commit mode
+            boolean bAutoCommit = connection.getAutoCommit( );
+            connection.setAutoCommit( false );
+
+            try
+            {
+                forEachUser( connection, strSql, consumer, nFetchSize, bFlyweight, parameters );
+                connection.commit( );
+            }
+            catch( SQLException | RuntimeException e )
+            {
+                // The connection may be broken, typically when the consumer failed because the client went away
+                restoreAfterFailure( connection, bAutoCommit, e );
+                throw e;
+            }
+
+            connection.setAutoCommit( bAutoCommit );
+        }
+        catch( SQLException e )
+        {
+            throw new AppException( e.getMessage( ), e );
+        }
+        finally
+        {
+            plugin.getConnectionService( ).freeConnection( connection );
+        }
+    }
+
+    /**
+     * Rollback the transaction of a connection after a failure and restore its auto-commit mode. The errors of the cleanup are added to
+     * the failure as suppressed exceptions, so that they do not hide it.
+     * @param connection the connection
+     * @param bAutoCommit the auto-commit mode to restore
+     * @param failure the failure
+     */
+    private static void restoreAfterFailure( Connection connection, boolean bAutoCommit, Exception failure )
+    {
+        try
+        {
+            connection.rollback( );
+        }
+        catch( SQLException e )
+        {
+            failure.addSuppressed( e );
+        }
+
+        try
+        {
+            connection.setAutoCommit( bAutoCommit );
+        }
+        catch( SQLException e )
+        {
+            failure.addSuppressed( e );
+        }
+    }
+
+    /**
+     * Run a query selecting users on a connection and read the rows one at a time
+     * @param connection the connection, outside of auto-commit mode
+     * @param strSql the query, selecting id_user, nom and version
+     * @param consumer the consumer called for each user
+     * @param nFetchSize the JDBC fetch size hint
+     * @param bFlyweight true to reuse the same User instance for every row
+     * @param parameters the integer parameters of the query
+     * @throws SQLException if an error occurs
+     */
+    private static void forEachUser( Connection connection, String strSql, Consumer<User> consumer, int nFetchSize, boolean bFlyweight,
+            int... parameters ) throws SQLException
+    {
+        try ( PreparedStatement statement = connection.prepareStatement( strSql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY ) )
+        {
+            statement.setFetchSize( nFetchSize );
+
+            for ( int i = 0; i < parameters.length; i++ )
+            {
+                statement.setInt( i + 1, parameters [i] );
+            }
+
+            try ( StatementTiming timing = StatementTiming.start( strSql, parameters.length ) )
+            {
+                try ( ResultSet resultSet = statement.executeQuery( ) )
+                {
+                    timing.executed( );
+                    User user = new User( );
+
+                    while ( resultSet.next( ) )
+                    {
+                        if ( !bFlyweight )
+                        {
+                            user = new User( );
+                        }
+
+                        user.setId( resultSet.getInt( 1 ) );
+                        user.setNom( resultSet.getString( 2 ) );
+                        user.setVersion( resultSet.getInt( 3 ) );
+                        user.setUnmodified( );
+
+                        consumer.accept( user );
+                        timing.row( );
+                    }
+                }
+
+                timing.end( );
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<User> selectUsersByName( String strQuery, int nLimit, Plugin plugin )
+    {
+        // Prefix search on the normalized column, so that the index on nom_search can be used
+        String strPattern = getNomSearch( strQuery ).replace( "!", "!!" ).replace( "%", "!%" ).replace( "_", "!_" ) + "%";
+        List<User> userList = new ArrayList<>( );
+        try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_BY_NAME, plugin ) )
+        {
+            daoUtil.setString( 1 , strPattern );
+            daoUtil.setInt( 2 , nLimit );
+            try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_SELECT_BY_NAME, 2 ) )
+            {
+                daoUtil.executeQuery( );
+                timing.executed( );
+
+                while ( daoUtil.next( ) )
+                {
+                    User user = new User( );
+                    user.setId( daoUtil.getInt( 1 ) );
+                    user.setNom( daoUtil.getString( 2 ) );
+
+                    userList.add( user );
+                }
+
+                timing.end( userList.size( ) );
+            }
+            daoUtil.free( );
+            return userList;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int storeMissingNomSearch( int nLimit, Plugin plugin )
+    {
+        List<User> listUsers = new ArrayList<>( );
+
+        try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT_NOM_SEARCH_MISSING, plugin ) )
+        {
+            daoUtil.setInt( 1 , nLimit );
+            try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_SELECT_NOM_SEARCH_MISSING, 1 ) )
+            {
+                daoUtil.executeQuery( );
+                timing.executed( );
+
+                while ( daoUtil.next( ) )
+                {
+                    User user = new User( );
+                    user.setId( daoUtil.getInt( 1 ) );
+                    user.setNom( daoUtil.getString( 2 ) );
+                    listUsers.add( user );
+                }
+
+                timing.end( listUsers.size( ) );
+            }
+            daoUtil.free( );
+        }
+
+        if ( listUsers.isEmpty( ) )
+        {
+            return 0;
+        }
+
+        // DAOUtil has no batch, so the updates run on a pool connection directly
+        Connection connection = plugin.getConnectionService( ).getConnection( );
+
+        try ( PreparedStatement statement = connection.prepareStatement( SQL_QUERY_UPDATE_NOM_SEARCH ) )
+        {
+            for ( User user : listUsers )
+            {
+                statement.setString( 1 , getNomSearch( user.getNom( ) ) );
+                statement.setInt( 2 , user.getId( ) );
+                statement.addBatch( );
+            }
+
+            try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_UPDATE_NOM_SEARCH, 2 * listUsers.size( ) ) )
+            {
+                statement.executeBatch( );
+                timing.executed( );
+                timing.end( listUsers.size( ) );
+            }
+        }
+        catch( SQLException e )
+        {
+            throw new AppException( e.getMessage( ), e );
+        }
+        finally
+        {
+            plugin.getConnectionService( ).freeConnection( connection );
+        }
+
+        return listUsers.size( );
+    }
+
+    /**
+     * Returns the value of the normalized search column for a nom
+     * @param strNom The nom
+     * @return The normalized nom, truncated to the size of the column
+     */
+    private static String getNomSearch( String strNom )
+    {
+        String strNomSearch = NameNormalizer.normalize( strNom );
+
+        return ( strNomSearch.length( ) > NOM_SEARCH_MAX_LENGTH ) ? strNomSearch.substring( 0, NOM_SEARCH_MAX_LENGTH ) : strNomSearch;
+    }
+
+    /**
+     * Run a keyset query bound to the given cursor
+     * @param strSql the keyset query
+     * @param userCursor the cursor, or null if the query has no cursor condition
+     * @param bOrderByNom true if the cursor condition is on nom then id, false if it is on id
+     * @param nLimit the maximum number of users to load
+     * @param plugin the Plugin
+     * @return The list of users, in the order of the query
+     */
+    private List<User> selectUsersListSeek( String strSql, User userCursor, boolean bOrderByNom, int nLimit, Plugin plugin )
+    {
+        List<User> userList = new ArrayList<>( nLimit );
+        try( DAOUtil daoUtil = new DAOUtil( strSql, plugin ) )
+        {
+            int nIndex = 1;
+
+            if ( userCursor != null )
+            {
+                if ( bOrderByNom )
+                {
+                    String strNom = ( userCursor.getNom( ) != null ) ? userCursor.getNom( ) : "";
+                    daoUtil.setString( nIndex++ , strNom );
+                    daoUtil.setString( nIndex++ , strNom );
+                }
+
+                daoUtil.setInt( nIndex++ , userCursor.getId( ) );
+            }
+
+            daoUtil.setInt( nIndex , nLimit );
+            try ( StatementTiming timing = StatementTiming.start( strSql, nIndex ) )
+            {
+                daoUtil.executeQuery( );
+                timing.executed( );
+
+                while ( daoUtil.next( ) )
+                {
+                    User user = new User( );
+                    user.setId( daoUtil.getInt( 1 ) );
+                    user.setNom( daoUtil.getString( 2 ) );
+
+                    userList.add( user );
+                }
+
+                timing.end( userList.size( ) );
+            }
+            daoUtil.free( );
+            return userList;
+        }
+    }
 }
@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.business;
+
+import fr.paris.lutece.plugins.testmoussia.service.metrics.FlightRecorderEvent;
+import fr.paris.lutece.plugins.testmoussia.service.metrics.FlightRecorderEventType;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.ReferenceList;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Decorator of a user DAO writing a Java Flight Recorder event for each call, with the operation and the number of rows read or written.
+ * The rows count is -1 when it is unknown, or when the call has failed. The events of the forEachUser operations include the work of the
+ * consumer.
+ */
+public class UserDAOEventsDecorator implements IUserDAO
+{
+    /** Name of the Flight Recorder event type */
+    public static final String EVENT_NAME = "fr.paris.lutece.plugins.testmoussia.UserDAOOperation";
+
+    // Fields of the events
+    private static final int FIELD_OPERATION = 0;
+    private static final int FIELD_ROWS_COUNT = 1;
+
+    private static final int ROWS_COUNT_UNKNOWN = -1;
+
+    private static final FlightRecorderEventType EVENT_TYPE = new FlightRecorderEventType( EVENT_NAME, "User DAO Operation",
+            "Call of the user DAO of the testmoussia plugin" ).addField( "operation", String.class, "Operation" )
+            .addField( "rowsCount", int.class, "Rows Count" ).register( );
+
+    private final IUserDAO _dao;
+
+    /**
+     * Constructor
+     * @param dao The decorated DAO
+     */
+    public UserDAOEventsDecorator( IUserDAO dao )
+    {
+        _dao = dao;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void insert( User user, Plugin plugin )
+    {
+        record( UserDAOMetricsDecorator.OPERATION_INSERT, ( ) -> _dao.insert( user, plugin ), 1 );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void insertBatch( Collection<User> listUsers, int nBatchSize, Plugin plugin )
+    {
+        record( UserDAOMetricsDecorator.OPERATION_INSERT_BATCH, ( ) -> _dao.insertBatch( listUsers, nBatchSize, plugin ), listUsers.size( ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public boolean store( User user, Plugin plugin )
+    {
+        return record( UserDAOMetricsDecorator.OPERATION_STORE, ( ) -> _dao.store( user, plugin ), bStored -> bStored ? 1 : 0 );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void delete( int nKey, Plugin plugin )
+    {
+        record( UserDAOMetricsDecorator.OPERATION_DELETE, ( ) -> _dao.delete( nKey, plugin ), ROWS_COUNT_UNKNOWN );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public User load( int nKey, Plugin plugin )
+    {
+        return record( UserDAOMetricsDecorator.OPERATION_LOAD, ( ) -> _dao.load( nKey, plugin ), user -> ( user != null ) ? 1 : 0 );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<User> selectUsersList( Plugin plugin )
+    {
+        return record( UserDAOMetricsDecorator.OPERATION_SELECT_USERS_LIST, ( ) -> _dao.selectUsersList( plugin ), List::size );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<Integer> selectIdUsersList( Plugin plugin )
+    {
+        return record( UserDAOMetricsDecorator.OPERATION_SELECT_ID_USERS_LIST, ( ) -> _dao.selectIdUsersList( plugin ), List::size );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public ReferenceList selectUsersReferenceList( Plugin plugin )
+    {
+        return record( UserDAOMetricsDecorator.OPERATION_SELECT_USERS_REFERENCE_LIST, ( ) -> _dao.selectUsersReferenceList( plugin ), List::size );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<User> selectUsersListAfter( User userCursor, boolean bOrderByNom, int nLimit, Plugin plugin )
+    {
+        return record( UserDAOMetricsDecorator.OPERATION_SELECT_USERS_LIST_AFTER,
+                ( ) -> _dao.selectUsersListAfter( userCursor, bOrderByNom, nLimit, plugin ), List::size );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<User> selectUsersListBefore( User userCursor, boolean bOrderByNom, int nLimit, Plugin plugin )
+    {
+        return record( UserDAOMetricsDecorator.OPERATION_SELECT_USERS_LIST_BEFORE,
+                ( ) -> _dao.selectUsersListBefore( userCursor, bOrderByNom, nLimit, plugin ), List::size );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int countUsers( Plugin plugin )
+    {
+        return record( UserDAOMetricsDecorator.OPERATION_COUNT_USERS, ( ) -> _dao.countUsers( plugin ), nCount -> 1 );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public long selectUsersVersion( Plugin plugin )
+    {
+        return record( UserDAOMetricsDecorator.OPERATION_SELECT_USERS_VERSION, ( ) -> _dao.selectUsersVersion( plugin ), lVersion -> 1 );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void incrementUsersVersion( Plugin plugin )
+    {
+        record( UserDAOMetricsDecorator.OPERATION_INCREMENT_USERS_VERSION, ( ) -> _dao.incrementUsersVersion( plugin ), 1 );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<User> selectUsersPage( int nOffset, int nLimit, Plugin plugin )
+    {
+        return record( UserDAOMetricsDecorator.OPERATION_SELECT_USERS_PAGE, ( ) -> _dao.selectUsersPage( nOffset, nLimit, plugin ), List::size );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<User> selectUsersByName( String strQuery, int nLimit, Plugin plugin )
+    {
+        return record( UserDAOMetricsDecorator.OPERATION_SELECT_USERS_BY_NAME, ( ) -> _dao.selectUsersByName( strQuery, nLimit, plugin ), List::size );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int storeMissingNomSearch( int nLimit, Plugin plugin )
+    {
+        return record( UserDAOMetricsDecorator.OPERATION_STORE_MISSING_NOM_SEARCH, ( ) -> _dao.storeMissingNomSearch( nLimit, plugin ), nCount -> nCount );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void forEachUser( Consumer<User> consumer, int nFetchSize, boolean bFlyweight, Plugin plugin )
+    {
+        recordForEach( UserDAOMetricsDecorator.OPERATION_FOR_EACH_USER, consumer, c -> _dao.forEachUser( c, nFetchSize, bFlyweight, plugin ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void forEachUserInRange( int nIdMin, int nIdMax, Consumer<User> consumer, int nFetchSize, boolean bFlyweight, Plugin plugin )
+    {
+        recordForEach( UserDAOMetricsDecorator.OPERATION_FOR_EACH_USER_IN_RANGE, consumer,
+                c -> _dao.forEachUserInRange( nIdMin, nIdMax, c, nFetchSize, bFlyweight, plugin ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int [ ] selectIdUsersBounds( Plugin plugin )
+    {
+        return record( UserDAOMetricsDecorator.OPERATION_SELECT_ID_USERS_BOUNDS, ( ) -> _dao.selectIdUsersBounds( plugin ), nBounds -> 1 );
+    }
+
+    /**
+     * Run an operation and write its event
+     * @param <T> The type of the result
+     * @param strOperation The name of the operation
+     * @param operation The operation
+     * @param rowsCount The number of rows of a result
+     * @return The result of the operation
+     */
+    private static <T> T record( String strOperation, Supplier<T> operation, ToIntFunction<T> rowsCount )
+    {
+        FlightRecorderEvent event = EVENT_TYPE.begin( );
+
+        if ( event == null )
+        {
+            return operation.get( );
+        }
+
+        int nRowsCount = ROWS_COUNT_UNKNOWN;
+
+        try
+        {
+            T result = operation.get( );
+            nRowsCount = rowsCount.applyAsInt( result );
+
+            return result;
+        }
+        finally
+        {
+            event.set( FIELD_OPERATION, strOperation ).set( FIELD_ROWS_COUNT, nRowsCount ).commit( );
+        }
+    }
+
+    /**
+     * Run an operation without result and write its event
+     * @param strOperation The name of the operation
+     * @param operation The operation
+     * @param nRowsCount The number of rows of the operation
+     */
+    private static void record( String strOperation, Runnable operation, int nRowsCount )
+    {
+        record( strOperation, ( ) -> {
+            operation.run( );
+            return null;
+        }, result -> nRowsCount );
+    }
+
+    /**
+     * Run an operation giving the users to a consumer and write its event, with the number of users consumed
+     * @param strOperation The name of the operation
+     * @param consumer The consumer
+     * @param operation The operation, given the consumer to call
+     */
+    private static void recordForEach( String strOperation, Consumer<User> consumer, Consumer<Consumer<User>> operation )
+    {
+        FlightRecorderEvent event = EVENT_TYPE.begin( );
+
+        if ( event == null )
+        {
+            operation.accept( consumer );
+
+            return;
+        }
+
+        int [ ] nRowsCount = new int [ 1 ];
+        boolean bCompleted = false;
+
+        try
+        {
+            operation.accept( user -> {
+                nRowsCount [0]++;
+                consumer.accept( user );
+            } );
+            bCompleted = true;
+        }
+        finally
+        {
+            event.set( FIELD_OPERATION, strOperation ).set( FIELD_ROWS_COUNT, bCompleted ? nRowsCount [0] : ROWS_COUNT_UNKNOWN ).commit( );
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.business;
+
+import fr.paris.lutece.plugins.testmoussia.service.metrics.MetricsRegistry;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.util.ReferenceList;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Decorator of a user DAO recording the number of calls, the errors and the durations of each operation in the userDAO metrics registry.
+ * The duration of the forEachUser operations includes the work of the consumer.
+ */
+public class UserDAOMetricsDecorator implements IUserDAO
+{
+    /** Name of the metrics registry */
+    public static final String REGISTRY_NAME = "userDAO";
+
+    // Operations, also the operations of the Flight Recorder events
+    static final String OPERATION_INSERT = "insert";
+    static final String OPERATION_INSERT_BATCH = "insertBatch";
+    static final String OPERATION_STORE = "store";
+    static final String OPERATION_DELETE = "delete";
+    static final String OPERATION_LOAD = "load";
+    static final String OPERATION_SELECT_USERS_LIST = "selectUsersList";
+    static final String OPERATION_SELECT_ID_USERS_LIST = "selectIdUsersList";
+    static final String OPERATION_SELECT_USERS_REFERENCE_LIST = "selectUsersReferenceList";
+    static final String OPERATION_SELECT_USERS_LIST_AFTER = "selectUsersListAfter";
+    static final String OPERATION_SELECT_USERS_LIST_BEFORE = "selectUsersListBefore";
+    static final String OPERATION_COUNT_USERS = "countUsers";
+    static final String OPERATION_SELECT_USERS_VERSION = "selectUsersVersion";
+    static final String OPERATION_INCREMENT_USERS_VERSION = "incrementUsersVersion";
+    static final String OPERATION_SELECT_USERS_PAGE = "selectUsersPage";
+    static final String OPERATION_SELECT_USERS_BY_NAME = "selectUsersByName";
+    static final String OPERATION_STORE_MISSING_NOM_SEARCH = "storeMissingNomSearch";
+    static final String OPERATION_FOR_EACH_USER = "forEachUser";
+    static final String OPERATION_FOR_EACH_USER_IN_RANGE = "forEachUserInRange";
+    static final String OPERATION_SELECT_ID_USERS_BOUNDS = "selectIdUsersBounds";
+
+    private final IUserDAO _dao;
+    private final MetricsRegistry _registry = MetricsRegistry.getRegistry( REGISTRY_NAME );
+
+    /**
+     * Constructor
+     * @param dao The decorated DAO
+     */
+    public UserDAOMetricsDecorator( IUserDAO dao )
+    {
+        _dao = dao;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void insert( User user, Plugin plugin )
+    {
+        _registry.time( OPERATION_INSERT, ( ) -> _dao.insert( user, plugin ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void insertBatch( Collection<User> listUsers, int nBatchSize, Plugin plugin )
+    {
+        _registry.time( OPERATION_INSERT_BATCH, ( ) -> _dao.insertBatch( listUsers, nBatchSize, plugin ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public boolean store( User user, Plugin plugin )
+    {
+        return _registry.time( OPERATION_STORE, ( ) -> _dao.store( user, plugin ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void delete( int nKey, Plugin plugin )
+    {
+        _registry.time( OPERATION_DELETE, ( ) -> _dao.delete( nKey, plugin ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public User load( int nKey, Plugin plugin )
+    {
+        return _registry.time( OPERATION_LOAD, ( ) -> _dao.load( nKey, plugin ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<User> selectUsersList( Plugin plugin )
+    {
+        return _registry.time( OPERATION_SELECT_USERS_LIST, ( ) -> _dao.selectUsersList( plugin ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<Integer> selectIdUsersList( Plugin plugin )
+    {
+        return _registry.time( OPERATION_SELECT_ID_USERS_LIST, ( ) -> _dao.selectIdUsersList( plugin ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public ReferenceList selectUsersReferenceList( Plugin plugin )
+    {
+        return _registry.time( OPERATION_SELECT_USERS_REFERENCE_LIST, ( ) -> _dao.selectUsersReferenceList( plugin ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<User> selectUsersListAfter( User userCursor, boolean bOrderByNom, int nLimit, Plugin plugin )
+    {
+        return _registry.time( OPERATION_SELECT_USERS_LIST_AFTER, ( ) -> _dao.selectUsersListAfter( userCursor, bOrderByNom, nLimit, plugin ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<User> selectUsersListBefore( User userCursor, boolean bOrderByNom, int nLimit, Plugin plugin )
+    {
+        return _registry.time( OPERATION_SELECT_USERS_LIST_BEFORE, ( ) -> _dao.selectUsersListBefore( userCursor, bOrderByNom, nLimit, plugin ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int countUsers( Plugin plugin )
+    {
+        return _registry.time( OPERATION_COUNT_USERS, ( ) -> _dao.countUsers( plugin ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public long selectUsersVersion( Plugin plugin )
+    {
+        return _registry.time( OPERATION_SELECT_USERS_VERSION, ( ) -> _dao.selectUsersVersion( plugin ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void incrementUsersVersion( Plugin plugin )
+    {
+        _registry.time( OPERATION_INCREMENT_USERS_VERSION, ( ) -> _dao.incrementUsersVersion( plugin ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<User> selectUsersPage( int nOffset, int nLimit, Plugin plugin )
+    {
+        return _registry.time( OPERATION_SELECT_USERS_PAGE, ( ) -> _dao.selectUsersPage( nOffset, nLimit, plugin ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<User> selectUsersByName( String strQuery, int nLimit, Plugin plugin )
+    {
+        return _registry.time( OPERATION_SELECT_USERS_BY_NAME, ( ) -> _dao.selectUsersByName( strQuery, nLimit, plugin ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int storeMissingNomSearch( int nLimit, Plugin plugin )
+    {
+        return _registry.time( OPERATION_STORE_MISSING_NOM_SEARCH, ( ) -> _dao.storeMissingNomSearch( nLimit, plugin ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void forEachUser( Consumer<User> consumer, int nFetchSize, boolean bFlyweight, Plugin plugin )
+    {
+        _registry.time( OPERATION_FOR_EACH_USER, ( ) -> _dao.forEachUser( consumer, nFetchSize, bFlyweight, plugin ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void forEachUserInRange( int nIdMin, int nIdMax, Consumer<User> consumer, int nFetchSize, boolean bFlyweight, Plugin plugin )
+    {
+        _registry.time( OPERATION_FOR_EACH_USER_IN_RANGE, ( ) -> _dao.forEachUserInRange( nIdMin, nIdMax, consumer, nFetchSize, bFlyweight, plugin ) );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int [ ] selectIdUsersBounds( Plugin plugin )
+    {
+        return _registry.time( OPERATION_SELECT_ID_USERS_BOUNDS, ( ) -> _dao.selectIdUsersBounds( plugin ) );
+    }
+}
@@ -33,22 +33,63 @@
  */
  package fr.paris.lutece.plugins.testmoussia.business;
 
+import fr.paris.lutece.plugins.testmoussia.service.UserCacheService;
+import fr.paris.lutece.plugins.testmoussia.service.UserNameIndexService;
+import fr.paris.lutece.plugins.testmoussia.service.search.UserIndexer;
+import fr.paris.lutece.plugins.testmoussia.service.tracing.Span;
+import fr.paris.lutece.plugins.testmoussia.service.tracing.Tracer;
+import fr.paris.lutece.portal.business.indexeraction.IndexerAction;
 import fr.paris.lutece.portal.service.plugin.Plugin;
 import fr.paris.lutece.portal.service.plugin.PluginService;
 import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.util.ReferenceList;
+import fr.paris.lutece.util.sql.TransactionManager;
 
+import java.util.Collection;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 /**
  * This class provides instances management methods (create, find, ...) for User objects
  */
 public final class UserHome
 {
+    // Properties
+    private static final String PROPERTY_STREAM_FETCH_SIZE = "testmoussia.users.stream.fetchSize";
+    private static final int DEFAULT_STREAM_FETCH_SIZE = 500;
+    private static final String PROPERTY_BATCH_SIZE = "testmoussia.users.batch.size";
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+
+    // Spans
+    private static final String ATTRIBUTE_CACHE_HIT = "cache.hit";
+    private static final String SPAN_CREATE = "UserHome.create";
+    private static final String SPAN_CREATE_ALL = "UserHome.createAll";
+    private static final String SPAN_UPDATE = "UserHome.update";
+    private static final String SPAN_REMOVE = "UserHome.remove";
+    private static final String SPAN_FIND_BY_PRIMARY_KEY = "UserHome.findByPrimaryKey";
+    private static final String SPAN_GET_USERS_LIST = "UserHome.getUsersList";
+    private static final String SPAN_GET_ID_USERS_LIST = "UserHome.getIdUsersList";
+    private static final String SPAN_GET_USERS_REFERENCE_LIST = "UserHome.getUsersReferenceList";
+    private static final String SPAN_FOR_EACH_USER = "UserHome.forEachUser";
+    private static final String SPAN_FOR_EACH_USER_IN_RANGE = "UserHome.forEachUserInRange";
+    private static final String SPAN_GET_ID_USERS_BOUNDS = "UserHome.getIdUsersBounds";
+    private static final String SPAN_FIND_USERS_BY_NAME = "UserHome.findUsersByName";
+    private static final String SPAN_GET_USERS_COUNT = "UserHome.getUsersCount";
+    private static final String SPAN_GET_USERS_PAGE = "UserHome.getUsersPage";
+    private static final String SPAN_GET_USERS_PAGE_AFTER = "UserHome.getUsersPageAfter";
+    private static final String SPAN_GET_USERS_PAGE_BEFORE = "UserHome.getUsersPageBefore";
+
     // Static variable pointed at the DAO instance
     private static IUserDAO _dao = SpringContextService.getBean( "testmoussia.userDAO" );
     private static Plugin _plugin = PluginService.getPlugin( "testmoussia" );
 
+    // Snapshot of the users table read at a given version of the table
+    private static final Object _lockSnapshot = new Object( );
+    private static volatile UserListSnapshot _snapshot;
+
     /**
      * Private constructor - this class need not be instantiated
      */
@@ -56,6 +97,47 @@ public final class UserHome
     {
     }
 
+    /**
+     * Returns a tag of the content of the users table. The tag is the version stored in the database, incremented in the transaction of
+     * every creation, modification or removal made through this class : it is the same on every webapp sharing the database and kept on restart.
+     * Read the tag before the users it describes : a modification made in between then only makes the tag older than the data.
+     * @return the version tag
+     */
+    public static String getUsersVersionTag( )
+    {
+        return Long.toString( _dao.selectUsersVersion( _plugin ) );
+    }
+
+    /**
+     * Run a write of the users table and increment the version of the table in the same transaction.
+     * The write joins the transaction of the TransactionManager opened for the plugin, if any.
+     * @param write The write, returning false if it modified nothing
+     * @return the result of the write
+     */
+    private static boolean writeUsers( BooleanSupplier write )
+    {
+        TransactionManager.beginTransaction( _plugin );
+
+        try
+        {
+            boolean bWritten = write.getAsBoolean( );
+
+            if ( bWritten )
+            {
+                _dao.incrementUsersVersion( _plugin );
+            }
+
+            TransactionManager.commitTransaction( _plugin );
+
+            return bWritten;
+        }
+        catch( RuntimeException e )
+        {
+            TransactionManager.rollBack( _plugin, e );
+            throw e;
+        }
+    }
+
     /**
      * Create an instance of the user class
      * @param user The instance of the User which contains the informations to store
@@ -63,21 +145,111 @@ public final class UserHome
      */
     public static User create( User user )
     {
-        _dao.insert( user, _plugin );
+        return Tracer.inSpan( SPAN_CREATE, ( ) -> {
+            writeUsers( ( ) -> {
+                _dao.insert( user, _plugin );
+                return true;
+            } );
+            UserCacheService.getInstance( ).removeUser( user.getId( ) );
+            UserNameIndexService.getInstance( ).addUser( user );
+            UserIndexer.addIndexerAction( user.getId( ), IndexerAction.TASK_CREATE );
+
+            return user;
+        } );
+    }
+
+    /**
+     * Create instances of the user class in one transaction, using JDBC batches.
+     * The users join the transaction of the TransactionManager opened for the plugin, if any.
+     * @param listUsers The instances of the User to store. Their primary keys are set once created.
+     */
+    public static void createAll( Collection<User> listUsers )
+    {
+        Tracer.inSpan( SPAN_CREATE_ALL, ( ) -> {
+            int nBatchSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE ) );
+            writeUsers( ( ) -> {
+                _dao.insertBatch( listUsers, nBatchSize, _plugin );
+                return true;
+            } );
+
+            // One indexation action per batch rather than per user, so that the indexer actions do not undo the batching
+            int nIdMin = Integer.MAX_VALUE;
+            int nIdMax = Integer.MIN_VALUE;
+            int nCount = 0;
+
+            for ( User user : listUsers )
+            {
+                UserNameIndexService.getInstance( ).addUser( user );
+                nIdMin = Math.min( nIdMin, user.getId( ) );
+                nIdMax = Math.max( nIdMax, user.getId( ) );
+
+                if ( ++nCount % nBatchSize == 0 )
+                {
+                    UserIndexer.addIndexerActionForRange( nIdMin, nIdMax );
+                    nIdMin = Integer.MAX_VALUE;
+                    nIdMax = Integer.MIN_VALUE;
+                }
+            }
 
-        return user;
+            if ( nIdMin <= nIdMax )
+            {
+                UserIndexer.addIndexerActionForRange( nIdMin, nIdMax );
+            }
+
+        } );
     }
 
     /**
-     * Update of the user which is specified in parameter
+     * Update of the user which is specified in parameter. The update is made only if the user was not modified since it was read :
+     * its version must still be the version stored in the table.
      * @param user The instance of the User which contains the data to store
-     * @return The instance of the  user which has been updated
+     * Nothing is written, and the caches are kept, if the user was not modified since it was read.
+     * If the user was modified or removed since it was read, the caches are refreshed with the current row of the table.
+     * @return The instance of the  user which has been updated, with its new version, or null if the user was modified or removed since it was read
      */
     public static User update( User user )
     {
-        _dao.store( user, _plugin );
+        return Tracer.inSpan( SPAN_UPDATE, ( ) -> {
+            if ( !user.isModified( ) )
+            {
+                return user;
+            }
+
+            // A copy is written, so that the user keeps its version if the transaction is rolled back after the update
+            User userStored = new User( );
+            userStored.setId( user.getId( ) );
+            userStored.setNom( user.getNom( ) );
+            userStored.setVersion( user.getVersion( ) );
+
+            if ( !writeUsers( ( ) -> _dao.store( userStored, _plugin ) ) )
+            {
+                // The cached user may be the outdated one : it is replaced by the current row, read from the database
+                UserCacheService.getInstance( ).removeUser( user.getId( ) );
+
+                User userCurrent = _dao.load( user.getId( ), _plugin );
+
+                if ( userCurrent != null )
+                {
+                    UserCacheService.getInstance( ).putUser( userCurrent );
+                    UserNameIndexService.getInstance( ).addUser( userCurrent );
+                }
+                else
+                {
+                    UserNameIndexService.getInstance( ).removeUser( user.getId( ) );
+                }
+
+                return null;
+            }
+
+            user.setVersion( userStored.getVersion( ) );
+            user.setUnmodified( );
 
-        return user;
+            UserCacheService.getInstance( ).removeUser( user.getId( ) );
+            UserNameIndexService.getInstance( ).addUser( user );
+            UserIndexer.addIndexerAction( user.getId( ), IndexerAction.TASK_MODIFY );
+
+            return user;
+        } );
     }
 
     /**
@@ -86,26 +258,52 @@ public final class UserHome
      */
     public static void remove( int nKey )
     {
-        _dao.delete( nKey, _plugin );
+        Tracer.inSpan( SPAN_REMOVE, ( ) -> {
+            writeUsers( ( ) -> {
+                _dao.delete( nKey, _plugin );
+                return true;
+            } );
+            UserCacheService.getInstance( ).removeUser( nKey );
+            UserNameIndexService.getInstance( ).removeUser( nKey );
+            UserIndexer.addIndexerAction( nKey, IndexerAction.TASK_DELETE );
+        } );
     }
 
     /**
-     * Returns an instance of a user whose identifier is specified in parameter
+     * Returns an instance of a user whose identifier is specified in parameter.
+     * The user is read through the user cache.
      * @param nKey The user primary key
      * @return an instance of User
      */
     public static User findByPrimaryKey( int nKey )
     {
-        return _dao.load( nKey, _plugin );
+        try ( Span span = Tracer.startSpan( SPAN_FIND_BY_PRIMARY_KEY ) )
+        {
+            User user = UserCacheService.getInstance( ).getUser( nKey );
+            span.setAttribute( ATTRIBUTE_CACHE_HIT, user != null );
+
+            if ( user == null )
+            {
+                user = _dao.load( nKey, _plugin );
+
+                if ( user != null )
+                {
+                    UserCacheService.getInstance( ).putUser( user );
+                }
+            }
+
+            return user;
+        }
     }
 
     /**
-     * Load the data of all the user objects and returns them as a list
-     * @return the list which contains the data of all the user objects
+     * Returns the data of all the user objects as a list.
+     * The list is copied from a snapshot shared by all the callers and only reloaded after the users have been modified.
+     * @return the list which contains the data of all the user objects, with their version so that they can be updated
      */
     public static List<User> getUsersList( )
     {
-        return _dao.selectUsersList( _plugin );
+        return Tracer.inSpan( SPAN_GET_USERS_LIST, ( ) -> getSnapshot( ).getUsers( ) );
     }
     
     /**
@@ -114,16 +312,191 @@ public final class UserHome
      */
     public static List<Integer> getIdUsersList( )
     {
-        return _dao.selectIdUsersList( _plugin );
+        return Tracer.inSpan( SPAN_GET_ID_USERS_LIST, ( ) -> _dao.selectIdUsersList( _plugin ) );
     }
     
     /**
-     * Load the data of all the user objects and returns them as a referenceList
+     * Returns the data of all the user objects as a referenceList.
+     * The list is copied from a snapshot shared by all the callers and only reloaded after the users have been modified.
      * @return the referenceList which contains the data of all the user objects
      */
     public static ReferenceList getUsersReferenceList( )
     {
-        return _dao.selectUsersReferenceList( _plugin );
+        return Tracer.inSpan( SPAN_GET_USERS_REFERENCE_LIST, ( ) -> getSnapshot( ).getReferenceList( ) );
+    }
+
+    /**
+     * Returns the snapshot of the users table, reloading it if the table has been modified since it was read
+     * @return the snapshot
+     */
+    private static UserListSnapshot getSnapshot( )
+    {
+        UserListSnapshot snapshot = _snapshot;
+
+        // The version is read before the table, so a modification made while loading triggers a new reload
+        long lVersion = _dao.selectUsersVersion( _plugin );
+
+        if ( ( snapshot == null ) || ( snapshot.getVersion( ) != lVersion ) )
+        {
+            synchronized( _lockSnapshot )
+            {
+                snapshot = _snapshot;
+
+                // Another thread may have loaded the table at this version or at a later one while this one was waiting
+                if ( ( snapshot == null ) || ( snapshot.getVersion( ) < lVersion ) )
+                {
+                    List<User> listUsers = new ArrayList<>( );
+                    forEachUser( listUsers::add );
+                    snapshot = new UserListSnapshot( lVersion, listUsers );
+                    _snapshot = snapshot;
+                }
+            }
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Read all the user objects one by one, without loading them all in memory
+     * @param consumer the consumer called for each user
+     */
+    public static void forEachUser( Consumer<User> consumer )
+    {
+        forEachUser( consumer, false );
     }
-}
 
+    /**
+     * Read all the user objects one by one, without loading them all in memory
+     * @param consumer the consumer called for each user
+     * @param bFlyweight true to reuse the same User instance for every row. The consumer must then copy what it needs to keep.
+     */
+    public static void forEachUser( Consumer<User> consumer, boolean bFlyweight )
+    {
+        Tracer.inSpan( SPAN_FOR_EACH_USER, ( ) -> {
+            int nFetchSize = AppPropertiesService.getPropertyInt( PROPERTY_STREAM_FETCH_SIZE, DEFAULT_STREAM_FETCH_SIZE );
+            _dao.forEachUser( consumer, nFetchSize, bFlyweight, _plugin );
+        } );
+    }
+
+    /**
+     * Read the users whose id is in a range one by one, ordered by id
+     * @param nIdMin the lowest id, included
+     * @param nIdMax the highest id, included
+     * @param consumer the consumer called for each user
+     * @param bFlyweight true to reuse the same User instance for every row. The consumer must then copy what it needs to keep.
+     */
+    public static void forEachUserInRange( int nIdMin, int nIdMax, Consumer<User> consumer, boolean bFlyweight )
+    {
+        Tracer.inSpan( SPAN_FOR_EACH_USER_IN_RANGE, ( ) -> {
+            int nFetchSize = AppPropertiesService.getPropertyInt( PROPERTY_STREAM_FETCH_SIZE, DEFAULT_STREAM_FETCH_SIZE );
+            _dao.forEachUserInRange( nIdMin, nIdMax, consumer, nFetchSize, bFlyweight, _plugin );
+        } );
+    }
+
+    /**
+     * Load the lowest and the highest user ids
+     * @return an array holding the lowest then the highest id, or null if there is no user
+     */
+    public static int [ ] getIdUsersBounds( )
+    {
+        return Tracer.inSpan( SPAN_GET_ID_USERS_BOUNDS, ( ) -> _dao.selectIdUsersBounds( _plugin ) );
+    }
+
+    /**
+     * Search the users by nom. The search ignores case and accents and matches the beginning of the nom.
+     * @param strQuery the searched nom prefix
+     * @param nLimit the maximum number of users to return
+     * @return the list of the matching users ordered by nom
+     */
+    public static List<User> findUsersByName( String strQuery, int nLimit )
+    {
+        return Tracer.inSpan( SPAN_FIND_USERS_BY_NAME, ( ) -> _dao.selectUsersByName( strQuery, nLimit, _plugin ) );
+    }
+
+    /**
+     * Fill the normalized search column of the users that have none, such as the users of a version without that column.
+     * The values are computed by the same normalization as the one of the searches.
+     * @return the number of updated users
+     */
+    public static int storeMissingNomSearch( )
+    {
+        int nBatchSize = AppPropertiesService.getPropertyInt( PROPERTY_BATCH_SIZE, DEFAULT_BATCH_SIZE );
+        int nTotal = 0;
+        int nUpdated;
+
+        do
+        {
+            nUpdated = _dao.storeMissingNomSearch( nBatchSize, _plugin );
+            nTotal += nUpdated;
+        }
+        while ( nUpdated > 0 );
+
+        return nTotal;
+    }
+
+    /**
+     * Count the user objects
+     * @return the number of user objects
+     */
+    public static int getUsersCount( )
+    {
+        return Tracer.inSpan( SPAN_GET_USERS_COUNT, ( ) -> _dao.countUsers( _plugin ) );
+    }
+
+    /**
+     * Load the data of a slice of the user objects ordered by id
+     * @param nOffset the index of the first user to load
+     * @param nLimit the maximum number of users to load
+     * @return the list which contains the data of the users of the slice
+     */
+    public static List<User> getUsersPage( int nOffset, int nLimit )
+    {
+        return Tracer.inSpan( SPAN_GET_USERS_PAGE, ( ) -> _dao.selectUsersPage( nOffset, nLimit, _plugin ) );
+    }
+
+    /**
+     * Load the page of users located after the given cursor
+     * @param userCursor the last user of the previous page, or null to load the first page
+     * @param bOrderByNom true to order the users by nom, false to order them by id
+     * @param nItemsPerPage the number of users per page
+     * @return the page of users
+     */
+    public static UserPage getUsersPageAfter( User userCursor, boolean bOrderByNom, int nItemsPerPage )
+    {
+        return Tracer.inSpan( SPAN_GET_USERS_PAGE_AFTER, ( ) -> {
+            // Read one extra row to know if a next page exists
+            List<User> listUsers = _dao.selectUsersListAfter( userCursor, bOrderByNom, nItemsPerPage + 1, _plugin );
+            boolean bNextAvailable = listUsers.size( ) > nItemsPerPage;
+
+            if ( bNextAvailable )
+            {
+                listUsers.remove( nItemsPerPage );
+            }
+
+            return new UserPage( listUsers, userCursor != null, bNextAvailable );
+        } );
+    }
+
+    /**
+     * Load the page of users located before the given cursor
+     * @param userCursor the first user of the next page, or null to load the last page
+     * @param bOrderByNom true to order the users by nom, false to order them by id
+     * @param nItemsPerPage the number of users per page
+     * @return the page of users
+     */
+    public static UserPage getUsersPageBefore( User userCursor, boolean bOrderByNom, int nItemsPerPage )
+    {
+        return Tracer.inSpan( SPAN_GET_USERS_PAGE_BEFORE, ( ) -> {
+            // Read one extra row to know if a previous page exists
+            List<User> listUsers = _dao.selectUsersListBefore( userCursor, bOrderByNom, nItemsPerPage + 1, _plugin );
+            boolean bPreviousAvailable = listUsers.size( ) > nItemsPerPage;
+
+            if ( bPreviousAvailable )
+            {
+                listUsers.remove( 0 );
+            }
+
+            return new UserPage( listUsers, bPreviousAvailable, userCursor != null );
+        } );
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.business;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+
+/**
+ * This is the business class for the object UserImport : a CSV import of users and its checkpoint
+ */
+public class UserImport implements Serializable
+{
+    public static final String STATUS_RUNNING = "running";
+    public static final String STATUS_FAILED = "failed";
+    public static final String STATUS_COMPLETED = "completed";
+
+    private static final long serialVersionUID = 1L;
+
+    // Variables declarations
+    private int _nId;
+    private String _strFileName;
+    private String _strFilePath;
+    private long _lFileSize;
+    private long _lBytesRead;
+    private int _nLinesRead;
+    private int _nUsersCreated;
+    private int _nErrors;
+    private String _strLastError;
+    private String _strStatus;
+    private Timestamp _dateUpdate;
+
+    /**
+     * Returns the Id
+     * @return The Id
+     */
+    public int getId( )
+    {
+        return _nId;
+    }
+
+    /**
+     * Sets the Id
+     * @param nId The Id
+     */
+    public void setId( int nId )
+    {
+        _nId = nId;
+    }
+
+    /**
+     * Returns the name of the uploaded file
+     * @return The file name
+     */
+    public String getFileName( )
+    {
+        return _strFileName;
+    }
+
+    /**
+     * Sets the name of the uploaded file
+     * @param strFileName The file name
+     */
+    public void setFileName( String strFileName )
+    {
+        _strFileName = strFileName;
+    }
+
+    /**
+     * Returns the path of the working copy of the file
+     * @return The file path
+     */
+    public String getFilePath( )
+    {
+        return _strFilePath;
+    }
+
+    /**
+     * Sets the path of the working copy of the file
+     * @param strFilePath The file path
+     */
+    public void setFilePath( String strFilePath )
+    {
+        _strFilePath = strFilePath;
+    }
+
+    /**
+     * Returns the size of the file
+     * @return The size in bytes
+     */
+    public long getFileSize( )
+    {
+        return _lFileSize;
+    }
+
+    /**
+     * Sets the size of the file
+     * @param lFileSize The size in bytes
+     */
+    public void setFileSize( long lFileSize )
+    {
+        _lFileSize = lFileSize;
+    }
+
+    /**
+     * Returns the number of bytes read at the last checkpoint
+     * @return The number of bytes
+     */
+    public long getBytesRead( )
+    {
+        return _lBytesRead;
+    }
+
+    /**
+     * Sets the number of bytes read at the last checkpoint
+     * @param lBytesRead The number of bytes
+     */
+    public void setBytesRead( long lBytesRead )
+    {
+        _lBytesRead = lBytesRead;
+    }
+
+    /**
+     * Returns the number of lines processed at the last checkpoint
+     * @return The number of lines
+     */
+    public int getLinesRead( )
+    {
+        return _nLinesRead;
+    }
+
+    /**
+     * Sets the number of lines processed at the last checkpoint
+     * @param nLinesRead The number of lines
+     */
+    public void setLinesRead( int nLinesRead )
+    {
+        _nLinesRead = nLinesRead;
+    }
+
+    /**
+     * Returns the number of users created
+     * @return The number of users
+     */
+    public int getUsersCreated( )
+    {
+        return _nUsersCreated;
+    }
+
+    /**
+     * Sets the number of users created
+     * @param nUsersCreated The number of users
+     */
+    public void setUsersCreated( int nUsersCreated )
+    {
+        _nUsersCreated = nUsersCreated;
+    }
+
+    /**
+     * Returns the number of rejected lines
+     * @return The number of lines
+     */
+    public int getErrors( )
+    {
+        return _nErrors;
+    }
+
+    /**
+     * Sets the number of rejected lines
+     * @param nErrors The number of lines
+     */
+    public void setErrors( int nErrors )
+    {
+        _nErrors = nErrors;
+    }
+
+    /**
+     * Returns the last error
+     * @return The last error
+     */
+    public String getLastError( )
+    {
+        return _strLastError;
+    }
+
+    /**
+     * Sets the last error
+     * @param strLastError The last error
+     */
+    public void setLastError( String strLastError )
+    {
+        _strLastError = strLastError;
+    }
+
+    /**
+     * Returns the status
+     * @return The status : one of the STATUS_* constants
+     */
+    public String getStatus( )
+    {
+        return _strStatus;
+    }
+
+    /**
+     * Sets the status
+     * @param strStatus The status : one of the STATUS_* constants
+     */
+    public void setStatus( String strStatus )
+    {
+        _strStatus = strStatus;
+    }
+
+    /**
+     * Returns the date of the last update
+     * @return The date
+     */
+    public Timestamp getDateUpdate( )
+    {
+        return _dateUpdate;
+    }
+
+    /**
+     * Sets the date of the last update
+     * @param dateUpdate The date
+     */
+    public void setDateUpdate( Timestamp dateUpdate )
+    {
+        _dateUpdate = dateUpdate;
+    }
+
+    /**
+     * Returns the progress of the import
+     * @return The percentage of the file processed
+     */
+    public int getProgress( )
+    {
+        if ( STATUS_COMPLETED.equals( _strStatus ) )
+        {
+            return 100;
+        }
+
+        return ( _lFileSize > 0 ) ? (int) Math.min( 100, ( _lBytesRead * 100 ) / _lFileSize ) : 0;
+    }
+}
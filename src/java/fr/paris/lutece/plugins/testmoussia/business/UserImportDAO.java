@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.business;
+
+import fr.paris.lutece.plugins.testmoussia.service.metrics.StatementTiming;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.util.AppException;
+import fr.paris.lutece.util.sql.DAOUtil;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class provides Data Access methods for UserImport objects
+ */
+public final class UserImportDAO implements IUserImportDAO
+{
+    // Constants
+    private static final String SQL_QUERY_SELECT = "SELECT id_import, file_name, file_path, file_size, bytes_read, lines_read, users_created, errors, last_error, status, date_update FROM testmoussia_user_import WHERE id_import = ?";
+    private static final String SQL_QUERY_INSERT = "INSERT INTO testmoussia_user_import ( file_name, file_path, file_size, bytes_read, lines_read, users_created, errors, last_error, status, date_update ) VALUES ( ?, ?, ?, ?, ?, ?, ?, ?, ?, ? ) ";
+    private static final String SQL_QUERY_UPDATE = "UPDATE testmoussia_user_import SET file_name = ?, file_path = ?, file_size = ?, bytes_read = ?, lines_read = ?, users_created = ?, errors = ?, last_error = ?, status = ?, date_update = ? WHERE id_import = ?";
+    private static final String SQL_QUERY_UPDATE_STATUS = "UPDATE testmoussia_user_import SET status = ?, last_error = NULL, date_update = ? WHERE id_import = ? AND status = ?";
+    private static final String SQL_QUERY_SELECTALL = "SELECT id_import, file_name, file_path, file_size, bytes_read, lines_read, users_created, errors, last_error, status, date_update FROM testmoussia_user_import ORDER BY id_import DESC";
+    private static final String SQL_QUERY_COUNT = "SELECT COUNT(*) FROM testmoussia_user_import";
+
+    static
+    {
+        // The slow statements are logged with the names of the constants above
+        StatementTiming.registerStatements( UserImportDAO.class );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void insert( UserImport userImport, Plugin plugin )
+    {
+        try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INSERT, Statement.RETURN_GENERATED_KEYS, plugin ) )
+        {
+            int nIndex = setFields( daoUtil, userImport );
+
+            try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_INSERT, nIndex - 1 ) )
+            {
+                daoUtil.executeUpdate( );
+                timing.executed( );
+                if ( daoUtil.nextGeneratedKey( ) ) 
+                {
+                    userImport.setId( daoUtil.getGeneratedKeyInt( 1 ) );
+                }
+                timing.end( 1 );
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void store( UserImport userImport, Plugin plugin )
+    {
+        try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_UPDATE, plugin ) )
+        {
+            int nIndex = setFields( daoUtil, userImport );
+            daoUtil.setInt( nIndex , userImport.getId( ) );
+
+            try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_UPDATE, nIndex ) )
+            {
+                daoUtil.executeUpdate( );
+                timing.end( -1 );
+            }
+            daoUtil.free( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public boolean storeStatus( int nKey, String strExpectedStatus, String strStatus, Timestamp dateUpdate, Plugin plugin )
+    {
+        // DAOUtil does not give the update count, which tells if the status was still the expected one
+        Connection connection = plugin.getConnectionService( ).getConnection( );
+
+        try ( PreparedStatement statement = connection.prepareStatement( SQL_QUERY_UPDATE_STATUS ) )
+        {
+            int nIndex = 1;
+
+            statement.setString( nIndex++ , strStatus );
+            statement.setTimestamp( nIndex++ , dateUpdate );
+            statement.setInt( nIndex++ , nKey );
+            statement.setString( nIndex , strExpectedStatus );
+
+            try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_UPDATE_STATUS, nIndex ) )
+            {
+                int nRowsCount = statement.executeUpdate( );
+                timing.end( nRowsCount );
+
+                return nRowsCount == 1;
+            }
+        }
+        catch( SQLException e )
+        {
+            throw new AppException( e.getMessage( ), e );
+        }
+        finally
+        {
+            plugin.getConnectionService( ).freeConnection( connection );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public UserImport load( int nKey, Plugin plugin )
+    {
+        try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECT, plugin ) )
+        {
+            daoUtil.setInt( 1 , nKey );
+            UserImport userImport = null;
+
+            try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_SELECT, 1 ) )
+            {
+                daoUtil.executeQuery( );
+                timing.executed( );
+
+                if ( daoUtil.next( ) )
+                {
+                    timing.row( );
+                    userImport = dataToUserImport( daoUtil );
+                }
+
+                timing.end( );
+            }
+
+            daoUtil.free( );
+            return userImport;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<UserImport> selectUserImportsList( Plugin plugin )
+    {
+        List<UserImport> userImportList = new ArrayList<>( );
+        try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_SELECTALL, plugin ) )
+        {
+            try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_SELECTALL, 0 ) )
+            {
+                daoUtil.executeQuery( );
+                timing.executed( );
+
+                while ( daoUtil.next( ) )
+                {
+                    userImportList.add( dataToUserImport( daoUtil ) );
+                }
+
+                timing.end( userImportList.size( ) );
+            }
+
+            daoUtil.free( );
+            return userImportList;
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public int countUserImports( Plugin plugin )
+    {
+        try( DAOUtil daoUtil = new DAOUtil( SQL_QUERY_COUNT, plugin ) )
+        {
+            int nCount = 0;
+
+            try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_COUNT, 0 ) )
+            {
+                daoUtil.executeQuery( );
+                timing.executed( );
+
+                if ( daoUtil.next( ) )
+                {
+                    timing.row( );
+                    nCount = daoUtil.getInt( 1 );
+                }
+
+                timing.end( );
+            }
+            daoUtil.free( );
+            return nCount;
+        }
+    }
+
+    /**
+     * Bind the fields of a userImport, in the order of the insert and update queries
+     * @param daoUtil The daoUtil
+     * @param userImport The userImport
+     * @return The index of the next parameter
+     */
+    private static int setFields( DAOUtil daoUtil, UserImport userImport )
+    {
+        int nIndex = 1;
+        daoUtil.setString( nIndex++ , userImport.getFileName( ) );
+        daoUtil.setString( nIndex++ , userImport.getFilePath( ) );
+        daoUtil.setLong( nIndex++ , userImport.getFileSize( ) );
+        daoUtil.setLong( nIndex++ , userImport.getBytesRead( ) );
+        daoUtil.setInt( nIndex++ , userImport.getLinesRead( ) );
+        daoUtil.setInt( nIndex++ , userImport.getUsersCreated( ) );
+        daoUtil.setInt( nIndex++ , userImport.getErrors( ) );
+        daoUtil.setString( nIndex++ , userImport.getLastError( ) );
+        daoUtil.setString( nIndex++ , userImport.getStatus( ) );
+        daoUtil.setTimestamp( nIndex++ , userImport.getDateUpdate( ) );
+
+        return nIndex;
+    }
+
+    /**
+     * Read a userImport from the current row
+     * @param daoUtil The daoUtil
+     * @return The userImport
+     */
+    private static UserImport dataToUserImport( DAOUtil daoUtil )
+    {
+        UserImport userImport = new UserImport( );
+        int nIndex = 1;
+
+        userImport.setId( daoUtil.getInt( nIndex++ ) );
+        userImport.setFileName( daoUtil.getString( nIndex++ ) );
+        userImport.setFilePath( daoUtil.getString( nIndex++ ) );
+        userImport.setFileSize( daoUtil.getLong( nIndex++ ) );
+        userImport.setBytesRead( daoUtil.getLong( nIndex++ ) );
+        userImport.setLinesRead( daoUtil.getInt( nIndex++ ) );
+        userImport.setUsersCreated( daoUtil.getInt( nIndex++ ) );
+        userImport.setErrors( daoUtil.getInt( nIndex++ ) );
+        userImport.setLastError( daoUtil.getString( nIndex++ ) );
+        userImport.setStatus( daoUtil.getString( nIndex++ ) );
+        userImport.setDateUpdate( daoUtil.getTimestamp( nIndex ) );
+
+        return userImport;
+    }
+}
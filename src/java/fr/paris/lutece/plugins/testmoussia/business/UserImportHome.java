@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.business;
+
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * This class provides instances management methods (create, find, ...) for UserImport objects
+ */
+public final class UserImportHome
+{
+    // Static variable pointed at the DAO instance
+    private static IUserImportDAO _dao = SpringContextService.getBean( "testmoussia.userImportDAO" );
+    private static Plugin _plugin = PluginService.getPlugin( "testmoussia" );
+
+    /**
+     * Private constructor - this class need not be instantiated
+     */
+    private UserImportHome( )
+    {
+    }
+
+    /**
+     * Create an instance of the userImport class
+     * @param userImport The instance of the UserImport which contains the informations to store
+     * @return The instance of userImport which has been created with its primary key.
+     */
+    public static UserImport create( UserImport userImport )
+    {
+        userImport.setDateUpdate( new Timestamp( System.currentTimeMillis( ) ) );
+        _dao.insert( userImport, _plugin );
+
+        return userImport;
+    }
+
+    /**
+     * Update of the userImport which is specified in parameter
+     * @param userImport The instance of the UserImport which contains the data to store
+     * @return The instance of the userImport which has been updated
+     */
+    public static UserImport update( UserImport userImport )
+    {
+        userImport.setDateUpdate( new Timestamp( System.currentTimeMillis( ) ) );
+        _dao.store( userImport, _plugin );
+
+        return userImport;
+    }
+
+    /**
+     * Change the status of the userImport only if it still has the expected status, and clear its last error.
+     * Of several callers changing the same status at the same time, only one succeeds.
+     * @param userImport The instance of the UserImport, whose status is the new one
+     * @param strExpectedStatus The status the userImport must have in the table
+     * @return true if the status has been changed, false if the userImport no longer has the expected status
+     */
+    public static boolean updateStatus( UserImport userImport, String strExpectedStatus )
+    {
+        Timestamp dateUpdate = new Timestamp( System.currentTimeMillis( ) );
+
+        if ( !_dao.storeStatus( userImport.getId( ), strExpectedStatus, userImport.getStatus( ), dateUpdate, _plugin ) )
+        {
+            return false;
+        }
+
+        userImport.setDateUpdate( dateUpdate );
+        userImport.setLastError( null );
+
+        return true;
+    }
+
+    /**
+     * Returns an instance of a userImport whose identifier is specified in parameter
+     * @param nKey The userImport primary key
+     * @return an instance of UserImport
+     */
+    public static UserImport findByPrimaryKey( int nKey )
+    {
+        return _dao.load( nKey, _plugin );
+    }
+
+    /**
+     * Load the data of all the userImport objects, most recent first, and returns them as a list
+     * @return the list which contains the data of all the userImport objects
+     */
+    public static List<UserImport> getUserImportsList( )
+    {
+        return _dao.selectUserImportsList( _plugin );
+    }
+
+    /**
+     * Count the userImport objects
+     * @return the number of userImport objects
+     */
+    public static int getUserImportsCount( )
+    {
+        return _dao.countUserImports( _plugin );
+    }
+}
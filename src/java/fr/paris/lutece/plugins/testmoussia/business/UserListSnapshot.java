@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.business;
+
+import fr.paris.lutece.util.ReferenceList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable snapshot of the users table, shared by all the readers until the table is modified.
+ * The readers get copies of the users, so that modifying them does not change the snapshot seen by the other readers.
+ */
+final class UserListSnapshot
+{
+    private final long _lVersion;
+    private final List<User> _listUsers;
+
+    /**
+     * Constructor
+     * @param lVersion The version of the users table the snapshot was read at
+     * @param listUsers The users, which must not be modified afterwards
+     */
+    UserListSnapshot( long lVersion, List<User> listUsers )
+    {
+        _lVersion = lVersion;
+        _listUsers = listUsers;
+    }
+
+    /**
+     * Returns the version of the users table the snapshot was read at
+     * @return The version
+     */
+    long getVersion( )
+    {
+        return _lVersion;
+    }
+
+    /**
+     * Returns copies of the users
+     * @return The list of users, which the caller may modify
+     */
+    List<User> getUsers( )
+    {
+        List<User> listUsers = new ArrayList<>( _listUsers.size( ) );
+
+        for ( User user : _listUsers )
+        {
+            User userCopy = new User( );
+            userCopy.setId( user.getId( ) );
+            userCopy.setNom( user.getNom( ) );
+            userCopy.setVersion( user.getVersion( ) );
+            userCopy.setUnmodified( );
+            listUsers.add( userCopy );
+        }
+
+        return listUsers;
+    }
+
+    /**
+     * Returns the users as a new reference list
+     * @return The reference list, which the caller may modify
+     */
+    ReferenceList getReferenceList( )
+    {
+        ReferenceList referenceList = new ReferenceList( );
+
+        for ( User user : _listUsers )
+        {
+            referenceList.addItem( user.getId( ), user.getNom( ) );
+        }
+
+        return referenceList;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.business;
+
+import java.util.List;
+
+/**
+ * A page of users read with a keyset (seek) cursor.
+ * The first and last items of the page are the cursors used to fetch the previous and next pages.
+ */
+public class UserPage
+{
+    private final List<User> _listItems;
+    private final boolean _bPreviousAvailable;
+    private final boolean _bNextAvailable;
+
+    /**
+     * Constructor
+     * @param listItems The users of the page, in display order
+     * @param bPreviousAvailable true if there are users before this page
+     * @param bNextAvailable true if there are users after this page
+     */
+    public UserPage( List<User> listItems, boolean bPreviousAvailable, boolean bNextAvailable )
+    {
+        _listItems = listItems;
+        _bPreviousAvailable = bPreviousAvailable;
+        _bNextAvailable = bNextAvailable;
+    }
+
+    /**
+     * Returns the users of the page
+     * @return The users of the page
+     */
+    public List<User> getItems( )
+    {
+        return _listItems;
+    }
+
+    /**
+     * Returns the first user of the page, the cursor of the previous page
+     * @return The first user or null if the page is empty
+     */
+    public User getFirstItem( )
+    {
+        return _listItems.isEmpty( ) ? null : _listItems.get( 0 );
+    }
+
+    /**
+     * Returns the last user of the page, the cursor of the next page
+     * @return The last user or null if the page is empty
+     */
+    public User getLastItem( )
+    {
+        return _listItems.isEmpty( ) ? null : _listItems.get( _listItems.size( ) - 1 );
+    }
+
+    /**
+     * Tells if there are users before this page
+     * @return true if a previous page is available
+     */
+    public boolean isPreviousAvailable( )
+    {
+        return _bPreviousAvailable && !_listItems.isEmpty( );
+    }
+
+    /**
+     * Tells if there are users after this page
+     * @return true if a next page is available
+     */
+    public boolean isNextAvailable( )
+    {
+        return _bNextAvailable && !_listItems.isEmpty( );
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service;
+
+import fr.paris.lutece.plugins.testmoussia.business.UserHome;
+import fr.paris.lutece.plugins.testmoussia.service.search.UserIndexer;
+import fr.paris.lutece.portal.service.plugin.PluginDefaultImplementation;
+import fr.paris.lutece.portal.service.search.IndexationService;
+
+/**
+ * testmoussia plugin
+ */
+public class TestmoussiaPlugin extends PluginDefaultImplementation
+{
+    public static final String PLUGIN_NAME = "testmoussia";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void init( )
+    {
+        // Register the cache at startup so that it is listed in the Manage Caches feature
+        UserCacheService.getInstance( );
+        // Fill the search column of the users of a version without it, before the names are read
+        UserHome.storeMissingNomSearch( );
+        // Load the names index used by the autocomplete
+        UserNameIndexService.getInstance( ).init( );
+
+        IndexationService.registerIndexer( new UserIndexer( ) );
+
+        // Imports still running were interrupted by the server stop
+        UserImportService.getInstance( ).init( );
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service;
+
+import fr.paris.lutece.plugins.testmoussia.business.User;
+import fr.paris.lutece.portal.service.cache.AbstractCacheableService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.config.CacheConfiguration;
+
+/**
+ * Cache of the users loaded by their primary key. It is registered in the core cache service,
+ * so it can be enabled, disabled and flushed from the Manage Caches admin feature.
+ * The size and the time to live of the plugin properties are set on the underlying cache,
+ * which evicts the least recently used users and the expired ones.
+ */
+public final class UserCacheService extends AbstractCacheableService
+{
+    private static final String CACHE_NAME = "TestmoussiaUserCacheService";
+
+    // Properties
+    private static final String PROPERTY_MAX_ELEMENTS = "testmoussia.userCache.maxElements";
+    private static final String PROPERTY_TIME_TO_LIVE = "testmoussia.userCache.timeToLiveSeconds";
+    private static final int DEFAULT_MAX_ELEMENTS = 10000;
+    private static final int DEFAULT_TIME_TO_LIVE = 3600;
+
+    private static UserCacheService _singleton = new UserCacheService( );
+
+    private final int _nMaxElements;
+    private final long _lTimeToLiveSeconds;
+    private final AtomicLong _lHits = new AtomicLong( );
+    private final AtomicLong _lMisses = new AtomicLong( );
+
+    /**
+     * Private constructor
+     */
+    private UserCacheService( )
+    {
+        _nMaxElements = AppPropertiesService.getPropertyInt( PROPERTY_MAX_ELEMENTS, DEFAULT_MAX_ELEMENTS );
+        _lTimeToLiveSeconds = AppPropertiesService.getPropertyInt( PROPERTY_TIME_TO_LIVE, DEFAULT_TIME_TO_LIVE );
+        initCache( );
+        configureCache( );
+    }
+
+    /**
+     * Returns the unique instance of the service
+     * @return The instance
+     */
+    public static UserCacheService getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public String getName( )
+    {
+        return CACHE_NAME;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void enableCache( boolean bEnable )
+    {
+        super.enableCache( bEnable );
+        // Enabling the cache creates it again with the default configuration
+        configureCache( );
+    }
+
+    /**
+     * Returns a copy of the cached user
+     * @param nKey The user primary key
+     * @return a copy of the user, or null if it is not in the cache
+     */
+    public User getUser( int nKey )
+    {
+        User user = (User) getFromCache( getKey( nKey ) );
+
+        if ( user == null )
+        {
+            countMiss( );
+
+            return null;
+        }
+
+        _lHits.incrementAndGet( );
+
+        return copy( user );
+    }
+
+    /**
+     * Put a copy of the user in the cache
+     * @param user The user
+     */
+    public void putUser( User user )
+    {
+        if ( isCacheEnable( ) )
+        {
+            putInCache( getKey( user.getId( ) ), copy( user ) );
+        }
+    }
+
+    /**
+     * Remove a user from the cache
+     * @param nKey The user primary key
+     */
+    public void removeUser( int nKey )
+    {
+        if ( isCacheEnable( ) )
+        {
+            removeKey( getKey( nKey ) );
+        }
+    }
+
+    /**
+     * Returns the number of users found in the cache since the start
+     * @return The number of hits
+     */
+    public long getHitsCount( )
+    {
+        return _lHits.get( );
+    }
+
+    /**
+     * Returns the number of users looked up in the enabled cache and not found since the start
+     * @return The number of misses
+     */
+    public long getMissesCount( )
+    {
+        return _lMisses.get( );
+    }
+
+    /**
+     * Count a lookup that did not find the user, unless the cache is disabled
+     */
+    private void countMiss( )
+    {
+        if ( isCacheEnable( ) )
+        {
+            _lMisses.incrementAndGet( );
+        }
+    }
+
+    /**
+     * Set the size and the time to live of the plugin properties on the underlying cache
+     */
+    private void configureCache( )
+    {
+        Cache cache = getCache( );
+
+        if ( cache != null )
+        {
+            CacheConfiguration configuration = cache.getCacheConfiguration( );
+            configuration.setEternal( false );
+            configuration.setMaxElementsInMemory( _nMaxElements );
+            configuration.setTimeToLiveSeconds( _lTimeToLiveSeconds );
+        }
+    }
+
+    /**
+     * Build the cache key of a user
+     * @param nKey The user primary key
+     * @return The cache key
+     */
+    private static String getKey( int nKey )
+    {
+        return String.valueOf( nKey );
+    }
+
+    /**
+     * Copy a user so that the cached instance is never shared with the callers, which may modify it
+     * @param user The user
+     * @return The copy
+     */
+    private static User copy( User user )
+    {
+        User userCopy = new User( );
+        userCopy.setId( user.getId( ) );
+        userCopy.setNom( user.getNom( ) );
+        userCopy.setVersion( user.getVersion( ) );
+
+        if ( !user.isModified( ) )
+        {
+            userCopy.setUnmodified( );
+        }
+
+        return userCopy;
+    }
+}
@@ -0,0 +1,522 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service;
+
+import fr.paris.lutece.plugins.testmoussia.business.User;
+import fr.paris.lutece.plugins.testmoussia.business.UserHome;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Export of the users as CSV or NDJSON, written to a stream without loading the users in memory.
+ * <p>
+ * Large tables are split in id ranges read in parallel, each on its own connection. The ranges are written to the output in id order :
+ * a range read ahead of the one being written waits once its small buffer is full, so the memory used does not depend on the table size.
+ * Each export has its own threads, so a slow client only holds the threads of its own export.
+ * </p>
+ * <p>
+ * The connections reading the exports are limited for the whole webapp, so that slow or simultaneous downloads cannot take the whole pool
+ * of the plugin : an export reads fewer ranges in parallel when the readers are busy, and is rejected when no reader is free in time.
+ * </p>
+ */
+public final class UserExportService
+{
+    /** CSV format, with a header line */
+    public static final String FORMAT_CSV = "csv";
+
+    /** Newline delimited JSON format, one object per user */
+    public static final String FORMAT_NDJSON = "ndjson";
+
+    private static final String PROPERTY_PARALLELISM = "testmoussia.export.parallelism";
+    private static final String PROPERTY_RANGE_MIN_SIZE = "testmoussia.export.rangeMinSize";
+    private static final String PROPERTY_MAX_READERS = "testmoussia.export.maxReaders";
+    private static final String PROPERTY_READER_WAIT_MILLIS = "testmoussia.export.readerWaitMillis";
+    private static final int DEFAULT_PARALLELISM = 4;
+    private static final int DEFAULT_RANGE_MIN_SIZE = 50000;
+    private static final int DEFAULT_MAX_READERS = 8;
+    private static final int DEFAULT_READER_WAIT_MILLIS = 10000;
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int CHUNKS_PER_RANGE = 4;
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+    private static final byte [ ] END_OF_RANGE = new byte [ 0 ];
+    private static final String CSV_HEADER = "id_user,nom\n";
+    private static final String CSV_SPECIAL_CHARACTERS = ",\"\r\n";
+    private static final char CSV_QUOTE = '"';
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_NOM = "nom";
+    private static final String THREAD_NAME = "testmoussia-user-export-";
+
+    private static UserExportService _singleton = new UserExportService( );
+
+    private final JsonFactory _jsonFactory = new JsonFactory( );
+    private final int _nParallelism;
+    // Connections reading the exports, shared by all the exports of the webapp
+    private final Semaphore _readers;
+    private final AtomicInteger _nThreadNumber = new AtomicInteger( );
+
+    /**
+     * Private constructor
+     */
+    private UserExportService( )
+    {
+        _nParallelism = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_PARALLELISM, DEFAULT_PARALLELISM ) );
+        _readers = new Semaphore( Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_MAX_READERS, DEFAULT_MAX_READERS ) ), true );
+        _jsonFactory.disable( JsonGenerator.Feature.AUTO_CLOSE_TARGET );
+    }
+
+    /**
+     * Returns the unique instance of the service
+     * @return The instance
+     */
+    public static UserExportService getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Tells if a format can be exported
+     * @param strFormat The format
+     * @return true if the format is {@link #FORMAT_CSV} or {@link #FORMAT_NDJSON}
+     */
+    public static boolean isFormatSupported( String strFormat )
+    {
+        return FORMAT_CSV.equals( strFormat ) || FORMAT_NDJSON.equals( strFormat );
+    }
+
+    /**
+     * Write all the users, ordered by id. The output stream is flushed but not closed.
+     * @param out The output stream
+     * @param strFormat The format, {@link #FORMAT_CSV} or {@link #FORMAT_NDJSON}
+     * @return true if the users have been written, false if the export has been rejected because no reader became free in time. Nothing is
+     *         written to the output then.
+     * @throws IOException if the output cannot be written
+     */
+    public boolean export( OutputStream out, String strFormat ) throws IOException
+    {
+        boolean bJson = FORMAT_NDJSON.equals( strFormat );
+        int [ ] bounds = UserHome.getIdUsersBounds( );
+
+        if ( bounds == null )
+        {
+            if ( !bJson )
+            {
+                out.write( CSV_HEADER.getBytes( StandardCharsets.UTF_8 ) );
+            }
+
+            out.flush( );
+
+            return true;
+        }
+
+        int nReaders = acquireReaders( splitRange( bounds [0], bounds [1], _nParallelism ).size( ) );
+
+        if ( nReaders == 0 )
+        {
+            return false;
+        }
+
+        try
+        {
+            if ( !bJson )
+            {
+                out.write( CSV_HEADER.getBytes( StandardCharsets.UTF_8 ) );
+            }
+
+            List<int [ ]> listRanges = splitRange( bounds [0], bounds [1], nReaders );
+
+            if ( listRanges.size( ) == 1 )
+            {
+                exportRange( listRanges.get( 0 ), bJson, out );
+            }
+            else
+            {
+                exportRanges( listRanges, bJson, out );
+            }
+        }
+        finally
+        {
+            _readers.release( nReaders );
+        }
+
+        out.flush( );
+
+        return true;
+    }
+
+    /**
+     * Reserve the readers of an export. All the wanted readers are taken if they are free, otherwise a single one is waited for.
+     * @param nWanted The number of readers wanted
+     * @return The number of readers reserved, to release once the export is over, or 0 if no reader became free in time
+     * @throws IOException if the thread is interrupted while waiting
+     */
+    private int acquireReaders( int nWanted ) throws IOException
+    {
+        if ( _readers.tryAcquire( nWanted ) )
+        {
+            return nWanted;
+        }
+
+        try
+        {
+            long lWaitMillis = AppPropertiesService.getPropertyInt( PROPERTY_READER_WAIT_MILLIS, DEFAULT_READER_WAIT_MILLIS );
+
+            return _readers.tryAcquire( lWaitMillis, TimeUnit.MILLISECONDS ) ? 1 : 0;
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new InterruptedIOException( "Interrupted while waiting for an export reader" );
+        }
+    }
+
+    /**
+     * Split the ids in at most the given number of ranges, each one spanning at least the minimum range size
+     * @param nIdMin The lowest id
+     * @param nIdMax The highest id
+     * @param nMaxRanges The highest number of ranges
+     * @return The ranges, as arrays holding the lowest then the highest id
+     */
+    private static List<int [ ]> splitRange( int nIdMin, int nIdMax, int nMaxRanges )
+    {
+        int nRangeMinSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_RANGE_MIN_SIZE, DEFAULT_RANGE_MIN_SIZE ) );
+        long lSpan = (long) nIdMax - nIdMin + 1;
+        int nRanges = (int) Math.max( 1, Math.min( nMaxRanges, lSpan / nRangeMinSize ) );
+        long lStep = ( lSpan + nRanges - 1 ) / nRanges;
+
+        List<int [ ]> listRanges = new ArrayList<>( nRanges );
+
+        for ( long lFrom = nIdMin; lFrom <= nIdMax; lFrom += lStep )
+        {
+            listRanges.add( new int [ ] { (int) lFrom, (int) Math.min( nIdMax, lFrom + lStep - 1 ) } );
+        }
+
+        return listRanges;
+    }
+
+    /**
+     * Read the ranges in parallel and write them in order
+     * @param listRanges The ranges
+     * @param bJson true for NDJSON, false for CSV
+     * @param out The output stream
+     * @throws IOException if the output cannot be written or a range cannot be read
+     */
+    private void exportRanges( List<int [ ]> listRanges, boolean bJson, OutputStream out ) throws IOException
+    {
+        List<RangeBuffer> listBuffers = new ArrayList<>( listRanges.size( ) );
+        // One thread per range, owned by this export
+        ExecutorService executor = Executors.newFixedThreadPool( listRanges.size( ), runnable -> {
+            Thread thread = new Thread( runnable, THREAD_NAME + _nThreadNumber.incrementAndGet( ) );
+            thread.setDaemon( true );
+
+            return thread;
+        } );
+
+        try
+        {
+            for ( int [ ] range : listRanges )
+            {
+                RangeBuffer buffer = new RangeBuffer( );
+                listBuffers.add( buffer );
+                executor.execute( ( ) -> buffer.fill( range, bJson ) );
+            }
+
+            for ( RangeBuffer buffer : listBuffers )
+            {
+                buffer.drainTo( out );
+            }
+        }
+        finally
+        {
+            // Releases the threads and their connections if the output failed, typically when the client went away
+            listBuffers.forEach( RangeBuffer::cancel );
+            executor.shutdown( );
+        }
+    }
+
+    /**
+     * Write the users of a range
+     * @param range The range
+     * @param bJson true for NDJSON, false for CSV
+     * @param out The output stream, flushed but not closed
+     * @throws IOException if the output cannot be written
+     */
+    private void exportRange( int [ ] range, boolean bJson, OutputStream out ) throws IOException
+    {
+        // Buffered so that the output receives chunks of CHUNK_SIZE bytes
+        OutputStream bufferedOut = new BufferedOutputStream( out, CHUNK_SIZE );
+
+        try
+        {
+            if ( bJson )
+            {
+                JsonGenerator generator = _jsonFactory.createGenerator( bufferedOut, JsonEncoding.UTF8 );
+                generator.setRootValueSeparator( null );
+                UserHome.forEachUserInRange( range [0], range [1], user -> writeJson( generator, user ), true );
+                generator.flush( );
+            }
+            else
+            {
+                Writer writer = new OutputStreamWriter( bufferedOut, StandardCharsets.UTF_8 );
+                UserHome.forEachUserInRange( range [0], range [1], user -> writeCsv( writer, user ), true );
+                writer.flush( );
+            }
+        }
+        catch( UncheckedIOException e )
+        {
+            throw e.getCause( );
+        }
+    }
+
+    /**
+     * Write a user as a JSON object followed by a new line
+     * @param generator The JSON generator
+     * @param user The user
+     */
+    private static void writeJson( JsonGenerator generator, User user )
+    {
+        try
+        {
+            generator.writeStartObject( );
+            generator.writeNumberField( FIELD_ID, user.getId( ) );
+            generator.writeStringField( FIELD_NOM, user.getNom( ) );
+            generator.writeEndObject( );
+            generator.writeRaw( '\n' );
+        }
+        catch( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    /**
+     * Write a user as a CSV line. The nom is quoted only when it contains a separator, a quote or a line break.
+     * @param writer The writer
+     * @param user The user
+     */
+    private static void writeCsv( Writer writer, User user )
+    {
+        try
+        {
+            writer.write( Integer.toString( user.getId( ) ) );
+            writer.write( ',' );
+
+            String strNom = ( user.getNom( ) != null ) ? user.getNom( ) : "";
+
+            if ( containsAny( strNom, CSV_SPECIAL_CHARACTERS ) )
+            {
+                writer.write( CSV_QUOTE );
+
+                for ( int i = 0; i < strNom.length( ); i++ )
+                {
+                    char c = strNom.charAt( i );
+
+                    if ( c == CSV_QUOTE )
+                    {
+                        writer.write( CSV_QUOTE );
+                    }
+
+                    writer.write( c );
+                }
+
+                writer.write( CSV_QUOTE );
+            }
+            else
+            {
+                writer.write( strNom );
+            }
+
+            writer.write( '\n' );
+        }
+        catch( IOException e )
+        {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    /**
+     * Tells if a string contains one of the given characters
+     * @param str The string
+     * @param strCharacters The characters
+     * @return true if one of the characters is found
+     */
+    private static boolean containsAny( String str, String strCharacters )
+    {
+        for ( int i = 0; i < str.length( ); i++ )
+        {
+            if ( strCharacters.indexOf( str.charAt( i ) ) >= 0 )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Bounded buffer between the thread reading a range and the thread writing the output
+     */
+    private final class RangeBuffer extends OutputStream
+    {
+        private final BlockingQueue<byte [ ]> _queue = new ArrayBlockingQueue<>( CHUNKS_PER_RANGE );
+        private volatile boolean _bCancelled;
+        private volatile Exception _error;
+
+        /**
+         * Read a range into the buffer, then mark its end. Run by an export thread.
+         * @param range The range
+         * @param bJson true for NDJSON, false for CSV
+         */
+        private void fill( int [ ] range, boolean bJson )
+        {
+            try
+            {
+                exportRange( range, bJson, this );
+            }
+            catch( IOException | RuntimeException e )
+            {
+                _error = e;
+            }
+            finally
+            {
+                offer( END_OF_RANGE );
+            }
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public void write( int b ) throws IOException
+        {
+            write( new byte [ ] { (byte) b }, 0, 1 );
+        }
+
+        /**
+         * {@inheritDoc }
+         */
+        @Override
+        public void write( byte [ ] bytes, int nOffset, int nLength ) throws IOException
+        {
+            if ( ( nLength > 0 ) && !offer( Arrays.copyOfRange( bytes, nOffset, nOffset + nLength ) ) )
+            {
+                throw new InterruptedIOException( "User export cancelled" );
+            }
+        }
+
+        /**
+         * Queue a chunk, waiting for room unless the export is cancelled
+         * @param chunk The chunk
+         * @return false if the export was cancelled
+         */
+        private boolean offer( byte [ ] chunk )
+        {
+            try
+            {
+                while ( !_bCancelled )
+                {
+                    if ( _queue.offer( chunk, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS ) )
+                    {
+                        return true;
+                    }
+                }
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+
+            return false;
+        }
+
+        /**
+         * Write the chunks of the range to the output until its end
+         * @param out The output stream
+         * @throws IOException if the output cannot be written or the range could not be read
+         */
+        private void drainTo( OutputStream out ) throws IOException
+        {
+            try
+            {
+                byte [ ] chunk;
+
+                while ( ( chunk = _queue.take( ) ) != END_OF_RANGE )
+                {
+                    out.write( chunk );
+                }
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+                throw new InterruptedIOException( "User export interrupted" );
+            }
+
+            if ( _error != null )
+            {
+                throw new IOException( "Error reading the users to export : " + _error.getMessage( ), _error );
+            }
+        }
+
+        /**
+         * Stop the reading thread at its next chunk
+         */
+        private void cancel( )
+        {
+            _bCancelled = true;
+        }
+    }
+}
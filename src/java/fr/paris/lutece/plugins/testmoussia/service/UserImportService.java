@@ -0,0 +1,465 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service;
+
+import fr.paris.lutece.plugins.testmoussia.business.User;
+import fr.paris.lutece.plugins.testmoussia.business.UserHome;
+import fr.paris.lutece.plugins.testmoussia.business.UserImport;
+import fr.paris.lutece.plugins.testmoussia.business.UserImportHome;
+import fr.paris.lutece.portal.service.i18n.I18nService;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.beanvalidation.BeanValidationUtil;
+import fr.paris.lutece.util.sql.TransactionManager;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.validation.ConstraintViolation;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Import of users from CSV files. The first column of each line is the nom of a user.
+ * The file is streamed by a background thread and the users are created in transactions of a configurable size.
+ * The checkpoint, which holds the number of lines and the offset of the next line in the file, is stored in the same transaction
+ * as the users, so that a failed import resumes at the first line that was not committed, without reading the imported lines again.
+ */
+public final class UserImportService
+{
+    // Properties
+    private static final String PROPERTY_TRANSACTION_SIZE = "testmoussia.import.transactionSize";
+    private static final String PROPERTY_WORK_DIRECTORY = "testmoussia.import.workDirectory";
+    private static final int DEFAULT_TRANSACTION_SIZE = 5000;
+    private static final String DEFAULT_WORK_DIRECTORY = System.getProperty( "java.io.tmpdir" ) + File.separator + "testmoussia_import";
+
+    private static final String HEADER_NOM = "nom";
+    private static final char QUOTE = '"';
+    private static final String SEPARATORS = ",;";
+    private static final int LAST_ERROR_MAX_LENGTH = 255;
+    private static final String THREAD_NAME = "testmoussia-user-import";
+
+    private static UserImportService _singleton = new UserImportService( );
+
+    private final ExecutorService _executor = Executors.newSingleThreadExecutor( runnable -> {
+        Thread thread = new Thread( runnable, THREAD_NAME );
+        thread.setDaemon( true );
+
+        return thread;
+    } );
+
+    /**
+     * Private constructor
+     */
+    private UserImportService( )
+    {
+    }
+
+    /**
+     * Returns the unique instance of the service
+     * @return The instance
+     */
+    public static UserImportService getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Mark the imports interrupted by a server stop as failed, so that they can be resumed
+     */
+    public void init( )
+    {
+        for ( UserImport userImport : UserImportHome.getUserImportsList( ) )
+        {
+            if ( UserImport.STATUS_RUNNING.equals( userImport.getStatus( ) ) )
+            {
+                userImport.setStatus( UserImport.STATUS_FAILED );
+                UserImportHome.update( userImport );
+            }
+        }
+    }
+
+    /**
+     * Start the import of a CSV file. The file is copied to the work directory and imported in the background.
+     * @param strFileName The name of the uploaded file
+     * @param inputStream The content of the file
+     * @return The import
+     * @throws IOException if the file can not be copied
+     */
+    public UserImport startImport( String strFileName, InputStream inputStream ) throws IOException
+    {
+        File directory = new File( AppPropertiesService.getProperty( PROPERTY_WORK_DIRECTORY, DEFAULT_WORK_DIRECTORY ) );
+        Files.createDirectories( directory.toPath( ) );
+
+        File file = new File( directory, UUID.randomUUID( ).toString( ) + ".csv" );
+        Files.copy( inputStream, file.toPath( ), StandardCopyOption.REPLACE_EXISTING );
+
+        UserImport userImport = new UserImport( );
+        userImport.setFileName( StringUtils.left( strFileName, LAST_ERROR_MAX_LENGTH ) );
+        userImport.setFilePath( file.getAbsolutePath( ) );
+        userImport.setFileSize( file.length( ) );
+        userImport.setStatus( UserImport.STATUS_RUNNING );
+        UserImportHome.create( userImport );
+
+        _executor.execute( ( ) -> run( userImport ) );
+
+        return userImport;
+    }
+
+    /**
+     * Resume a failed import from its last checkpoint
+     * @param nIdImport The import id
+     * @return true if the import has been resumed, false if it is not a failed import, its file is lost or it is being resumed by another request
+     */
+    public boolean resumeImport( int nIdImport )
+    {
+        UserImport userImport = UserImportHome.findByPrimaryKey( nIdImport );
+
+        if ( ( userImport == null ) || !UserImport.STATUS_FAILED.equals( userImport.getStatus( ) ) || !new File( userImport.getFilePath( ) ).isFile( ) )
+        {
+            return false;
+        }
+
+        userImport.setStatus( UserImport.STATUS_RUNNING );
+
+        // Only one of the resumes requested at the same time, by a double click or on several webapps, runs the import
+        if ( !UserImportHome.updateStatus( userImport, UserImport.STATUS_FAILED ) )
+        {
+            return false;
+        }
+
+        _executor.execute( ( ) -> run( userImport ) );
+
+        return true;
+    }
+
+    /**
+     * Import the file, skipping the lines already imported
+     * @param userImport The import
+     */
+    private void run( UserImport userImport )
+    {
+        int nTransactionSize = Math.max( 1, AppPropertiesService.getPropertyInt( PROPERTY_TRANSACTION_SIZE, DEFAULT_TRANSACTION_SIZE ) );
+        File file = new File( userImport.getFilePath( ) );
+
+        try ( InputStream input = new BufferedInputStream( Files.newInputStream( file.toPath( ) ) ) )
+        {
+            // Resume at the offset of the line following the checkpoint
+            IOUtils.skipFully( input, userImport.getBytesRead( ) );
+
+            LineReader reader = new LineReader( input, userImport.getBytesRead( ) );
+            List<User> listUsers = new ArrayList<>( nTransactionSize );
+            ImportErrors errors = new ImportErrors( );
+            int nCheckpoint = userImport.getLinesRead( );
+            int nLine = nCheckpoint;
+            String strLine;
+
+            while ( ( strLine = reader.readLine( ) ) != null )
+            {
+                nLine++;
+
+                User user = parseLine( strLine, nLine );
+
+                if ( user != null )
+                {
+                    Set<ConstraintViolation<User>> setViolations = BeanValidationUtil.validate( user );
+
+                    if ( setViolations.isEmpty( ) )
+                    {
+                        listUsers.add( user );
+                    }
+                    else
+                    {
+                        errors.add( nLine, setViolations.iterator( ).next( ).getMessage( ) );
+                    }
+                }
+
+                if ( nLine - nCheckpoint >= nTransactionSize )
+                {
+                    checkpoint( userImport, listUsers, errors, nLine, reader.getPosition( ) );
+                    nCheckpoint = nLine;
+                }
+            }
+
+            checkpoint( userImport, listUsers, errors, nLine, reader.getPosition( ) );
+
+            userImport.setStatus( UserImport.STATUS_COMPLETED );
+            UserImportHome.update( userImport );
+            Files.deleteIfExists( file.toPath( ) );
+        }
+        catch( IOException | RuntimeException e )
+        {
+            AppLogService.error( "Error importing the users of file " + userImport.getFilePath( ) + " : " + e.getMessage( ), e );
+            userImport.setStatus( UserImport.STATUS_FAILED );
+            userImport.setLastError( StringUtils.left( e.getMessage( ), LAST_ERROR_MAX_LENGTH ) );
+            UserImportHome.update( userImport );
+        }
+    }
+
+    /**
+     * Create the pending users and store the checkpoint in one transaction
+     * @param userImport The import
+     * @param listUsers The valid users read since the last checkpoint. The list is cleared.
+     * @param errors The errors found since the last checkpoint. They are cleared.
+     * @param nLine The number of the last line read
+     * @param lBytesRead The offset of the line following the last line read
+     */
+    private static void checkpoint( UserImport userImport, List<User> listUsers, ImportErrors errors, int nLine, long lBytesRead )
+    {
+        Plugin plugin = PluginService.getPlugin( TestmoussiaPlugin.PLUGIN_NAME );
+        UserImport checkpoint = new UserImport( );
+        checkpoint.setId( userImport.getId( ) );
+        checkpoint.setFileName( userImport.getFileName( ) );
+        checkpoint.setFilePath( userImport.getFilePath( ) );
+        checkpoint.setFileSize( userImport.getFileSize( ) );
+        checkpoint.setStatus( userImport.getStatus( ) );
+        checkpoint.setLinesRead( nLine );
+        checkpoint.setBytesRead( lBytesRead );
+        checkpoint.setUsersCreated( userImport.getUsersCreated( ) + listUsers.size( ) );
+        checkpoint.setErrors( userImport.getErrors( ) + errors._nCount );
+        checkpoint.setLastError( ( errors._strLast != null ) ? StringUtils.left( errors._strLast, LAST_ERROR_MAX_LENGTH ) : userImport.getLastError( ) );
+
+        TransactionManager.beginTransaction( plugin );
+
+        try
+        {
+            if ( !listUsers.isEmpty( ) )
+            {
+                UserHome.createAll( listUsers );
+            }
+
+            UserImportHome.update( checkpoint );
+            TransactionManager.commitTransaction( plugin );
+        }
+        catch( RuntimeException e )
+        {
+            TransactionManager.rollBack( plugin, e );
+
+            // The names index was given users that were not committed
+            for ( User user : listUsers )
+            {
+                UserNameIndexService.getInstance( ).removeUser( user.getId( ) );
+            }
+
+            throw e;
+        }
+
+        // The import keeps its previous checkpoint if the transaction failed
+        userImport.setLinesRead( checkpoint.getLinesRead( ) );
+        userImport.setBytesRead( checkpoint.getBytesRead( ) );
+        userImport.setUsersCreated( checkpoint.getUsersCreated( ) );
+        userImport.setErrors( checkpoint.getErrors( ) );
+        userImport.setLastError( checkpoint.getLastError( ) );
+        userImport.setDateUpdate( checkpoint.getDateUpdate( ) );
+
+        listUsers.clear( );
+        errors.clear( );
+    }
+
+    /**
+     * Read the user of a CSV line
+     * @param strLine The line
+     * @param nLine The line number
+     * @return The user, or null for the header line and the blank lines
+     */
+    private static User parseLine( String strLine, int nLine )
+    {
+        String strNom = getFirstField( strLine );
+
+        if ( strNom.isEmpty( ) || ( ( nLine == 1 ) && HEADER_NOM.equalsIgnoreCase( strNom ) ) )
+        {
+            return null;
+        }
+
+        User user = new User( );
+        user.setNom( strNom );
+
+        return user;
+    }
+
+    /**
+     * Returns the first field of a CSV line, unquoted
+     * @param strLine The line
+     * @return The trimmed value of the first field
+     */
+    private static String getFirstField( String strLine )
+    {
+        // Strip the BOM some spreadsheets write at the beginning of UTF-8 files
+        String strTrimmed = StringUtils.removeStart( strLine, "\uFEFF" ).trim( );
+
+        if ( strTrimmed.isEmpty( ) || ( strTrimmed.charAt( 0 ) != QUOTE ) )
+        {
+            int nEnd = StringUtils.indexOfAny( strTrimmed, SEPARATORS );
+
+            return ( ( nEnd < 0 ) ? strTrimmed : strTrimmed.substring( 0, nEnd ) ).trim( );
+        }
+
+        StringBuilder sbField = new StringBuilder( );
+
+        for ( int i = 1; i < strTrimmed.length( ); i++ )
+        {
+            char c = strTrimmed.charAt( i );
+
+            if ( c == QUOTE )
+            {
+                if ( ( i + 1 < strTrimmed.length( ) ) && ( strTrimmed.charAt( i + 1 ) == QUOTE ) )
+                {
+                    sbField.append( QUOTE );
+                    i++;
+                }
+                else
+                {
+                    break;
+                }
+            }
+            else
+            {
+                sbField.append( c );
+            }
+        }
+
+        return sbField.toString( ).trim( );
+    }
+
+    /**
+     * Reader of the lines of a UTF-8 file that keeps the offset of the next line, so that an import can resume there
+     */
+    private static final class LineReader
+    {
+        private static final int LINE_FEED = '\n';
+        private static final char CARRIAGE_RETURN = '\r';
+
+        private final InputStream _input;
+        private final ByteArrayOutputStream _line = new ByteArrayOutputStream( );
+        private long _lPosition;
+
+        /**
+         * Constructor
+         * @param input The buffered input, positioned at the beginning of a line
+         * @param lPosition The offset of that line in the file
+         */
+        private LineReader( InputStream input, long lPosition )
+        {
+            _input = input;
+            _lPosition = lPosition;
+        }
+
+        /**
+         * Read the next line
+         * @return The line without its terminator, or null at the end of the file
+         * @throws IOException if the file can not be read
+         */
+        private String readLine( ) throws IOException
+        {
+            _line.reset( );
+
+            int nByte = _input.read( );
+
+            if ( nByte < 0 )
+            {
+                return null;
+            }
+
+            while ( ( nByte >= 0 ) && ( nByte != LINE_FEED ) )
+            {
+                _lPosition++;
+                _line.write( nByte );
+                nByte = _input.read( );
+            }
+
+            if ( nByte == LINE_FEED )
+            {
+                _lPosition++;
+            }
+
+            String strLine = new String( _line.toByteArray( ), StandardCharsets.UTF_8 );
+
+            return StringUtils.removeEnd( strLine, String.valueOf( CARRIAGE_RETURN ) );
+        }
+
+        /**
+         * Returns the offset of the next line
+         * @return The offset in bytes
+         */
+        private long getPosition( )
+        {
+            return _lPosition;
+        }
+    }
+
+    /**
+     * Errors found since the last checkpoint
+     */
+    private static final class ImportErrors
+    {
+        private int _nCount;
+        private String _strLast;
+
+        /**
+         * Add an error
+         * @param nLine The line number
+         * @param strMessage The validation message
+         */
+        private void add( int nLine, String strMessage )
+        {
+            _nCount++;
+            _strLast = nLine + " : " + I18nService.localize( strMessage, I18nService.getDefaultLocale( ) );
+        }
+
+        /**
+         * Clear the errors
+         */
+        private void clear( )
+        {
+            _nCount = 0;
+            _strLast = null;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service;
+
+import fr.paris.lutece.plugins.testmoussia.business.NameNormalizer;
+import fr.paris.lutece.plugins.testmoussia.business.User;
+import fr.paris.lutece.plugins.testmoussia.business.UserHome;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory index of the user names, sorted by normalized name, used for prefix (autocomplete) searches.
+ * Searches are lock-free; the index is loaded once and then kept current by the UserHome modifications.
+ */
+public final class UserNameIndexService
+{
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private static UserNameIndexService _singleton = new UserNameIndexService( );
+
+    // Users by normalized name followed by the id, so that the keys are unique and sorted by name
+    private final ConcurrentNavigableMap<String, User> _mapUsersByName = new ConcurrentSkipListMap<>( );
+    // Index keys by user id, to find the entry to replace when a user is renamed
+    private final Map<Integer, String> _mapKeysById = new ConcurrentHashMap<>( );
+    private volatile boolean _bLoaded;
+
+    /**
+     * Private constructor
+     */
+    private UserNameIndexService( )
+    {
+    }
+
+    /**
+     * Returns the unique instance of the service
+     * @return The instance
+     */
+    public static UserNameIndexService getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Load the index from the users table if it is not loaded yet
+     */
+    public void init( )
+    {
+        if ( !_bLoaded )
+        {
+            synchronized( this )
+            {
+                if ( !_bLoaded )
+                {
+                    UserHome.forEachUser( user -> put( user.getId( ), user.getNom( ) ), true );
+                    _bLoaded = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Empty the index, which is loaded again by the next search. Call it when the users table was modified without UserHome.
+     */
+    public synchronized void clear( )
+    {
+        _bLoaded = false;
+        _mapKeysById.clear( );
+        _mapUsersByName.clear( );
+    }
+
+    /**
+     * Returns the users whose normalized name starts with the normalized prefix, sorted by name
+     * @param strPrefix The prefix
+     * @param nMaxResults The maximum number of users to return
+     * @return The users
+     */
+    public List<User> search( String strPrefix, int nMaxResults )
+    {
+        init( );
+
+        String strNormalizedPrefix = NameNormalizer.normalize( strPrefix );
+        List<User> listUsers = new ArrayList<>( nMaxResults );
+
+        if ( strNormalizedPrefix.isEmpty( ) )
+        {
+            return listUsers;
+        }
+
+        for ( Map.Entry<String, User> entry : _mapUsersByName.tailMap( strNormalizedPrefix ).entrySet( ) )
+        {
+            if ( ( listUsers.size( ) >= nMaxResults ) || !entry.getKey( ).startsWith( strNormalizedPrefix ) )
+            {
+                break;
+            }
+
+            User user = entry.getValue( );
+            User userCopy = new User( );
+            userCopy.setId( user.getId( ) );
+            userCopy.setNom( user.getNom( ) );
+            listUsers.add( userCopy );
+        }
+
+        return listUsers;
+    }
+
+    /**
+     * Returns the number of users in the index
+     * @return The number of users, 0 if the index is not loaded yet
+     */
+    public int getSize( )
+    {
+        return _mapKeysById.size( );
+    }
+
+    /**
+     * Add or replace a user in the index
+     * @param user The user
+     */
+    public synchronized void addUser( User user )
+    {
+        if ( _bLoaded )
+        {
+            put( user.getId( ), user.getNom( ) );
+        }
+    }
+
+    /**
+     * Remove a user from the index
+     * @param nId The user id
+     */
+    public synchronized void removeUser( int nId )
+    {
+        if ( _bLoaded )
+        {
+            String strKey = _mapKeysById.remove( nId );
+
+            if ( strKey != null )
+            {
+                _mapUsersByName.remove( strKey );
+            }
+        }
+    }
+
+    /**
+     * Put a user in the index, replacing its previous entry
+     * @param nId The user id
+     * @param strNom The user nom
+     */
+    private synchronized void put( int nId, String strNom )
+    {
+        User user = new User( );
+        user.setId( nId );
+        user.setNom( strNom );
+
+        String strKey = NameNormalizer.normalize( strNom ) + KEY_SEPARATOR + nId;
+        String strOldKey = _mapKeysById.put( nId, strKey );
+
+        if ( ( strOldKey != null ) && !strOldKey.equals( strKey ) )
+        {
+            _mapUsersByName.remove( strOldKey );
+        }
+
+        _mapUsersByName.put( strKey, user );
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.dashboard;
+
+/**
+ * Rate and latency of a DAO operation, as computed by the performance dashboard daemon
+ */
+public class OperationSnapshot
+{
+    private final String _strName;
+    private final long _lCount;
+    private final long _lErrors;
+    private final double _dRatePerSecond;
+    private final double _dP50Micros;
+    private final double _dP99Micros;
+
+    /**
+     * Constructor
+     * @param strName The name of the operation
+     * @param lCount The number of calls since the start
+     * @param lErrors The number of failed calls since the start
+     * @param dRatePerSecond The number of calls per second since the previous snapshot
+     * @param dP50Micros The median latency, in microseconds
+     * @param dP99Micros The 99th percentile of the latency, in microseconds
+     */
+    public OperationSnapshot( String strName, long lCount, long lErrors, double dRatePerSecond, double dP50Micros, double dP99Micros )
+    {
+        _strName = strName;
+        _lCount = lCount;
+        _lErrors = lErrors;
+        _dRatePerSecond = dRatePerSecond;
+        _dP50Micros = dP50Micros;
+        _dP99Micros = dP99Micros;
+    }
+
+    /**
+     * Returns the name of the operation
+     * @return The name
+     */
+    public String getName( )
+    {
+        return _strName;
+    }
+
+    /**
+     * Returns the number of calls since the start
+     * @return The number of calls
+     */
+    public long getCount( )
+    {
+        return _lCount;
+    }
+
+    /**
+     * Returns the number of failed calls since the start
+     * @return The number of errors
+     */
+    public long getErrors( )
+    {
+        return _lErrors;
+    }
+
+    /**
+     * Returns the number of calls per second since the previous snapshot
+     * @return The rate
+     */
+    public double getRatePerSecond( )
+    {
+        return _dRatePerSecond;
+    }
+
+    /**
+     * Returns the median latency of the calls made since the previous snapshot
+     * @return The latency in microseconds
+     */
+    public double getP50Micros( )
+    {
+        return _dP50Micros;
+    }
+
+    /**
+     * Returns the 99th percentile of the latency of the calls made since the previous snapshot
+     * @return The latency in microseconds
+     */
+    public double getP99Micros( )
+    {
+        return _dP99Micros;
+    }
+}
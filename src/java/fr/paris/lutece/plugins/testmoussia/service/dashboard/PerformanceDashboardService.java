@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.dashboard;
+
+import fr.paris.lutece.plugins.testmoussia.business.UserDAOMetricsDecorator;
+import fr.paris.lutece.plugins.testmoussia.business.UserHome;
+import fr.paris.lutece.plugins.testmoussia.business.UserImportHome;
+import fr.paris.lutece.plugins.testmoussia.service.TestmoussiaPlugin;
+import fr.paris.lutece.plugins.testmoussia.service.UserCacheService;
+import fr.paris.lutece.plugins.testmoussia.service.UserNameIndexService;
+import fr.paris.lutece.plugins.testmoussia.service.metrics.LatencyHistogram;
+import fr.paris.lutece.plugins.testmoussia.service.metrics.MetricsRegistry;
+import fr.paris.lutece.plugins.testmoussia.service.metrics.OperationMetrics;
+import fr.paris.lutece.portal.service.database.AppConnectionService;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.util.pool.PoolManager;
+import fr.paris.lutece.util.pool.service.ConnectionService;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the figures of the performance dashboard. The snapshot is refreshed by the PerformanceDashboardDaemon,
+ * so that displaying the dashboard reads no table and takes no lock, however often it is refreshed.
+ */
+public final class PerformanceDashboardService
+{
+    private static final double NANOS_PER_SECOND = 1000000000.0;
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final double NANOS_PER_MICRO = 1000.0;
+    private static final double PERCENTILE_50 = 50.0;
+    private static final double PERCENTILE_99 = 99.0;
+
+    private static PerformanceDashboardService _singleton = new PerformanceDashboardService( );
+
+    private volatile PerformanceSnapshot _snapshot;
+    // Histograms counters of the operations and cache counters at the previous refresh, to compute the figures of the interval
+    private Map<String, long [ ]> _mapPreviousCounts = new HashMap<>( );
+    private long _lPreviousCacheHits;
+    private long _lPreviousCacheMisses;
+    private long _lPreviousNanos;
+
+    /**
+     * Private constructor
+     */
+    private PerformanceDashboardService( )
+    {
+    }
+
+    /**
+     * Returns the unique instance of the service
+     * @return The instance
+     */
+    public static PerformanceDashboardService getInstance( )
+    {
+        return _singleton;
+    }
+
+    /**
+     * Returns the last computed snapshot
+     * @return The snapshot, or null if the daemon has not run yet
+     */
+    public PerformanceSnapshot getSnapshot( )
+    {
+        return _snapshot;
+    }
+
+    /**
+     * Compute a new snapshot and publish it
+     * @return The snapshot
+     */
+    public synchronized PerformanceSnapshot refresh( )
+    {
+        long lNanos = System.nanoTime( );
+        long lElapsedNanos = ( _lPreviousNanos == 0L ) ? 0L : ( lNanos - _lPreviousNanos );
+        Map<String, long [ ]> mapCounts = new HashMap<>( );
+
+        PerformanceSnapshot snapshot = new PerformanceSnapshot( );
+        snapshot.setIntervalMillis( lElapsedNanos / NANOS_PER_MILLI );
+        fillPool( snapshot );
+        snapshot.setOperations( getOperations( MetricsRegistry.getRegistry( UserDAOMetricsDecorator.REGISTRY_NAME ), _mapPreviousCounts, mapCounts,
+                lElapsedNanos ) );
+        UserCacheService cacheService = UserCacheService.getInstance( );
+        long lCacheHits = cacheService.getHitsCount( );
+        long lCacheMisses = cacheService.getMissesCount( );
+        fillCaches( snapshot );
+        snapshot.setCacheHits( getDelta( _lPreviousCacheHits, lCacheHits ) );
+        snapshot.setCacheMisses( getDelta( _lPreviousCacheMisses, lCacheMisses ) );
+        fillRowsCounts( snapshot );
+
+        _mapPreviousCounts = mapCounts;
+        _lPreviousNanos = lNanos;
+        _lPreviousCacheHits = lCacheHits;
+        _lPreviousCacheMisses = lCacheMisses;
+        _snapshot = snapshot;
+
+        return snapshot;
+    }
+
+    /**
+     * Compute the rates and latencies of the operations of a registry over the interval since the previous refresh
+     * @param registry The registry
+     * @param mapPreviousCounts The histograms counters of the operations at the previous refresh
+     * @param mapCounts The map filled with the current histograms counters
+     * @param lElapsedNanos The time elapsed since the previous refresh, 0 if there is none
+     * @return The operations, sorted by name
+     */
+    static List<OperationSnapshot> getOperations( MetricsRegistry registry, Map<String, long [ ]> mapPreviousCounts, Map<String, long [ ]> mapCounts,
+            long lElapsedNanos )
+    {
+        List<OperationSnapshot> listOperations = new ArrayList<>( );
+
+        for ( OperationMetrics operation : registry.getOperations( ) )
+        {
+            long [ ] counts = operation.getHistogramCounts( );
+            mapCounts.put( operation.getName( ), counts );
+
+            long [ ] intervalCounts = getIntervalCounts( mapPreviousCounts.get( operation.getName( ) ), counts );
+            long lDelta = 0L;
+
+            for ( long lCount : intervalCounts )
+            {
+                lDelta += lCount;
+            }
+
+            double dRate = ( lElapsedNanos > 0L ) ? ( lDelta * NANOS_PER_SECOND / lElapsedNanos ) : 0.0;
+            double dP50Micros = LatencyHistogram.getPercentile( intervalCounts, PERCENTILE_50 ) / NANOS_PER_MICRO;
+            double dP99Micros = LatencyHistogram.getPercentile( intervalCounts, PERCENTILE_99 ) / NANOS_PER_MICRO;
+            listOperations.add( new OperationSnapshot( operation.getName( ), operation.getCount( ), operation.getErrors( ), dRate, dP50Micros,
+                    dP99Micros ) );
+        }
+
+        return listOperations;
+    }
+
+    /**
+     * Compute the counters of a histogram over the interval since the previous refresh
+     * @param previousCounts The counters at the previous refresh, null if there is none
+     * @param counts The current counters
+     * @return The differences between the counters, or the current counters if the metrics have been reset since the previous refresh
+     */
+    private static long [ ] getIntervalCounts( long [ ] previousCounts, long [ ] counts )
+    {
+        if ( ( previousCounts == null ) || ( previousCounts.length != counts.length ) )
+        {
+            return counts;
+        }
+
+        long [ ] intervalCounts = new long [ counts.length];
+
+        for ( int i = 0; i < counts.length; i++ )
+        {
+            intervalCounts [i] = counts [i] - previousCounts [i];
+
+            if ( intervalCounts [i] < 0L )
+            {
+                // The metrics have been reset since the previous refresh
+                return counts;
+            }
+        }
+
+        return intervalCounts;
+    }
+
+    /**
+     * Compute the increase of a counter since the previous refresh
+     * @param lPrevious The counter at the previous refresh
+     * @param lCurrent The current counter
+     * @return The increase, or the current counter if it has been reset since the previous refresh
+     */
+    static long getDelta( long lPrevious, long lCurrent )
+    {
+        return ( lCurrent < lPrevious ) ? lCurrent : ( lCurrent - lPrevious );
+    }
+
+    /**
+     * Read the usage of the database pool of the plugin
+     * @param snapshot The snapshot
+     */
+    private static void fillPool( PerformanceSnapshot snapshot )
+    {
+        Plugin plugin = PluginService.getPlugin( TestmoussiaPlugin.PLUGIN_NAME );
+        PoolManager poolManager = AppConnectionService.getPoolManager( );
+
+        if ( ( plugin == null ) || ( poolManager == null ) )
+        {
+            return;
+        }
+
+        String strPoolName = plugin.getDbPoolName( );
+        snapshot.setPoolName( strPoolName );
+
+        for ( ConnectionService pool : poolManager.getPools( ) )
+        {
+            if ( pool.getPoolName( ).equals( strPoolName ) )
+            {
+                snapshot.setPoolCurrentConnections( pool.getCurrentConnections( ) );
+                snapshot.setPoolMaxConnections( pool.getMaxConnections( ) );
+            }
+        }
+    }
+
+    /**
+     * Read the sizes of the caches of the plugin
+     * @param snapshot The snapshot
+     */
+    private static void fillCaches( PerformanceSnapshot snapshot )
+    {
+        UserCacheService cacheService = UserCacheService.getInstance( );
+        snapshot.setCacheEnabled( cacheService.isCacheEnable( ) );
+        snapshot.setCacheSize( cacheService.getCacheSize( ) );
+        snapshot.setNamesIndexSize( UserNameIndexService.getInstance( ).getSize( ) );
+    }
+
+    /**
+     * Count the rows of the tables of the plugin
+     * @param snapshot The snapshot
+     */
+    private static void fillRowsCounts( PerformanceSnapshot snapshot )
+    {
+        try
+        {
+            snapshot.setUsersCount( UserHome.getUsersCount( ) );
+            snapshot.setUserImportsCount( UserImportHome.getUserImportsCount( ) );
+        }
+        catch( RuntimeException e )
+        {
+            // The other figures are still worth showing while the database is unavailable
+            AppLogService.error( "Unable to count the rows of the testmoussia tables : " + e.getMessage( ), e );
+        }
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.dashboard;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Figures shown by the performance dashboard. A snapshot is computed by the daemon and is never modified once published.
+ */
+public class PerformanceSnapshot
+{
+    /** Value of a figure that could not be read */
+    public static final int NOT_AVAILABLE = -1;
+
+    private Date _date = new Date( );
+    private long _lIntervalMillis;
+    private String _strPoolName;
+    private int _nPoolCurrentConnections = NOT_AVAILABLE;
+    private int _nPoolMaxConnections = NOT_AVAILABLE;
+    private List<OperationSnapshot> _listOperations = new ArrayList<>( );
+    private boolean _bCacheEnabled;
+    private int _nCacheSize;
+    private long _lCacheHits;
+    private long _lCacheMisses;
+    private int _nNamesIndexSize;
+    private int _nUsersCount = NOT_AVAILABLE;
+    private int _nUserImportsCount = NOT_AVAILABLE;
+
+    /**
+     * Returns the date of the snapshot
+     * @return The date
+     */
+    public Date getDate( )
+    {
+        return _date;
+    }
+
+    /**
+     * Returns the time elapsed since the previous snapshot, over which the rates, the latencies and the cache hits are computed
+     * @return The interval in milliseconds, 0 for the first snapshot, whose latencies and cache hits are the ones since the start
+     */
+    public long getIntervalMillis( )
+    {
+        return _lIntervalMillis;
+    }
+
+    /**
+     * Sets the time elapsed since the previous snapshot
+     * @param lIntervalMillis The interval in milliseconds
+     */
+    public void setIntervalMillis( long lIntervalMillis )
+    {
+        _lIntervalMillis = lIntervalMillis;
+    }
+
+    /**
+     * Returns the name of the database pool of the plugin
+     * @return The pool name, or null if it is not known
+     */
+    public String getPoolName( )
+    {
+        return _strPoolName;
+    }
+
+    /**
+     * Sets the name of the database pool of the plugin
+     * @param strPoolName The pool name
+     */
+    public void setPoolName( String strPoolName )
+    {
+        _strPoolName = strPoolName;
+    }
+
+    /**
+     * Returns the number of connections of the pool in use
+     * @return The number of connections, or NOT_AVAILABLE
+     */
+    public int getPoolCurrentConnections( )
+    {
+        return _nPoolCurrentConnections;
+    }
+
+    /**
+     * Sets the number of connections of the pool in use
+     * @param nPoolCurrentConnections The number of connections
+     */
+    public void setPoolCurrentConnections( int nPoolCurrentConnections )
+    {
+        _nPoolCurrentConnections = nPoolCurrentConnections;
+    }
+
+    /**
+     * Returns the maximum number of connections of the pool
+     * @return The number of connections, or NOT_AVAILABLE
+     */
+    public int getPoolMaxConnections( )
+    {
+        return _nPoolMaxConnections;
+    }
+
+    /**
+     * Sets the maximum number of connections of the pool
+     * @param nPoolMaxConnections The number of connections
+     */
+    public void setPoolMaxConnections( int nPoolMaxConnections )
+    {
+        _nPoolMaxConnections = nPoolMaxConnections;
+    }
+
+    /**
+     * Returns the share of the connections of the pool in use
+     * @return The percentage, or NOT_AVAILABLE
+     */
+    public int getPoolUsagePercent( )
+    {
+        if ( ( _nPoolCurrentConnections < 0 ) || ( _nPoolMaxConnections <= 0 ) )
+        {
+            return NOT_AVAILABLE;
+        }
+
+        return (int) ( ( 100L * _nPoolCurrentConnections ) / _nPoolMaxConnections );
+    }
+
+    /**
+     * Returns the operations of the user DAO, sorted by name
+     * @return The operations
+     */
+    public List<OperationSnapshot> getOperations( )
+    {
+        return _listOperations;
+    }
+
+    /**
+     * Sets the operations of the user DAO
+     * @param listOperations The operations
+     */
+    public void setOperations( List<OperationSnapshot> listOperations )
+    {
+        _listOperations = listOperations;
+    }
+
+    /**
+     * Returns true if the users cache is enabled
+     * @return true if the cache is enabled
+     */
+    public boolean isCacheEnabled( )
+    {
+        return _bCacheEnabled;
+    }
+
+    /**
+     * Sets whether the users cache is enabled
+     * @param bCacheEnabled true if the cache is enabled
+     */
+    public void setCacheEnabled( boolean bCacheEnabled )
+    {
+        _bCacheEnabled = bCacheEnabled;
+    }
+
+    /**
+     * Returns the number of users in the cache
+     * @return The size of the cache
+     */
+    public int getCacheSize( )
+    {
+        return _nCacheSize;
+    }
+
+    /**
+     * Sets the number of users in the cache
+     * @param nCacheSize The size of the cache
+     */
+    public void setCacheSize( int nCacheSize )
+    {
+        _nCacheSize = nCacheSize;
+    }
+
+    /**
+     * Returns the number of users found in the cache since the previous snapshot
+     * @return The number of hits
+     */
+    public long getCacheHits( )
+    {
+        return _lCacheHits;
+    }
+
+    /**
+     * Sets the number of users found in the cache since the previous snapshot
+     * @param lCacheHits The number of hits
+     */
+    public void setCacheHits( long lCacheHits )
+    {
+        _lCacheHits = lCacheHits;
+    }
+
+    /**
+     * Returns the number of users not found in the cache since the previous snapshot
+     * @return The number of misses
+     */
+    public long getCacheMisses( )
+    {
+        return _lCacheMisses;
+    }
+
+    /**
+     * Sets the number of users not found in the cache since the previous snapshot
+     * @param lCacheMisses The number of misses
+     */
+    public void setCacheMisses( long lCacheMisses )
+    {
+        _lCacheMisses = lCacheMisses;
+    }
+
+    /**
+     * Returns the share of the lookups since the previous snapshot that found the user in the cache
+     * @return The percentage, or NOT_AVAILABLE if the cache has not been used since the previous snapshot
+     */
+    public int getCacheHitPercent( )
+    {
+        long lLookups = _lCacheHits + _lCacheMisses;
+
+        if ( lLookups == 0 )
+        {
+            return NOT_AVAILABLE;
+        }
+
+        return (int) ( ( 100L * _lCacheHits ) / lLookups );
+    }
+
+    /**
+     * Returns the number of users in the names index of the autocomplete
+     * @return The size of the index
+     */
+    public int getNamesIndexSize( )
+    {
+        return _nNamesIndexSize;
+    }
+
+    /**
+     * Sets the number of users in the names index of the autocomplete
+     * @param nNamesIndexSize The size of the index
+     */
+    public void setNamesIndexSize( int nNamesIndexSize )
+    {
+        _nNamesIndexSize = nNamesIndexSize;
+    }
+
+    /**
+     * Returns the number of rows of the users table
+     * @return The number of rows, or NOT_AVAILABLE
+     */
+    public int getUsersCount( )
+    {
+        return _nUsersCount;
+    }
+
+    /**
+     * Sets the number of rows of the users table
+     * @param nUsersCount The number of rows
+     */
+    public void setUsersCount( int nUsersCount )
+    {
+        _nUsersCount = nUsersCount;
+    }
+
+    /**
+     * Returns the number of rows of the user imports table
+     * @return The number of rows, or NOT_AVAILABLE
+     */
+    public int getUserImportsCount( )
+    {
+        return _nUserImportsCount;
+    }
+
+    /**
+     * Sets the number of rows of the user imports table
+     * @param nUserImportsCount The number of rows
+     */
+    public void setUserImportsCount( int nUserImportsCount )
+    {
+        _nUserImportsCount = nUserImportsCount;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.metrics;
+
+/**
+ * Event of the Java Flight Recorder, started by {@link FlightRecorderEventType#begin()}. Its duration runs until it is committed.
+ */
+public final class FlightRecorderEvent
+{
+    private final Object _event;
+
+    /**
+     * Constructor
+     * @param event The jdk.jfr.Event
+     */
+    FlightRecorderEvent( Object event )
+    {
+        _event = event;
+    }
+
+    /**
+     * Set a field of the event
+     * @param nIndex The index of the field, in the order of the fields of its type
+     * @param value The value, whose type is the one of the field
+     * @return The event
+     */
+    public FlightRecorderEvent set( int nIndex, Object value )
+    {
+        FlightRecorderEventType.set( _event, nIndex, value );
+
+        return this;
+    }
+
+    /**
+     * End the event and write it in the running recordings
+     */
+    public void commit( )
+    {
+        FlightRecorderEventType.commit( _event );
+    }
+}
@@ -0,0 +1,352 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.metrics;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Custom event type of the Java Flight Recorder.
+ * <p>
+ * The plugin is compiled for Java 8, whose API has no jdk.jfr package : the event types are defined at runtime with jdk.jfr.EventFactory,
+ * reached by reflection. On a JVM without the Flight Recorder the events are never enabled. The events are enabled by the recordings, like
+ * the JDK events :
+ * </p>
+ * <pre>
+ * java -XX:StartFlightRecording ...
+ * jcmd &lt;pid&gt; JFR.start settings=profile
+ * </pre>
+ * <p>
+ * When no recording is running, {@link #begin()} only checks that the type is enabled and returns null, so the instrumented code pays a
+ * single call.
+ * </p>
+ */
+public final class FlightRecorderEventType
+{
+    private static final String CATEGORY_LUTECE = "Lutece";
+    private static final String CATEGORY_PLUGIN = "testmoussia";
+    private static final String TIMESPAN_NANOSECONDS = "NANOSECONDS";
+
+    // Handles of the jdk.jfr API, null if it is not available
+    private static final Jfr JFR = Jfr.load( );
+
+    private final String _strName;
+    private final String _strLabel;
+    private final String _strDescription;
+    private final List<Object> _listFields = new ArrayList<>( );
+    private MethodHandle _mhIsEnabled;
+    private MethodHandle _mhNewEvent;
+
+    /**
+     * Constructor. The fields are added, then the type is registered.
+     * @param strName The name of the event type, for instance fr.paris.lutece.plugins.testmoussia.UserDAOOperation
+     * @param strLabel The label of the event type
+     * @param strDescription The description of the event type
+     */
+    public FlightRecorderEventType( String strName, String strLabel, String strDescription )
+    {
+        _strName = strName;
+        _strLabel = strLabel;
+        _strDescription = strDescription;
+    }
+
+    /**
+     * Returns true if the Flight Recorder API is available in this JVM
+     * @return true if the events can be recorded
+     */
+    public static boolean isAvailable( )
+    {
+        return JFR != null;
+    }
+
+    /**
+     * Add a field to the event type. The fields are set by their index, in the order they are added.
+     * @param strName The name of the field
+     * @param type The type of the field : String, int or long
+     * @param strLabel The label of the field
+     * @return The event type
+     */
+    public FlightRecorderEventType addField( String strName, Class<?> type, String strLabel )
+    {
+        return addField( strName, type, strLabel, null );
+    }
+
+    /**
+     * Add a field holding a duration in nanoseconds
+     * @param strName The name of the field
+     * @param strLabel The label of the field
+     * @return The event type
+     */
+    public FlightRecorderEventType addDurationField( String strName, String strLabel )
+    {
+        return addField( strName, long.class, strLabel, TIMESPAN_NANOSECONDS );
+    }
+
+    /**
+     * Register the event type in the Flight Recorder
+     * @return The event type
+     */
+    public synchronized FlightRecorderEventType register( )
+    {
+        if ( JFR != null && _mhNewEvent == null )
+        {
+            try
+            {
+                List<Object> listAnnotations = Arrays.asList( JFR.newAnnotation( JFR._className, _strName ),
+                        JFR.newAnnotation( JFR._classLabel, _strLabel ), JFR.newAnnotation( JFR._classDescription, _strDescription ),
+                        JFR.newAnnotation( JFR._classCategory, new String [ ] {
+                                CATEGORY_LUTECE, CATEGORY_PLUGIN
+                        } ), JFR.newAnnotation( JFR._classStackTrace, Boolean.FALSE ) );
+
+                Object factory = JFR._mhCreate.invoke( listAnnotations, _listFields );
+                Object eventType = JFR._mhGetEventType.invoke( factory );
+
+                _mhIsEnabled = JFR._mhIsEnabled.bindTo( eventType );
+                _mhNewEvent = JFR._mhNewEvent.bindTo( factory );
+            }
+            catch( Throwable e )
+            {
+                AppLogService.error( "Unable to register the Flight Recorder event " + _strName, e );
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Returns true if a running recording records the events of this type
+     * @return true if the events are enabled
+     */
+    public boolean isEnabled( )
+    {
+        MethodHandle mhIsEnabled = _mhIsEnabled;
+
+        try
+        {
+            return mhIsEnabled != null && (boolean) mhIsEnabled.invokeExact( );
+        }
+        catch( Throwable e )
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Start an event of this type, if the type is enabled
+     * @return The started event, or null if the type is not enabled
+     */
+    public FlightRecorderEvent begin( )
+    {
+        if ( !isEnabled( ) )
+        {
+            return null;
+        }
+
+        try
+        {
+            Object event = _mhNewEvent.invoke( );
+            JFR._mhBegin.invoke( event );
+
+            return new FlightRecorderEvent( event );
+        }
+        catch( Throwable e )
+        {
+            AppLogService.error( "Unable to start the Flight Recorder event " + _strName, e );
+
+            return null;
+        }
+    }
+
+    /**
+     * Set a field of an event
+     * @param event The jdk.jfr.Event
+     * @param nIndex The index of the field
+     * @param value The value
+     */
+    static void set( Object event, int nIndex, Object value )
+    {
+        try
+        {
+            JFR._mhSet.invoke( event, nIndex, value );
+        }
+        catch( Throwable e )
+        {
+            AppLogService.error( "Unable to set the field " + nIndex + " of a Flight Recorder event", e );
+        }
+    }
+
+    /**
+     * End an event and write it in the recordings
+     * @param event The jdk.jfr.Event
+     */
+    static void commit( Object event )
+    {
+        try
+        {
+            JFR._mhCommit.invoke( event );
+        }
+        catch( Throwable e )
+        {
+            AppLogService.error( "Unable to commit a Flight Recorder event", e );
+        }
+    }
+
+    /**
+     * Add a field to the event type
+     * @param strName The name of the field
+     * @param type The type of the field
+     * @param strLabel The label of the field
+     * @param strTimespan The unit of the timespan, or null if the field is not a duration
+     * @return The event type
+     */
+    private synchronized FlightRecorderEventType addField( String strName, Class<?> type, String strLabel, String strTimespan )
+    {
+        if ( JFR != null )
+        {
+            try
+            {
+                List<Object> listAnnotations = new ArrayList<>( );
+                listAnnotations.add( JFR.newAnnotation( JFR._classLabel, strLabel ) );
+
+                if ( strTimespan != null )
+                {
+                    listAnnotations.add( JFR.newAnnotation( JFR._classTimespan, strTimespan ) );
+                }
+
+                _listFields.add( JFR._constructorValueDescriptor.newInstance( type, strName, listAnnotations ) );
+            }
+            catch( ReflectiveOperationException | RuntimeException e )
+            {
+                AppLogService.error( "Unable to add the field " + strName + " to the Flight Recorder event " + _strName, e );
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Handles of the jdk.jfr API
+     */
+    private static final class Jfr
+    {
+        private Class<? extends Annotation> _className;
+        private Class<? extends Annotation> _classLabel;
+        private Class<? extends Annotation> _classDescription;
+        private Class<? extends Annotation> _classCategory;
+        private Class<? extends Annotation> _classStackTrace;
+        private Class<? extends Annotation> _classTimespan;
+        private Constructor<?> _constructorAnnotationElement;
+        private Constructor<?> _constructorValueDescriptor;
+        private MethodHandle _mhCreate;
+        private MethodHandle _mhGetEventType;
+        private MethodHandle _mhNewEvent;
+        private MethodHandle _mhIsEnabled;
+        private MethodHandle _mhBegin;
+        private MethodHandle _mhSet;
+        private MethodHandle _mhCommit;
+
+        /**
+         * Look up the jdk.jfr API
+         * @return The handles, or null if the API is not available
+         */
+        static Jfr load( )
+        {
+            try
+            {
+                Jfr jfr = new Jfr( );
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup( );
+                Class<?> classEvent = Class.forName( "jdk.jfr.Event" );
+                Class<?> classEventType = Class.forName( "jdk.jfr.EventType" );
+                Class<?> classEventFactory = Class.forName( "jdk.jfr.EventFactory" );
+                Class<?> classAnnotationElement = Class.forName( "jdk.jfr.AnnotationElement" );
+
+                jfr._className = annotation( "jdk.jfr.Name" );
+                jfr._classLabel = annotation( "jdk.jfr.Label" );
+                jfr._classDescription = annotation( "jdk.jfr.Description" );
+                jfr._classCategory = annotation( "jdk.jfr.Category" );
+                jfr._classStackTrace = annotation( "jdk.jfr.StackTrace" );
+                jfr._classTimespan = annotation( "jdk.jfr.Timespan" );
+                jfr._constructorAnnotationElement = classAnnotationElement.getConstructor( Class.class, Object.class );
+                jfr._constructorValueDescriptor = Class.forName( "jdk.jfr.ValueDescriptor" ).getConstructor( Class.class, String.class, List.class );
+                jfr._mhCreate = lookup.findStatic( classEventFactory, "create", MethodType.methodType( classEventFactory, List.class, List.class ) );
+                jfr._mhGetEventType = lookup.findVirtual( classEventFactory, "getEventType", MethodType.methodType( classEventType ) );
+                jfr._mhNewEvent = lookup.findVirtual( classEventFactory, "newEvent", MethodType.methodType( classEvent ) );
+                jfr._mhIsEnabled = lookup.findVirtual( classEventType, "isEnabled", MethodType.methodType( boolean.class ) ).asType(
+                        MethodType.methodType( boolean.class, Object.class ) );
+                jfr._mhBegin = lookup.findVirtual( classEvent, "begin", MethodType.methodType( void.class ) );
+                jfr._mhSet = lookup.findVirtual( classEvent, "set", MethodType.methodType( void.class, int.class, Object.class ) );
+                jfr._mhCommit = lookup.findVirtual( classEvent, "commit", MethodType.methodType( void.class ) );
+
+                return jfr;
+            }
+            catch( ReflectiveOperationException | LinkageError | RuntimeException e )
+            {
+                // Java 8 before 8u262, or a JVM without the Flight Recorder
+                return null;
+            }
+        }
+
+        /**
+         * Load a jdk.jfr annotation
+         * @param strClassName The name of the annotation class
+         * @return The annotation class
+         * @throws ClassNotFoundException if the class does not exist
+         */
+        private static Class<? extends Annotation> annotation( String strClassName ) throws ClassNotFoundException
+        {
+            return Class.forName( strClassName ).asSubclass( Annotation.class );
+        }
+
+        /**
+         * Create a jdk.jfr.AnnotationElement
+         * @param classAnnotation The annotation class
+         * @param value The value of the annotation
+         * @return The annotation element
+         * @throws ReflectiveOperationException if the element cannot be created
+         */
+        Object newAnnotation( Class<? extends Annotation> classAnnotation, Object value ) throws ReflectiveOperationException
+        {
+            return _constructorAnnotationElement.newInstance( classAnnotation, value );
+        }
+    }
+}
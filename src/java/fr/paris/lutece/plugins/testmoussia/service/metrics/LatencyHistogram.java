@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in nanoseconds, with logarithmic buckets in the manner of HdrHistogram.
+ * <p>
+ * Each power of two is split into 8 buckets, so a percentile is known within 12.5% of its value, from 1 ns up to the longest duration, with a
+ * fixed array of counters.
+ * </p>
+ */
+public class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS_COUNT = ( Long.SIZE - SUB_BUCKET_BITS ) * SUB_BUCKETS_COUNT;
+
+    private final AtomicLongArray _counts = new AtomicLongArray( BUCKETS_COUNT );
+
+    /**
+     * Record a duration
+     * @param lNanos The duration in nanoseconds
+     */
+    public void record( long lNanos )
+    {
+        _counts.incrementAndGet( getBucketIndex( Math.max( 0L, lNanos ) ) );
+    }
+
+    /**
+     * Returns the duration under which the given percentage of the recorded durations fall
+     * @param dPercentile The percentage, between 0 and 100
+     * @return The highest duration of the bucket of the percentile, in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getPercentile( double dPercentile )
+    {
+        return getPercentile( getCounts( ), dPercentile );
+    }
+
+    /**
+     * Returns a copy of the counters of the buckets. The differences between two copies are the durations recorded in between.
+     * @return The counters
+     */
+    public long [ ] getCounts( )
+    {
+        long [ ] counts = new long [ BUCKETS_COUNT];
+
+        for ( int i = 0; i < BUCKETS_COUNT; i++ )
+        {
+            counts [i] = _counts.get( i );
+        }
+
+        return counts;
+    }
+
+    /**
+     * Returns the duration under which the given percentage of the durations counted by the buckets fall
+     * @param counts The counters of the buckets, as returned by getCounts, or the differences between two of them
+     * @param dPercentile The percentage, between 0 and 100
+     * @return The highest duration of the bucket of the percentile, in nanoseconds, or 0 if nothing was counted
+     */
+    public static long getPercentile( long [ ] counts, double dPercentile )
+    {
+        long lTotal = 0L;
+
+        for ( long lCount : counts )
+        {
+            lTotal += lCount;
+        }
+
+        if ( lTotal == 0L )
+        {
+            return 0L;
+        }
+
+        long lRank = Math.max( 1L, (long) Math.ceil( dPercentile / 100.0 * lTotal ) );
+        long lCumulated = 0L;
+
+        for ( int i = 0; i < counts.length; i++ )
+        {
+            lCumulated += counts [i];
+
+            if ( lCumulated >= lRank )
+            {
+                return getBucketHighestValue( i );
+            }
+        }
+
+        return getBucketHighestValue( BUCKETS_COUNT - 1 );
+    }
+
+    /**
+     * Remove all the recorded durations
+     */
+    public void reset( )
+    {
+        for ( int i = 0; i < BUCKETS_COUNT; i++ )
+        {
+            _counts.set( i, 0L );
+        }
+    }
+
+    /**
+     * Returns the index of the bucket of a value
+     * @param lValue The value
+     * @return The index
+     */
+    private static int getBucketIndex( long lValue )
+    {
+        if ( lValue < SUB_BUCKETS_COUNT )
+        {
+            return (int) lValue;
+        }
+
+        int nExponent = Long.SIZE - 1 - Long.numberOfLeadingZeros( lValue );
+        int nSubBucket = (int) ( lValue >>> ( nExponent - SUB_BUCKET_BITS ) ) & ( SUB_BUCKETS_COUNT - 1 );
+
+        return ( nExponent - SUB_BUCKET_BITS + 1 ) * SUB_BUCKETS_COUNT + nSubBucket;
+    }
+
+    /**
+     * Returns the highest value of a bucket
+     * @param nIndex The index of the bucket
+     * @return The value
+     */
+    private static long getBucketHighestValue( int nIndex )
+    {
+        if ( nIndex < SUB_BUCKETS_COUNT )
+        {
+            return nIndex;
+        }
+
+        int nShift = nIndex / SUB_BUCKETS_COUNT - 1;
+        long lLowestValue = (long) ( SUB_BUCKETS_COUNT + nIndex % SUB_BUCKETS_COUNT ) << nShift;
+
+        return lLowestValue + ( 1L << nShift ) - 1;
+    }
+}
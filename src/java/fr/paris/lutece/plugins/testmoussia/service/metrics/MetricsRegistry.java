@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.metrics;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registry of the metrics of the operations of a component, for instance the user DAO.
+ * <p>
+ * The metrics of each operation are registered in the platform MBean server under
+ * fr.paris.lutece.plugins.testmoussia:type=Metrics,registry=&lt;registry&gt;,operation=&lt;operation&gt;, and all the registries can be written
+ * in the Prometheus text exposition format.
+ * </p>
+ */
+public final class MetricsRegistry
+{
+    private static final String JMX_NAME = "fr.paris.lutece.plugins.testmoussia:type=Metrics,registry=%s,operation=%s";
+    private static final String METRIC_PREFIX = "testmoussia_";
+    private static final double NANOS_PER_SECOND = 1000000000.0;
+    private static final double [ ] QUANTILES = {
+        0.5, 0.9, 0.99, 0.999
+    };
+
+    private static final Map<String, MetricsRegistry> _mapRegistries = new ConcurrentSkipListMap<>( );
+
+    private final String _strName;
+    private final Map<String, OperationMetrics> _mapOperations = new ConcurrentHashMap<>( );
+
+    /**
+     * Constructor
+     * @param strName The name of the registry
+     */
+    private MetricsRegistry( String strName )
+    {
+        _strName = strName;
+    }
+
+    /**
+     * Returns the registry of the given name, created if it does not exist yet
+     * @param strName The name of the registry
+     * @return The registry
+     */
+    public static MetricsRegistry getRegistry( String strName )
+    {
+        return _mapRegistries.computeIfAbsent( strName, MetricsRegistry::new );
+    }
+
+    /**
+     * Returns all the registries, sorted by name
+     * @return The registries
+     */
+    public static Collection<MetricsRegistry> getRegistries( )
+    {
+        return _mapRegistries.values( );
+    }
+
+    /**
+     * Returns the name of the registry
+     * @return The name
+     */
+    public String getName( )
+    {
+        return _strName;
+    }
+
+    /**
+     * Returns the metrics of an operation, created and registered in JMX if they do not exist yet
+     * @param strOperation The name of the operation
+     * @return The metrics
+     */
+    public OperationMetrics getOperation( String strOperation )
+    {
+        OperationMetrics metrics = _mapOperations.get( strOperation );
+
+        if ( metrics == null )
+        {
+            metrics = _mapOperations.computeIfAbsent( strOperation, this::createOperation );
+        }
+
+        return metrics;
+    }
+
+    /**
+     * Returns the metrics of all the operations, sorted by name
+     * @return The metrics
+     */
+    public List<OperationMetrics> getOperations( )
+    {
+        List<OperationMetrics> listOperations = new ArrayList<>( _mapOperations.values( ) );
+        listOperations.sort( Comparator.comparing( OperationMetrics::getName ) );
+
+        return listOperations;
+    }
+
+    /**
+     * Run an operation and record its duration
+     * @param <T> The type of the result
+     * @param strOperation The name of the operation
+     * @param operation The operation
+     * @return The result of the operation
+     */
+    public <T> T time( String strOperation, Supplier<T> operation )
+    {
+        return getOperation( strOperation ).time( operation );
+    }
+
+    /**
+     * Run an operation and record its duration
+     * @param strOperation The name of the operation
+     * @param operation The operation
+     */
+    public void time( String strOperation, Runnable operation )
+    {
+        getOperation( strOperation ).time( operation );
+    }
+
+    /**
+     * Write the metrics of all the registries in the Prometheus text exposition format
+     * @param writer The writer
+     * @throws IOException if the metrics cannot be written
+     */
+    public static void writeText( Writer writer ) throws IOException
+    {
+        for ( MetricsRegistry registry : getRegistries( ) )
+        {
+            registry.writeRegistryText( writer );
+        }
+
+        writer.flush( );
+    }
+
+    /**
+     * Write the metrics of the registry in the Prometheus text exposition format
+     * @param writer The writer
+     * @throws IOException if the metrics cannot be written
+     */
+    private void writeRegistryText( Writer writer ) throws IOException
+    {
+        String strMetric = METRIC_PREFIX + _strName.replaceAll( "[^A-Za-z0-9_]", "_" ).toLowerCase( Locale.ROOT );
+        List<OperationMetrics> listOperations = getOperations( );
+
+        writer.write( "# HELP " + strMetric + "_calls_total Number of calls of the operations of " + _strName + "\n" );
+        writer.write( "# TYPE " + strMetric + "_calls_total counter\n" );
+
+        for ( OperationMetrics metrics : listOperations )
+        {
+            writeSample( writer, strMetric + "_calls_total", metrics.getName( ), null, String.valueOf( metrics.getCount( ) ) );
+        }
+
+        writer.write( "# HELP " + strMetric + "_errors_total Number of calls of the operations of " + _strName + " ended by an exception\n" );
+        writer.write( "# TYPE " + strMetric + "_errors_total counter\n" );
+
+        for ( OperationMetrics metrics : listOperations )
+        {
+            writeSample( writer, strMetric + "_errors_total", metrics.getName( ), null, String.valueOf( metrics.getErrors( ) ) );
+        }
+
+        writer.write( "# HELP " + strMetric + "_duration_seconds Duration of the calls of the operations of " + _strName + "\n" );
+        writer.write( "# TYPE " + strMetric + "_duration_seconds summary\n" );
+
+        for ( OperationMetrics metrics : listOperations )
+        {
+            for ( double dQuantile : QUANTILES )
+            {
+                writeSample( writer, strMetric + "_duration_seconds", metrics.getName( ), "quantile=\"" + dQuantile + "\"",
+                        toSeconds( metrics.getPercentileNanos( dQuantile * 100.0 ) ) );
+            }
+
+            writeSample( writer, strMetric + "_duration_seconds_sum", metrics.getName( ), null, toSeconds( metrics.getTotalNanos( ) ) );
+            writeSample( writer, strMetric + "_duration_seconds_count", metrics.getName( ), null, String.valueOf( metrics.getCount( ) ) );
+        }
+    }
+
+    /**
+     * Write a sample of a metric
+     * @param writer The writer
+     * @param strMetric The name of the metric
+     * @param strOperation The name of the operation
+     * @param strLabels The other labels, or null
+     * @param strValue The value
+     * @throws IOException if the sample cannot be written
+     */
+    private static void writeSample( Writer writer, String strMetric, String strOperation, String strLabels, String strValue ) throws IOException
+    {
+        writer.write( strMetric );
+        writer.write( "{operation=\"" );
+        writer.write( strOperation );
+        writer.write( '"' );
+
+        if ( strLabels != null )
+        {
+            writer.write( ',' );
+            writer.write( strLabels );
+        }
+
+        writer.write( "} " );
+        writer.write( strValue );
+        writer.write( '\n' );
+    }
+
+    /**
+     * Format a duration in seconds
+     * @param lNanos The duration in nanoseconds
+     * @return The formatted duration
+     */
+    private static String toSeconds( long lNanos )
+    {
+        return String.valueOf( lNanos / NANOS_PER_SECOND );
+    }
+
+    /**
+     * Create the metrics of an operation and register them in JMX
+     * @param strOperation The name of the operation
+     * @return The metrics
+     */
+    private OperationMetrics createOperation( String strOperation )
+    {
+        OperationMetrics metrics = new OperationMetrics( strOperation );
+
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer( );
+            ObjectName name = new ObjectName( String.format( JMX_NAME, _strName, strOperation ) );
+
+            // A previous instance of the webapp may have left its MBean
+            if ( server.isRegistered( name ) )
+            {
+                server.unregisterMBean( name );
+            }
+
+            server.registerMBean( metrics, name );
+        }
+        catch( JMException e )
+        {
+            AppLogService.error( "Unable to register the metrics of " + _strName + "." + strOperation + " in JMX : " + e.getMessage( ), e );
+        }
+
+        return metrics;
+    }
+}
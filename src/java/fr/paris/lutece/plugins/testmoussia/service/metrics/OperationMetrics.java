@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Metrics of an operation : number of calls and errors, and histogram of the durations. The counters are lock-free.
+ */
+public class OperationMetrics implements OperationMetricsMBean
+{
+    private static final double NANOS_PER_MICRO = 1000.0;
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    private final String _strName;
+    private final LongAdder _count = new LongAdder( );
+    private final LongAdder _errors = new LongAdder( );
+    private final LongAdder _totalNanos = new LongAdder( );
+    private final LongAccumulator _maxNanos = new LongAccumulator( Math::max, 0L );
+    private final LatencyHistogram _histogram = new LatencyHistogram( );
+
+    /**
+     * Constructor
+     * @param strName The name of the operation
+     */
+    public OperationMetrics( String strName )
+    {
+        _strName = strName;
+    }
+
+    /**
+     * Returns the name of the operation
+     * @return The name
+     */
+    public String getName( )
+    {
+        return _strName;
+    }
+
+    /**
+     * Run the operation and record its duration
+     * @param <T> The type of the result
+     * @param operation The operation
+     * @return The result of the operation
+     */
+    public <T> T time( Supplier<T> operation )
+    {
+        long lStart = System.nanoTime( );
+        boolean bError = true;
+
+        try
+        {
+            T result = operation.get( );
+            bError = false;
+
+            return result;
+        }
+        finally
+        {
+            record( System.nanoTime( ) - lStart, bError );
+        }
+    }
+
+    /**
+     * Run the operation and record its duration
+     * @param operation The operation
+     */
+    public void time( Runnable operation )
+    {
+        time( ( ) -> {
+            operation.run( );
+            return null;
+        } );
+    }
+
+    /**
+     * Record a call
+     * @param lNanos The duration of the call, in nanoseconds
+     * @param bError true if the call ended with an exception
+     */
+    public void record( long lNanos, boolean bError )
+    {
+        _count.increment( );
+        _totalNanos.add( lNanos );
+        _maxNanos.accumulate( lNanos );
+        _histogram.record( lNanos );
+
+        if ( bError )
+        {
+            _errors.increment( );
+        }
+    }
+
+    /**
+     * Returns the duration under which the given percentage of the calls fall
+     * @param dPercentile The percentage
+     * @return The duration in nanoseconds
+     */
+    public long getPercentileNanos( double dPercentile )
+    {
+        return Math.min( _histogram.getPercentile( dPercentile ), _maxNanos.get( ) );
+    }
+
+    /**
+     * Returns a copy of the counters of the histogram of the durations, to compute the percentiles of the calls made between two copies
+     * with {@link LatencyHistogram#getPercentile(long[], double)}
+     * @return The counters
+     */
+    public long [ ] getHistogramCounts( )
+    {
+        return _histogram.getCounts( );
+    }
+
+    /**
+     * Returns the total duration of the calls
+     * @return The duration in nanoseconds
+     */
+    public long getTotalNanos( )
+    {
+        return _totalNanos.sum( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getCount( )
+    {
+        return _count.sum( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getErrors( )
+    {
+        return _errors.sum( );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getTotalMillis( )
+    {
+        return getTotalNanos( ) / NANOS_PER_MILLI;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getMeanMicros( )
+    {
+        long lCount = getCount( );
+
+        return ( lCount == 0L ) ? 0.0 : getTotalNanos( ) / NANOS_PER_MICRO / lCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getMaxMicros( )
+    {
+        return _maxNanos.get( ) / NANOS_PER_MICRO;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getP50Micros( )
+    {
+        return getPercentileNanos( 50.0 ) / NANOS_PER_MICRO;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getP90Micros( )
+    {
+        return getPercentileNanos( 90.0 ) / NANOS_PER_MICRO;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getP99Micros( )
+    {
+        return getPercentileNanos( 99.0 ) / NANOS_PER_MICRO;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getP999Micros( )
+    {
+        return getPercentileNanos( 99.9 ) / NANOS_PER_MICRO;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset( )
+    {
+        _count.reset( );
+        _errors.reset( );
+        _totalNanos.reset( );
+        _maxNanos.reset( );
+        _histogram.reset( );
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.metrics;
+
+/**
+ * JMX view of the metrics of an operation
+ */
+public interface OperationMetricsMBean
+{
+    /**
+     * Returns the number of calls
+     * @return The number of calls
+     */
+    long getCount( );
+
+    /**
+     * Returns the number of calls that ended with an exception
+     * @return The number of errors
+     */
+    long getErrors( );
+
+    /**
+     * Returns the total duration of the calls
+     * @return The duration in milliseconds
+     */
+    double getTotalMillis( );
+
+    /**
+     * Returns the mean duration of the calls
+     * @return The duration in microseconds
+     */
+    double getMeanMicros( );
+
+    /**
+     * Returns the longest duration of a call
+     * @return The duration in microseconds
+     */
+    double getMaxMicros( );
+
+    /**
+     * Returns the median duration of the calls
+     * @return The duration in microseconds
+     */
+    double getP50Micros( );
+
+    /**
+     * Returns the 90th percentile of the durations of the calls
+     * @return The duration in microseconds
+     */
+    double getP90Micros( );
+
+    /**
+     * Returns the 99th percentile of the durations of the calls
+     * @return The duration in microseconds
+     */
+    double getP99Micros( );
+
+    /**
+     * Returns the 99.9th percentile of the durations of the calls
+     * @return The duration in microseconds
+     */
+    double getP999Micros( );
+
+    /**
+     * Reset the metrics
+     */
+    void reset( );
+}
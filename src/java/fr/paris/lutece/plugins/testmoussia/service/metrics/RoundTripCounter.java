@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.metrics;
+
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Counter of the database round trips made through the DAOs of the plugin by the current request, to catch the requests issuing one query
+ * per row. The statements timed by {@link StatementTiming} while a scope is open on the thread are counted in it, and a warning is logged
+ * on the lutece.testmoussia.roundTrips logger when the scope ends over its budget.
+ * <pre>
+ * try ( RoundTripScope scope = RoundTripCounter.begin( "UserJspBean.manageUsers" ) )
+ * {
+ *     ...
+ * }
+ * </pre>
+ * The budget of a scope is given by the testmoussia.roundTrips.budget.&lt;name&gt; property, else by testmoussia.roundTrips.budget.
+ */
+public final class RoundTripCounter
+{
+    /** Budget of the scopes whose round trips are only counted */
+    public static final int NO_BUDGET = -1;
+
+    private static final String PROPERTY_BUDGET = "testmoussia.roundTrips.budget";
+    private static final String PROPERTY_BUDGET_PREFIX = PROPERTY_BUDGET + ".";
+    private static final int DEFAULT_BUDGET = 10;
+    private static final String LOGGER_NAME = "lutece.testmoussia.roundTrips";
+
+    private static final Logger _logger = Logger.getLogger( LOGGER_NAME );
+
+    // Innermost scope of the current thread
+    private static final ThreadLocal<RoundTripScope> _currentScope = new ThreadLocal<>( );
+
+    /**
+     * Private constructor
+     */
+    private RoundTripCounter( )
+    {
+    }
+
+    /**
+     * Open a scope on the current thread, with the budget configured for its name
+     * @param strName The name of the scope, for instance the controller and the view
+     * @return The scope, to close once the request is processed
+     */
+    public static RoundTripScope begin( String strName )
+    {
+        int nDefaultBudget = AppPropertiesService.getPropertyInt( PROPERTY_BUDGET, DEFAULT_BUDGET );
+
+        return begin( strName, AppPropertiesService.getPropertyInt( PROPERTY_BUDGET_PREFIX + strName, nDefaultBudget ) );
+    }
+
+    /**
+     * Open a scope on the current thread. The round trips of a nested scope are also counted in the enclosing scopes.
+     * @param strName The name of the scope
+     * @param nBudget The highest number of round trips made without a warning, or {@link #NO_BUDGET}
+     * @return The scope, to close once the request is processed
+     */
+    public static RoundTripScope begin( String strName, int nBudget )
+    {
+        RoundTripScope scope = new RoundTripScope( strName, nBudget, _currentScope.get( ) );
+        _currentScope.set( scope );
+
+        return scope;
+    }
+
+    /**
+     * Count a round trip in the scopes of the current thread
+     * @param strStatementKey The key of the statement
+     */
+    static void count( String strStatementKey )
+    {
+        for ( RoundTripScope scope = _currentScope.get( ); scope != null; scope = scope.getParent( ) )
+        {
+            scope.add( strStatementKey );
+        }
+    }
+
+    /**
+     * Close a scope, and log a warning if its round trips exceed its budget
+     * @param scope The scope
+     */
+    static void end( RoundTripScope scope )
+    {
+        for ( RoundTripScope current = _currentScope.get( ); current != null; current = current.getParent( ) )
+        {
+            if ( current == scope )
+            {
+                if ( scope.getParent( ) != null )
+                {
+                    _currentScope.set( scope.getParent( ) );
+                }
+                else
+                {
+                    _currentScope.remove( );
+                }
+
+                break;
+            }
+        }
+
+        if ( scope.isOverBudget( ) )
+        {
+            _logger.warn( getOverBudgetMessage( scope ) );
+        }
+    }
+
+    /**
+     * Describe the round trips of a scope over its budget
+     * @param scope The scope
+     * @return The message, with the number of executions of each statement
+     */
+    public static String getOverBudgetMessage( RoundTripScope scope )
+    {
+        StringBuilder sbMessage = new StringBuilder( );
+        sbMessage.append( scope.getName( ) ).append( " made " ).append( scope.getCount( ) ).append( " database round trips, over its budget of " )
+                .append( scope.getBudget( ) ).append( " :" );
+
+        for ( Map.Entry<String, Integer> statement : scope.getStatementCounts( ).entrySet( ) )
+        {
+            sbMessage.append( ' ' ).append( statement.getKey( ) ).append( " x " ).append( statement.getValue( ) );
+        }
+
+        return sbMessage.toString( );
+    }
+}
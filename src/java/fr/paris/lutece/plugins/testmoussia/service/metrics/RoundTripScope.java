@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.metrics;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Database round trips of a request, opened by {@link RoundTripCounter#begin(String)} and ended by closing it
+ */
+public final class RoundTripScope implements AutoCloseable
+{
+    private final String _strName;
+    private final int _nBudget;
+    private final RoundTripScope _parent;
+    private final Map<String, Integer> _mapStatementCounts = new HashMap<>( );
+    private int _nCount;
+    private boolean _bClosed;
+
+    /**
+     * Constructor
+     * @param strName The name of the scope
+     * @param nBudget The budget of the scope, or {@link RoundTripCounter#NO_BUDGET}
+     * @param parent The enclosing scope, or null
+     */
+    RoundTripScope( String strName, int nBudget, RoundTripScope parent )
+    {
+        _strName = strName;
+        _nBudget = nBudget;
+        _parent = parent;
+    }
+
+    /**
+     * Returns the name of the scope
+     * @return The name
+     */
+    public String getName( )
+    {
+        return _strName;
+    }
+
+    /**
+     * Returns the highest number of round trips made without a warning
+     * @return The budget, or {@link RoundTripCounter#NO_BUDGET}
+     */
+    public int getBudget( )
+    {
+        return _nBudget;
+    }
+
+    /**
+     * Returns the number of round trips made in the scope
+     * @return The number of round trips
+     */
+    public int getCount( )
+    {
+        return _nCount;
+    }
+
+    /**
+     * Returns true if the round trips exceed the budget of the scope
+     * @return true if the scope is over budget
+     */
+    public boolean isOverBudget( )
+    {
+        return _nBudget != RoundTripCounter.NO_BUDGET && _nCount > _nBudget;
+    }
+
+    /**
+     * Returns the number of executions of each statement
+     * @return The executions by statement key, the most executed first
+     */
+    public Map<String, Integer> getStatementCounts( )
+    {
+        Map<String, Integer> mapCounts = new LinkedHashMap<>( );
+        _mapStatementCounts.entrySet( ).stream( ).sorted( Map.Entry.<String, Integer> comparingByValue( Comparator.reverseOrder( ) ) )
+                .forEach( entry -> mapCounts.put( entry.getKey( ), entry.getValue( ) ) );
+
+        return Collections.unmodifiableMap( mapCounts );
+    }
+
+    /**
+     * Close the scope
+     */
+    @Override
+    public void close( )
+    {
+        if ( !_bClosed )
+        {
+            _bClosed = true;
+            RoundTripCounter.end( this );
+        }
+    }
+
+    /**
+     * Count a round trip
+     * @param strStatementKey The key of the statement
+     */
+    void add( String strStatementKey )
+    {
+        _nCount++;
+        _mapStatementCounts.merge( strStatementKey, 1, Integer::sum );
+    }
+
+    /**
+     * Returns the enclosing scope
+     * @return The scope, or null
+     */
+    RoundTripScope getParent( )
+    {
+        return _parent;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.metrics;
+
+import java.util.Date;
+
+/**
+ * Execution of a SQL statement that exceeded the threshold of the slow statements log
+ */
+public class SlowStatement
+{
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    private final String _strKey;
+    private final String _strSql;
+    private final int _nParametersCount;
+    private final int _nRowsCount;
+    private final long _lExecutionNanos;
+    private final long _lFetchNanos;
+    private final Date _date;
+    private final String _strThreadName;
+
+    /**
+     * Constructor
+     * @param strKey The key of the statement
+     * @param strSql The SQL of the statement
+     * @param nParametersCount The number of bound parameters
+     * @param nRowsCount The number of rows read or written, or -1 if it is not known
+     * @param lExecutionNanos The execution time, in nanoseconds
+     * @param lFetchNanos The time spent reading the rows, in nanoseconds
+     */
+    public SlowStatement( String strKey, String strSql, int nParametersCount, int nRowsCount, long lExecutionNanos, long lFetchNanos )
+    {
+        _strKey = strKey;
+        _strSql = strSql;
+        _nParametersCount = nParametersCount;
+        _nRowsCount = nRowsCount;
+        _lExecutionNanos = lExecutionNanos;
+        _lFetchNanos = lFetchNanos;
+        _date = new Date( );
+        _strThreadName = Thread.currentThread( ).getName( );
+    }
+
+    /**
+     * Returns the key of the statement
+     * @return The key
+     */
+    public String getKey( )
+    {
+        return _strKey;
+    }
+
+    /**
+     * Returns the SQL of the statement
+     * @return The SQL
+     */
+    public String getSql( )
+    {
+        return _strSql;
+    }
+
+    /**
+     * Returns the number of bound parameters
+     * @return The number of parameters
+     */
+    public int getParametersCount( )
+    {
+        return _nParametersCount;
+    }
+
+    /**
+     * Returns the number of rows read or written
+     * @return The number of rows, or -1 if it is not known
+     */
+    public int getRowsCount( )
+    {
+        return _nRowsCount;
+    }
+
+    /**
+     * Returns the execution time
+     * @return The time in milliseconds
+     */
+    public double getExecutionMillis( )
+    {
+        return _lExecutionNanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Returns the time spent reading the rows
+     * @return The time in milliseconds
+     */
+    public double getFetchMillis( )
+    {
+        return _lFetchNanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Returns the total time of the statement
+     * @return The time in milliseconds
+     */
+    public double getTotalMillis( )
+    {
+        return ( _lExecutionNanos + _lFetchNanos ) / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Returns the date of the end of the statement
+     * @return The date
+     */
+    public Date getDate( )
+    {
+        return new Date( _date.getTime( ) );
+    }
+
+    /**
+     * Returns the name of the thread that ran the statement
+     * @return The name of the thread
+     */
+    public String getThreadName( )
+    {
+        return _strThreadName;
+    }
+}
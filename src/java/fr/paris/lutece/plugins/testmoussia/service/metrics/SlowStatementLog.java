@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.metrics;
+
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Log of the SQL statements whose execution and fetch times exceed a threshold. The last statements are kept in a bounded ring buffer : the
+ * oldest ones are overwritten.
+ */
+public final class SlowStatementLog
+{
+    private static final String PROPERTY_THRESHOLD_MILLIS = "testmoussia.slowStatements.thresholdMillis";
+    private static final String PROPERTY_BUFFER_SIZE = "testmoussia.slowStatements.bufferSize";
+    private static final int DEFAULT_THRESHOLD_MILLIS = 100;
+    private static final int DEFAULT_BUFFER_SIZE = 200;
+
+    private static volatile SlowStatementLog _singleton;
+
+    private final long _lThresholdNanos;
+    private final AtomicReferenceArray<SlowStatement> _buffer;
+    private final AtomicLong _lRecordedCount = new AtomicLong( );
+
+    /**
+     * Constructor
+     * @param nThresholdMillis The threshold, in milliseconds
+     * @param nBufferSize The number of statements kept
+     */
+    SlowStatementLog( int nThresholdMillis, int nBufferSize )
+    {
+        _lThresholdNanos = TimeUnit.MILLISECONDS.toNanos( Math.max( 0, nThresholdMillis ) );
+        _buffer = new AtomicReferenceArray<>( Math.max( 1, nBufferSize ) );
+    }
+
+    /**
+     * Returns the unique instance of the log, configured by the plugin properties
+     * @return The instance
+     */
+    public static SlowStatementLog getInstance( )
+    {
+        SlowStatementLog log = _singleton;
+
+        if ( log == null )
+        {
+            synchronized( SlowStatementLog.class )
+            {
+                if ( _singleton == null )
+                {
+                    _singleton = new SlowStatementLog( AppPropertiesService.getPropertyInt( PROPERTY_THRESHOLD_MILLIS, DEFAULT_THRESHOLD_MILLIS ),
+                            AppPropertiesService.getPropertyInt( PROPERTY_BUFFER_SIZE, DEFAULT_BUFFER_SIZE ) );
+                }
+
+                log = _singleton;
+            }
+        }
+
+        return log;
+    }
+
+    /**
+     * Returns the threshold of the log
+     * @return The threshold, in milliseconds
+     */
+    public long getThresholdMillis( )
+    {
+        return TimeUnit.NANOSECONDS.toMillis( _lThresholdNanos );
+    }
+
+    /**
+     * Returns the number of statements the log can hold
+     * @return The size of the buffer
+     */
+    public int getBufferSize( )
+    {
+        return _buffer.length( );
+    }
+
+    /**
+     * Returns the number of slow statements recorded since the start, including the overwritten ones
+     * @return The number of statements
+     */
+    public long getRecordedCount( )
+    {
+        return _lRecordedCount.get( );
+    }
+
+    /**
+     * Record a statement if its total time exceeds the threshold
+     * @param strSql The SQL of the statement
+     * @param nParametersCount The number of bound parameters
+     * @param nRowsCount The number of rows read or written, or -1 if it is not known
+     * @param lExecutionNanos The execution time, in nanoseconds
+     * @param lFetchNanos The time spent reading the rows, in nanoseconds
+     */
+    public void record( String strSql, int nParametersCount, int nRowsCount, long lExecutionNanos, long lFetchNanos )
+    {
+        if ( lExecutionNanos + lFetchNanos >= _lThresholdNanos )
+        {
+            long lIndex = _lRecordedCount.getAndIncrement( );
+            SlowStatement statement = new SlowStatement( StatementTiming.getStatementKey( strSql ), strSql, nParametersCount, nRowsCount,
+                    lExecutionNanos, lFetchNanos );
+            _buffer.set( (int) ( lIndex % _buffer.length( ) ), statement );
+        }
+    }
+
+    /**
+     * Returns the statements of the log, the latest first
+     * @return The statements
+     */
+    public List<SlowStatement> getStatements( )
+    {
+        int nBufferSize = _buffer.length( );
+        long lRecordedCount = _lRecordedCount.get( );
+        List<SlowStatement> listStatements = new ArrayList<>( nBufferSize );
+
+        // Walk the ring backwards from the last written slot
+        for ( long lIndex = lRecordedCount - 1; lIndex >= 0 && lIndex >= lRecordedCount - nBufferSize; lIndex-- )
+        {
+            SlowStatement statement = _buffer.get( (int) ( lIndex % nBufferSize ) );
+
+            if ( statement != null )
+            {
+                listStatements.add( statement );
+            }
+        }
+
+        return listStatements;
+    }
+
+    /**
+     * Remove the statements of the log
+     */
+    public void clear( )
+    {
+        for ( int i = 0; i < _buffer.length( ); i++ )
+        {
+            _buffer.set( i, null );
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.metrics;
+
+import fr.paris.lutece.plugins.testmoussia.service.tracing.Span;
+import fr.paris.lutece.plugins.testmoussia.service.tracing.Tracer;
+import fr.paris.lutece.portal.service.util.AppLogService;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Timing of the execution of a SQL statement, then of the reading of its rows. The statement is given to the slow statements log once
+ * ended. The timing is meant to be used in a try-with-resources block, so that a statement failing before its end is timed too :
+ * <pre>
+ * try ( StatementTiming timing = StatementTiming.start( SQL_QUERY_SELECT, 1 ) )
+ * {
+ *     daoUtil.executeQuery( );
+ *     timing.executed( );
+ *     while ( daoUtil.next( ) ) { ... timing.row( ); }
+ *     timing.end( );
+ * }
+ * </pre>
+ * The statements are identified by their DAO and the name of the constant holding their SQL, for instance UserDAO.SQL_QUERY_SELECT, once
+ * the DAO class is registered. When the request is traced, the statement is also a span named after its key, and it is counted in the
+ * round trips of the request.
+ */
+public final class StatementTiming implements AutoCloseable
+{
+    private static final String PREFIX_SQL_CONSTANT = "SQL_";
+
+    // Attributes of the spans
+    private static final String ATTRIBUTE_STATEMENT = "db.statement";
+    private static final String ATTRIBUTE_ROWS_COUNT = "db.rows";
+
+    // Keys of the SQL constants of the registered DAOs, by SQL
+    private static final Map<String, String> _mapStatementKeys = new ConcurrentHashMap<>( );
+
+    private final String _strSql;
+    private final int _nParametersCount;
+    private final long _lStart;
+    private final Span _span;
+    private long _lExecuted;
+    private int _nRowsCount;
+    private boolean _bEnded;
+
+    /**
+     * Constructor
+     * @param strSql The SQL of the statement
+     * @param nParametersCount The number of bound parameters
+     */
+    private StatementTiming( String strSql, int nParametersCount )
+    {
+        _strSql = strSql;
+        _nParametersCount = nParametersCount;
+        String strKey = getStatementKey( strSql );
+        _span = Tracer.startSpan( strKey );
+        RoundTripCounter.count( strKey );
+        _lStart = System.nanoTime( );
+    }
+
+    /**
+     * Register the static String constants of a DAO whose name starts with SQL_, so that their names prefixed by the name of the DAO are used
+     * as the keys of their statements
+     * @param daoClass The class of the DAO
+     */
+    public static void registerStatements( Class<?> daoClass )
+    {
+        for ( Field field : daoClass.getDeclaredFields( ) )
+        {
+            int nModifiers = field.getModifiers( );
+
+            if ( Modifier.isStatic( nModifiers ) && Modifier.isFinal( nModifiers ) && ( field.getType( ) == String.class )
+                    && field.getName( ).startsWith( PREFIX_SQL_CONSTANT ) )
+            {
+                try
+                {
+                    field.setAccessible( true );
+                    _mapStatementKeys.put( (String) field.get( null ), daoClass.getSimpleName( ) + "." + field.getName( ) );
+                }
+                catch( IllegalAccessException | SecurityException e )
+                {
+                    AppLogService.error( "Unable to read the statement " + field.getName( ) + " of " + daoClass.getName( ), e );
+                }
+            }
+        }
+    }
+
+    /**
+     * Start the timing of a statement, before its execution
+     * @param strSql The SQL of the statement
+     * @param nParametersCount The number of bound parameters
+     * @return The timing
+     */
+    public static StatementTiming start( String strSql, int nParametersCount )
+    {
+        return new StatementTiming( strSql, nParametersCount );
+    }
+
+    /**
+     * Returns the key of a statement
+     * @param strSql The SQL of the statement
+     * @return The name of the DAO and of the constant holding the SQL, or the SQL itself if its DAO is not registered
+     */
+    public static String getStatementKey( String strSql )
+    {
+        return _mapStatementKeys.getOrDefault( strSql, strSql );
+    }
+
+    /**
+     * Mark the end of the execution of the statement : the time until the end of the timing is the fetch time
+     */
+    public void executed( )
+    {
+        _lExecuted = System.nanoTime( );
+    }
+
+    /**
+     * Count a row read
+     */
+    public void row( )
+    {
+        _nRowsCount++;
+    }
+
+    /**
+     * End the timing with the counted rows
+     */
+    public void end( )
+    {
+        end( _nRowsCount );
+    }
+
+    /**
+     * End the timing. Only the first end of the timing is recorded.
+     * @param nRowsCount The number of rows read or written, or -1 if it is not known
+     */
+    public void end( int nRowsCount )
+    {
+        if ( _bEnded )
+        {
+            return;
+        }
+
+        _bEnded = true;
+
+        long lEnd = System.nanoTime( );
+        long lExecuted = ( _lExecuted == 0L ) ? lEnd : _lExecuted;
+
+        SlowStatementLog.getInstance( ).record( _strSql, _nParametersCount, nRowsCount, lExecuted - _lStart, lEnd - lExecuted );
+        _span.setAttribute( ATTRIBUTE_STATEMENT, _strSql ).setAttribute( ATTRIBUTE_ROWS_COUNT, nRowsCount ).close( );
+    }
+
+    /**
+     * End the timing with the counted rows, if it was not ended yet, for instance because the statement failed
+     */
+    @Override
+    public void close( )
+    {
+        end( );
+    }
+}
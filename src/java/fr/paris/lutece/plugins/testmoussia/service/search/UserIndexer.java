@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.search;
+
+import fr.paris.lutece.plugins.testmoussia.business.User;
+import fr.paris.lutece.plugins.testmoussia.business.UserHome;
+import fr.paris.lutece.portal.business.indexeraction.IndexerAction;
+import fr.paris.lutece.portal.business.page.Page;
+import fr.paris.lutece.portal.service.search.IndexationService;
+import fr.paris.lutece.portal.service.search.SearchIndexer;
+import fr.paris.lutece.portal.service.search.SearchItem;
+import fr.paris.lutece.portal.service.util.AppPathService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.util.url.UrlItem;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+
+/**
+ * Indexer of the testmoussia users in the portal search index.
+ * The full indexation streams the users table; the incremental indexation only processes
+ * the users created, modified or removed through UserHome.
+ */
+public class UserIndexer implements SearchIndexer
+{
+    public static final String INDEXER_NAME = "TestmoussiaUserIndexer";
+    public static final String INDEXER_TYPE = "testmoussia_user";
+
+    private static final String INDEXER_DESCRIPTION = "Indexer service for the testmoussia users";
+    private static final String INDEXER_VERSION = "1.0.0";
+    private static final String SHORT_NAME = "tmu";
+    private static final String UID_SEPARATOR = "_";
+    private static final String RANGE_SEPARATOR = "..";
+
+    // Properties
+    private static final String PROPERTY_INDEXER_ENABLE = "testmoussia.indexer.enable";
+
+    // Parameters
+    private static final String PARAMETER_PAGE = "page";
+    private static final String PARAMETER_VIEW = "view";
+    private static final String PARAMETER_ID_USER = "id";
+    private static final String XPAGE_USER = "user";
+    private static final String VIEW_MODIFY_USER = "modifyUser";
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public void indexDocuments( ) throws IOException
+    {
+        try
+        {
+            UserHome.forEachUser( user -> {
+                try
+                {
+                    IndexationService.write( getDocument( user ) );
+                }
+                catch( IOException e )
+                {
+                    throw new UncheckedIOException( e );
+                }
+            }, true );
+        }
+        catch( UncheckedIOException e )
+        {
+            throw e.getCause( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<Document> getDocuments( String strIdDocument )
+    {
+        String strIds = StringUtils.substringBefore( strIdDocument, UID_SEPARATOR );
+
+        if ( strIds.contains( RANGE_SEPARATOR ) )
+        {
+            int nIdMin = NumberUtils.toInt( StringUtils.substringBefore( strIds, RANGE_SEPARATOR ), -1 );
+            int nIdMax = NumberUtils.toInt( StringUtils.substringAfter( strIds, RANGE_SEPARATOR ), -1 );
+            List<Document> listDocuments = new ArrayList<>( );
+
+            if ( ( nIdMin >= 0 ) && ( nIdMax >= nIdMin ) )
+            {
+                UserHome.forEachUserInRange( nIdMin, nIdMax, user -> listDocuments.add( getDocument( user ) ), true );
+            }
+
+            return listDocuments;
+        }
+
+        int nIdUser = NumberUtils.toInt( strIds, -1 );
+        User user = ( nIdUser >= 0 ) ? UserHome.findByPrimaryKey( nIdUser ) : null;
+
+        if ( user == null )
+        {
+            return Collections.emptyList( );
+        }
+
+        List<Document> listDocuments = new ArrayList<>( 1 );
+        listDocuments.add( getDocument( user ) );
+
+        return listDocuments;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public String getName( )
+    {
+        return INDEXER_NAME;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public String getVersion( )
+    {
+        return INDEXER_VERSION;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public String getDescription( )
+    {
+        return INDEXER_DESCRIPTION;
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public boolean isEnable( )
+    {
+        return AppPropertiesService.getPropertyBoolean( PROPERTY_INDEXER_ENABLE, false );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public List<String> getListType( )
+    {
+        return Collections.singletonList( INDEXER_TYPE );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public String getSpecificSearchAppUrl( )
+    {
+        UrlItem url = new UrlItem( AppPathService.getPortalUrl( ) );
+        url.addParameter( PARAMETER_PAGE, XPAGE_USER );
+
+        return url.getUrl( );
+    }
+
+    /**
+     * Register an incremental indexation action for a user
+     * @param nIdUser The user id
+     * @param nIdTask The task : one of the IndexerAction.TASK_* constants
+     */
+    public static void addIndexerAction( int nIdUser, int nIdTask )
+    {
+        if ( AppPropertiesService.getPropertyBoolean( PROPERTY_INDEXER_ENABLE, false ) )
+        {
+            IndexationService.addIndexerAction( getUid( nIdUser ), INDEXER_NAME, nIdTask );
+        }
+    }
+
+    /**
+     * Register one incremental indexation action for the users whose id is in a range, such as the users created by a batch.
+     * The action updates the documents by their uid, so a user of the range that has its own action is not indexed twice.
+     * @param nIdMin The lowest id, included
+     * @param nIdMax The highest id, included
+     */
+    public static void addIndexerActionForRange( int nIdMin, int nIdMax )
+    {
+        if ( AppPropertiesService.getPropertyBoolean( PROPERTY_INDEXER_ENABLE, false ) )
+        {
+            IndexationService.addIndexerAction( nIdMin + RANGE_SEPARATOR + nIdMax + UID_SEPARATOR + SHORT_NAME, INDEXER_NAME, IndexerAction.TASK_MODIFY );
+        }
+    }
+
+    /**
+     * Build the Lucene document of a user
+     * @param user The user
+     * @return The document
+     */
+    private static Document getDocument( User user )
+    {
+        String strNom = StringUtils.defaultString( user.getNom( ) );
+
+        UrlItem url = new UrlItem( AppPathService.getPortalUrl( ) );
+        url.addParameter( PARAMETER_PAGE, XPAGE_USER );
+        url.addParameter( PARAMETER_VIEW, VIEW_MODIFY_USER );
+        url.addParameter( PARAMETER_ID_USER, user.getId( ) );
+
+        Document doc = new Document( );
+        doc.add( new StringField( SearchItem.FIELD_UID, getUid( user.getId( ) ), Field.Store.YES ) );
+        doc.add( new TextField( SearchItem.FIELD_CONTENTS, strNom, Field.Store.NO ) );
+        doc.add( new StringField( SearchItem.FIELD_TITLE, strNom, Field.Store.YES ) );
+        doc.add( new StringField( SearchItem.FIELD_URL, url.getUrl( ), Field.Store.YES ) );
+        doc.add( new StringField( SearchItem.FIELD_TYPE, INDEXER_TYPE, Field.Store.YES ) );
+        doc.add( new StringField( SearchItem.FIELD_ROLE, Page.ROLE_NONE, Field.Store.YES ) );
+
+        return doc;
+    }
+
+    /**
+     * Build the unique id of the document of a user
+     * @param nIdUser The user id
+     * @return The document unique id
+     */
+    private static String getUid( int nIdUser )
+    {
+        return nIdUser + UID_SEPARATOR + SHORT_NAME;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.tracing;
+
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * Exporter appending the spans to a file, one JSON object per line. The file is given by the testmoussia.tracing.file property (default
+ * java.io.tmpdir/testmoussia_spans.ndjson). Each span holds the name of the host, so the files of several nodes can be merged and joined
+ * by trace id.
+ */
+public class FileSpanExporter implements ISpanExporter
+{
+    private static final String PROPERTY_FILE = "testmoussia.tracing.file";
+    private static final String DEFAULT_FILE_NAME = "testmoussia_spans.ndjson";
+
+    // Fields of the JSON objects
+    private static final String FIELD_TRACE_ID = "traceId";
+    private static final String FIELD_SPAN_ID = "spanId";
+    private static final String FIELD_PARENT_SPAN_ID = "parentSpanId";
+    private static final String FIELD_NAME = "name";
+    private static final String FIELD_HOST = "host";
+    private static final String FIELD_START_MICROS = "startEpochMicros";
+    private static final String FIELD_DURATION_MICROS = "durationMicros";
+    private static final String FIELD_ATTRIBUTES = "attributes";
+
+    private static final ObjectMapper _mapper = new ObjectMapper( );
+
+    private final File _file;
+    private final String _strHost;
+    private Writer _writer;
+
+    /**
+     * Constructor. The file is given by the testmoussia.tracing.file property.
+     */
+    public FileSpanExporter( )
+    {
+        this( new File( AppPropertiesService.getProperty( PROPERTY_FILE,
+                new File( System.getProperty( "java.io.tmpdir" ), DEFAULT_FILE_NAME ).getPath( ) ) ) );
+    }
+
+    /**
+     * Constructor
+     * @param file The file the spans are appended to
+     */
+    public FileSpanExporter( File file )
+    {
+        _file = file;
+        _strHost = getHostName( );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public synchronized void export( Span span )
+    {
+        ObjectNode node = _mapper.createObjectNode( );
+        node.put( FIELD_TRACE_ID, span.getTraceId( ) );
+        node.put( FIELD_SPAN_ID, span.getSpanId( ) );
+        node.put( FIELD_PARENT_SPAN_ID, span.getParentSpanId( ) );
+        node.put( FIELD_NAME, span.getName( ) );
+        node.put( FIELD_HOST, _strHost );
+        node.put( FIELD_START_MICROS, span.getStartEpochMicros( ) );
+        node.put( FIELD_DURATION_MICROS, span.getDurationNanos( ) / 1000L );
+
+        ObjectNode attributes = node.putObject( FIELD_ATTRIBUTES );
+
+        for ( Map.Entry<String, Object> attribute : span.getAttributes( ).entrySet( ) )
+        {
+            attributes.putPOJO( attribute.getKey( ), attribute.getValue( ) );
+        }
+
+        try
+        {
+            if ( _writer == null )
+            {
+                _writer = Files.newBufferedWriter( _file.toPath( ), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND );
+            }
+
+            _writer.write( _mapper.writeValueAsString( node ) );
+            _writer.write( '\n' );
+            _writer.flush( );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Unable to write the span " + span.getName( ) + " to " + _file, e );
+        }
+    }
+
+    /**
+     * Returns the name of the host
+     * @return The name, or unknown if it cannot be resolved
+     */
+    private static String getHostName( )
+    {
+        try
+        {
+            return InetAddress.getLocalHost( ).getHostName( );
+        }
+        catch( UnknownHostException e )
+        {
+            return "unknown";
+        }
+    }
+}
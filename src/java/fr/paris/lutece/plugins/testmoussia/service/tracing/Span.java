@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.tracing;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Timed step of a trace : the processing of a request, a call of UserHome or a SQL statement. A span is ended by closing it, and is
+ * meant to be used in a try-with-resources block when its attributes are set :
+ * <pre>
+ * try ( Span span = Tracer.startSpan( SPAN_FIND_BY_PRIMARY_KEY ) )
+ * {
+ *     ...
+ *     span.setAttribute( ATTRIBUTE_CACHE_HIT, bHit );
+ * }
+ * </pre>
+ * Otherwise the operation is given to {@link Tracer#inSpan(String, java.util.function.Supplier)}.
+ * When the request is not traced, the span is {@link #NOOP}, which records nothing.
+ */
+public final class Span implements AutoCloseable
+{
+    /** Span of the requests that are not traced */
+    public static final Span NOOP = new Span( null, null, null, null, null );
+
+    private final String _strTraceId;
+    private final String _strSpanId;
+    private final String _strParentSpanId;
+    private final String _strName;
+    private final Span _parent;
+    private final long _lStartEpochMicros;
+    private final long _lStartNanos;
+    private final Map<String, Object> _mapAttributes;
+    private long _lDurationNanos = -1L;
+
+    /**
+     * Constructor
+     * @param strTraceId The id of the trace
+     * @param strSpanId The id of the span
+     * @param strParentSpanId The id of the parent span, or null for the root span of the trace
+     * @param strName The name of the span
+     * @param parent The parent span in this JVM, or null if the span is the first span of the request
+     */
+    Span( String strTraceId, String strSpanId, String strParentSpanId, String strName, Span parent )
+    {
+        _strTraceId = strTraceId;
+        _strSpanId = strSpanId;
+        _strParentSpanId = strParentSpanId;
+        _strName = strName;
+        _parent = parent;
+        _lStartEpochMicros = System.currentTimeMillis( ) * 1000L;
+        _lStartNanos = System.nanoTime( );
+        _mapAttributes = ( strSpanId != null ) ? new LinkedHashMap<>( ) : Collections.emptyMap( );
+    }
+
+    /**
+     * Returns true if the span is recorded
+     * @return false for {@link #NOOP}
+     */
+    public boolean isRecording( )
+    {
+        return _strSpanId != null;
+    }
+
+    /**
+     * Returns the id of the trace, 32 hexadecimal digits
+     * @return The id of the trace
+     */
+    public String getTraceId( )
+    {
+        return _strTraceId;
+    }
+
+    /**
+     * Returns the id of the span, 16 hexadecimal digits
+     * @return The id of the span
+     */
+    public String getSpanId( )
+    {
+        return _strSpanId;
+    }
+
+    /**
+     * Returns the id of the parent span, which may have been started by another node
+     * @return The id of the parent span, or null for the root span of the trace
+     */
+    public String getParentSpanId( )
+    {
+        return _strParentSpanId;
+    }
+
+    /**
+     * Returns the name of the span
+     * @return The name
+     */
+    public String getName( )
+    {
+        return _strName;
+    }
+
+    /**
+     * Returns the start time of the span
+     * @return The number of microseconds since the epoch
+     */
+    public long getStartEpochMicros( )
+    {
+        return _lStartEpochMicros;
+    }
+
+    /**
+     * Returns the duration of the span
+     * @return The duration in nanoseconds, or -1 if the span is not ended
+     */
+    public long getDurationNanos( )
+    {
+        return _lDurationNanos;
+    }
+
+    /**
+     * Returns the attributes of the span
+     * @return The attributes, in the order they were set
+     */
+    public Map<String, Object> getAttributes( )
+    {
+        return Collections.unmodifiableMap( _mapAttributes );
+    }
+
+    /**
+     * Set an attribute of the span
+     * @param strName The name of the attribute
+     * @param value The value
+     * @return The span
+     */
+    public Span setAttribute( String strName, Object value )
+    {
+        if ( isRecording( ) )
+        {
+            _mapAttributes.put( strName, value );
+        }
+
+        return this;
+    }
+
+    /**
+     * End the span and export it
+     */
+    @Override
+    public void close( )
+    {
+        if ( isRecording( ) && _lDurationNanos < 0L )
+        {
+            _lDurationNanos = System.nanoTime( ) - _lStartNanos;
+            Tracer.end( this );
+        }
+    }
+
+    /**
+     * Returns the parent span in this JVM
+     * @return The parent span, or null
+     */
+    Span getParent( )
+    {
+        return _parent;
+    }
+}
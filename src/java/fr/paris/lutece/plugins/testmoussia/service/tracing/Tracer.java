@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.tracing;
+
+import fr.paris.lutece.portal.service.spring.SpringContextService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tracing of the requests of the plugin, from the controllers to the SQL statements.
+ * <p>
+ * A trace is started by the view or action processing a request, and continues the trace of the caller if the request carries a W3C
+ * traceparent header, so the spans of several nodes can be joined by their trace id. The calls of UserHome and the SQL statements made
+ * while a request is traced are its child spans ; outside of a traced request, no span is recorded. The current span is held by the
+ * thread processing the request.
+ * </p>
+ * <p>
+ * The ended spans are given to the exporter, the testmoussia.spanExporter bean, once testmoussia.tracing.enabled is true.
+ * </p>
+ */
+public final class Tracer
+{
+    /** Name of the header carrying the context of the trace */
+    public static final String HEADER_TRACEPARENT = "traceparent";
+
+    private static final String PROPERTY_TRACING_ENABLED = "testmoussia.tracing.enabled";
+    private static final String BEAN_SPAN_EXPORTER = "testmoussia.spanExporter";
+    private static final String TRACEPARENT_VERSION = "00";
+    private static final String TRACEPARENT_FORMAT = TRACEPARENT_VERSION + "-%s-%s-01";
+    private static final Pattern PATTERN_TRACEPARENT = Pattern.compile( "([0-9a-f]{2})-([0-9a-f]{32})-([0-9a-f]{16})-([0-9a-f]{2})" );
+    private static final String INVALID_TRACE_ID = "00000000000000000000000000000000";
+    private static final String INVALID_SPAN_ID = "0000000000000000";
+    private static final int FLAG_SAMPLED = 0x01;
+
+    // Span of the request processed by the current thread
+    private static final ThreadLocal<Span> _currentSpan = new ThreadLocal<>( );
+
+    private static volatile ISpanExporter _exporter;
+    private static volatile boolean _bInitialized;
+
+    /**
+     * Private constructor
+     */
+    private Tracer( )
+    {
+    }
+
+    /**
+     * Set the exporter of the spans, instead of the testmoussia.spanExporter bean
+     * @param exporter The exporter, or null to disable the tracing
+     */
+    public static synchronized void setExporter( ISpanExporter exporter )
+    {
+        _exporter = exporter;
+        _bInitialized = true;
+    }
+
+    /**
+     * Returns true if the spans are exported
+     * @return true if the tracing is enabled
+     */
+    public static boolean isEnabled( )
+    {
+        return getExporter( ) != null;
+    }
+
+    /**
+     * Start the span of a request, which becomes the current span of the thread. The span continues the trace of the traceparent header
+     * of the request, if any.
+     * @param strName The name of the span
+     * @param strTraceParent The traceparent header of the request, or null
+     * @return The span, or {@link Span#NOOP} if the tracing is disabled or if the caller asked not to sample the trace
+     */
+    public static Span startRequestSpan( String strName, String strTraceParent )
+    {
+        if ( getExporter( ) == null )
+        {
+            return Span.NOOP;
+        }
+
+        String strTraceId = null;
+        String strParentSpanId = null;
+
+        if ( strTraceParent != null )
+        {
+            Matcher matcher = PATTERN_TRACEPARENT.matcher( strTraceParent.trim( ) );
+
+            if ( matcher.matches( ) && !"ff".equals( matcher.group( 1 ) ) && !INVALID_TRACE_ID.equals( matcher.group( 2 ) )
+                    && !INVALID_SPAN_ID.equals( matcher.group( 3 ) ) )
+            {
+                if ( ( Integer.parseInt( matcher.group( 4 ), 16 ) & FLAG_SAMPLED ) == 0 )
+                {
+                    return Span.NOOP;
+                }
+
+                strTraceId = matcher.group( 2 );
+                strParentSpanId = matcher.group( 3 );
+            }
+        }
+
+        if ( strTraceId == null )
+        {
+            strTraceId = newId( 2 );
+        }
+
+        return start( strTraceId, strParentSpanId, strName, _currentSpan.get( ) );
+    }
+
+    /**
+     * Start a child span of the current span of the thread, which becomes the current span
+     * @param strName The name of the span
+     * @return The span, or {@link Span#NOOP} if the thread is not processing a traced request
+     */
+    public static Span startSpan( String strName )
+    {
+        Span parent = _currentSpan.get( );
+
+        if ( parent == null )
+        {
+            return Span.NOOP;
+        }
+
+        return start( parent.getTraceId( ), parent.getSpanId( ), strName, parent );
+    }
+
+    /**
+     * Run an operation in a child span of the current span of the thread
+     * @param <T> The type of the result
+     * @param strName The name of the span
+     * @param operation The operation
+     * @return The result of the operation
+     */
+    public static <T> T inSpan( String strName, Supplier<T> operation )
+    {
+        Span span = startSpan( strName );
+
+        try
+        {
+            return operation.get( );
+        }
+        finally
+        {
+            span.close( );
+        }
+    }
+
+    /**
+     * Run an operation without result in a child span of the current span of the thread
+     * @param strName The name of the span
+     * @param operation The operation
+     */
+    public static void inSpan( String strName, Runnable operation )
+    {
+        inSpan( strName, ( ) -> {
+            operation.run( );
+            return null;
+        } );
+    }
+
+    /**
+     * Returns the current span of the thread
+     * @return The span, or {@link Span#NOOP} if the thread is not processing a traced request
+     */
+    public static Span getCurrentSpan( )
+    {
+        Span span = _currentSpan.get( );
+
+        return ( span != null ) ? span : Span.NOOP;
+    }
+
+    /**
+     * Returns the traceparent header to give to the services called by the current span, so that their spans join the trace
+     * @return The header value, or null if the thread is not processing a traced request
+     */
+    public static String getTraceParent( )
+    {
+        Span span = _currentSpan.get( );
+
+        return ( span != null ) ? String.format( TRACEPARENT_FORMAT, span.getTraceId( ), span.getSpanId( ) ) : null;
+    }
+
+    /**
+     * Start a span and make it the current span
+     * @param strTraceId The id of the trace
+     * @param strParentSpanId The id of the parent span, or null
+     * @param strName The name of the span
+     * @param parent The parent span in this JVM, or null
+     * @return The span
+     */
+    private static Span start( String strTraceId, String strParentSpanId, String strName, Span parent )
+    {
+        Span span = new Span( strTraceId, newId( 1 ), strParentSpanId, strName, parent );
+        _currentSpan.set( span );
+
+        return span;
+    }
+
+    /**
+     * Export an ended span and make its parent the current span. The spans started under it and left open, for instance by an exception,
+     * are dropped.
+     * @param span The ended span
+     */
+    static void end( Span span )
+    {
+        for ( Span current = _currentSpan.get( ); current != null; current = current.getParent( ) )
+        {
+            if ( current == span )
+            {
+                if ( span.getParent( ) != null )
+                {
+                    _currentSpan.set( span.getParent( ) );
+                }
+                else
+                {
+                    _currentSpan.remove( );
+                }
+
+                break;
+            }
+        }
+
+        ISpanExporter exporter = _exporter;
+
+        if ( exporter != null )
+        {
+            try
+            {
+                exporter.export( span );
+            }
+            catch( RuntimeException e )
+            {
+                AppLogService.error( "Unable to export the span " + span.getName( ), e );
+            }
+        }
+    }
+
+    /**
+     * Returns the exporter of the spans, looked up the first time
+     * @return The exporter, or null if the tracing is disabled
+     */
+    private static ISpanExporter getExporter( )
+    {
+        if ( !_bInitialized )
+        {
+            synchronized( Tracer.class )
+            {
+                if ( !_bInitialized )
+                {
+                    if ( AppPropertiesService.getPropertyBoolean( PROPERTY_TRACING_ENABLED, false ) )
+                    {
+                        _exporter = SpringContextService.getBean( BEAN_SPAN_EXPORTER );
+                    }
+
+                    _bInitialized = true;
+                }
+            }
+        }
+
+        return _exporter;
+    }
+
+    /**
+     * Build a random id
+     * @param nLongs The number of 64 bits parts of the id
+     * @return The id, in hexadecimal
+     */
+    private static String newId( int nLongs )
+    {
+        StringBuilder sbId = new StringBuilder( nLongs * 16 );
+        ThreadLocalRandom random = ThreadLocalRandom.current( );
+
+        for ( int i = 0; i < nLongs; i++ )
+        {
+            long lPart = random.nextLong( );
+
+            while ( lPart == 0L )
+            {
+                lPart = random.nextLong( );
+            }
+
+            String strPart = Long.toHexString( lPart );
+
+            for ( int j = strPart.length( ); j < 16; j++ )
+            {
+                sbId.append( '0' );
+            }
+
+            sbId.append( strPart );
+        }
+
+        return sbId.toString( );
+    }
+}
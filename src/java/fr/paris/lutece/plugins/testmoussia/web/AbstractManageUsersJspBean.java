@@ -34,8 +34,12 @@
  
 package fr.paris.lutece.plugins.testmoussia.web;
 
+import fr.paris.lutece.plugins.testmoussia.service.metrics.RoundTripCounter;
+import fr.paris.lutece.plugins.testmoussia.service.metrics.RoundTripScope;
+import fr.paris.lutece.portal.service.admin.AccessDeniedException;
 import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.portal.util.mvc.admin.MVCAdminJspBean;
+import fr.paris.lutece.portal.web.util.LocalizedDelegatePaginator;
 import fr.paris.lutece.portal.web.util.LocalizedPaginator;
 import fr.paris.lutece.util.html.AbstractPaginator;
 import fr.paris.lutece.util.url.UrlItem;
@@ -43,6 +47,9 @@ import fr.paris.lutece.util.url.UrlItem;
 import java.util.List;
 import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.math.NumberUtils;
 
 /**
  * ManageUsers JSP Bean abstract class for JSP Bean
@@ -62,9 +69,25 @@ public abstract class AbstractManageUsersJspBean extends MVCAdminJspBean
     private static final String MARK_PAGINATOR = "paginator";
     private static final String MARK_NB_ITEMS_PER_PAGE = "nb_items_per_page";
 
-    //Variables
-    private String _strCurrentPageIndex;
-    private int _nItemsPerPage;
+    /**
+     * {@inheritDoc }
+     * The database round trips of the request are counted against the budget of the controller and the view or action, for instance
+     * testmoussia.roundTrips.budget.UserJspBean.manageUsers.
+     */
+    @Override
+    public String processController( HttpServletRequest request, HttpServletResponse response ) throws AccessDeniedException
+    {
+        RoundTripScope scope = RoundTripCounter.begin( getClass( ).getSimpleName( ) + "." + ControllerEvents.getName( request ) );
+
+        try
+        {
+            return super.processController( request, response );
+        }
+        finally
+        {
+            scope.close( );
+        }
+    }
 
     /**
      * Return a model that contains the list and paginator infos
@@ -77,22 +100,81 @@ public abstract class AbstractManageUsersJspBean extends MVCAdminJspBean
     protected <T> Map<String, Object> getPaginatedListModel( HttpServletRequest request, String strBookmark, List<T> list,
         String strManageJsp )
     {
-        int nDefaultItemsPerPage = AppPropertiesService.getPropertyInt( PROPERTY_DEFAULT_LIST_ITEM_PER_PAGE, 50 );
-        _strCurrentPageIndex = AbstractPaginator.getPageIndex( request, AbstractPaginator.PARAMETER_PAGE_INDEX, _strCurrentPageIndex );
-        _nItemsPerPage = AbstractPaginator.getItemsPerPage( request, AbstractPaginator.PARAMETER_ITEMS_PER_PAGE, _nItemsPerPage, nDefaultItemsPerPage );
-
-        UrlItem url = new UrlItem( strManageJsp );
-        String strUrl = url.getUrl(  );
+        String strCurrentPageIndex = AbstractPaginator.getPageIndex( request, AbstractPaginator.PARAMETER_PAGE_INDEX, null );
+        int nItemsPerPage = getItemsPerPage( request );
+        String strUrl = getPaginatorUrl( strManageJsp, nItemsPerPage );
 
         // PAGINATOR
-        LocalizedPaginator<T> paginator = new LocalizedPaginator<>( list, _nItemsPerPage, strUrl, PARAMETER_PAGE_INDEX, _strCurrentPageIndex, getLocale(  ) );
+        LocalizedPaginator<T> paginator = new LocalizedPaginator<>( list, nItemsPerPage, strUrl, PARAMETER_PAGE_INDEX, strCurrentPageIndex, getLocale(  ) );
 
         Map<String, Object> model = getModel(  );
 
-        model.put( MARK_NB_ITEMS_PER_PAGE, String.valueOf( _nItemsPerPage ) );
+        model.put( MARK_NB_ITEMS_PER_PAGE, String.valueOf( nItemsPerPage ) );
         model.put( MARK_PAGINATOR, paginator );
         model.put( strBookmark, paginator.getPageItems(  ) );
 
         return model;
     }
-}
\ No newline at end of file
+
+    /**
+     * Return a model that contains the current page of a list and paginator infos.
+     * Only the items of the current page are loaded from the source.
+     * @param request The HTTP request
+     * @param strBookmark The bookmark
+     * @param source The source of the list
+     * @param strManageJsp The JSP
+     * @return The model
+     */
+    protected <T> Map<String, Object> getPaginatedListModel( HttpServletRequest request, String strBookmark, IPaginatedListSource<T> source,
+        String strManageJsp )
+    {
+        int nItemsPerPage = getItemsPerPage( request );
+
+        // Keep the page index within the bounds of the list before computing the slice
+        int nItemsCount = source.getItemsCount( );
+        int nPagesCount = Math.max( 1, ( nItemsCount + nItemsPerPage - 1 ) / nItemsPerPage );
+        int nPageIndex = Math.min( Math.max( 1, NumberUtils.toInt( request.getParameter( PARAMETER_PAGE_INDEX ), 1 ) ), nPagesCount );
+
+        List<T> listPageItems = source.getPageItems( ( nPageIndex - 1 ) * nItemsPerPage, nItemsPerPage );
+        String strUrl = getPaginatorUrl( strManageJsp, nItemsPerPage );
+
+        // PAGINATOR
+        LocalizedDelegatePaginator<T> paginator = new LocalizedDelegatePaginator<>( listPageItems, nItemsPerPage, strUrl, PARAMETER_PAGE_INDEX,
+                String.valueOf( nPageIndex ), nItemsCount, getLocale(  ) );
+
+        Map<String, Object> model = getModel(  );
+
+        model.put( MARK_NB_ITEMS_PER_PAGE, String.valueOf( nItemsPerPage ) );
+        model.put( MARK_PAGINATOR, paginator );
+        model.put( strBookmark, listPageItems );
+
+        return model;
+    }
+
+    /**
+     * Returns the number of items per page asked by the request, or the default one
+     * @param request The HTTP request
+     * @return The number of items per page
+     */
+    private static int getItemsPerPage( HttpServletRequest request )
+    {
+        int nDefaultItemsPerPage = AppPropertiesService.getPropertyInt( PROPERTY_DEFAULT_LIST_ITEM_PER_PAGE, 50 );
+        int nItemsPerPage = AbstractPaginator.getItemsPerPage( request, AbstractPaginator.PARAMETER_ITEMS_PER_PAGE, 0, nDefaultItemsPerPage );
+
+        return ( nItemsPerPage > 0 ) ? nItemsPerPage : nDefaultItemsPerPage;
+    }
+
+    /**
+     * Returns the URL of the paginator links. The number of items per page is kept in the links, since it is not stored in the session.
+     * @param strManageJsp The JSP
+     * @param nItemsPerPage The number of items per page
+     * @return The URL
+     */
+    private static String getPaginatorUrl( String strManageJsp, int nItemsPerPage )
+    {
+        UrlItem url = new UrlItem( strManageJsp );
+        url.addParameter( AbstractPaginator.PARAMETER_ITEMS_PER_PAGE, nItemsPerPage );
+
+        return url.getUrl(  );
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.web;
+
+import fr.paris.lutece.plugins.testmoussia.service.metrics.FlightRecorderEvent;
+import fr.paris.lutece.plugins.testmoussia.service.metrics.FlightRecorderEventType;
+import fr.paris.lutece.portal.util.mvc.utils.MVCUtils;
+
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Java Flight Recorder events of the views and actions of the controllers. An event lasts the whole processing of the request by the
+ * controller, and holds the size of the model and the duration of the rendering of the page, or -1 if no page is rendered.
+ * <pre>
+ * ControllerEvents.begin( CONTROLLER_NAME, request );
+ * try { return super.processController( ... ); } finally { ControllerEvents.end( ); }
+ * </pre>
+ */
+public final class ControllerEvents
+{
+    /** Name of the Flight Recorder event type */
+    public static final String EVENT_NAME = "fr.paris.lutece.plugins.testmoussia.ControllerRequest";
+
+    // Fields of the events
+    private static final int FIELD_CONTROLLER = 0;
+    private static final int FIELD_TYPE = 1;
+    private static final int FIELD_NAME = 2;
+    private static final int FIELD_MODEL_SIZE = 3;
+    private static final int FIELD_RENDER_DURATION = 4;
+
+    private static final String TYPE_VIEW = "view";
+    private static final String TYPE_ACTION = "action";
+    private static final String NAME_DEFAULT_VIEW = "default";
+
+    private static final FlightRecorderEventType EVENT_TYPE = new FlightRecorderEventType( EVENT_NAME, "Controller Request",
+            "View or action of a controller of the testmoussia plugin" ).addField( "controller", String.class, "Controller" )
+            .addField( "type", String.class, "Type" ).addField( "name", String.class, "View or Action" )
+            .addField( "modelSize", int.class, "Model Size" ).addDurationField( "renderDuration", "Render Duration" ).register( );
+
+    // Event of the request processed by the current thread
+    private static final ThreadLocal<ControllerEvent> _currentEvent = new ThreadLocal<>( );
+
+    /**
+     * Private constructor
+     */
+    private ControllerEvents( )
+    {
+    }
+
+    /**
+     * Start the event of a request, if the events are enabled
+     * @param strController The name of the controller
+     * @param request The HTTP request
+     */
+    public static void begin( String strController, HttpServletRequest request )
+    {
+        FlightRecorderEvent event = EVENT_TYPE.begin( );
+
+        if ( event != null )
+        {
+            event.set( FIELD_TYPE, getType( request ) ).set( FIELD_NAME, getName( request ) );
+            _currentEvent.set( new ControllerEvent( event.set( FIELD_CONTROLLER, strController ) ) );
+        }
+    }
+
+    /**
+     * Record the rendering of the page of the current request
+     * @param model The model of the page
+     * @param lRenderStart The time the rendering started, given by System.nanoTime( )
+     */
+    public static void rendered( Map<String, Object> model, long lRenderStart )
+    {
+        ControllerEvent event = _currentEvent.get( );
+
+        if ( event != null )
+        {
+            event._nModelSize = model.size( );
+            event._lRenderNanos += System.nanoTime( ) - lRenderStart;
+        }
+    }
+
+    /**
+     * End and write the event of the current request
+     */
+    public static void end( )
+    {
+        ControllerEvent event = _currentEvent.get( );
+
+        if ( event != null )
+        {
+            _currentEvent.remove( );
+            event._event.set( FIELD_MODEL_SIZE, event._nModelSize ).set( FIELD_RENDER_DURATION, event._lRenderNanos ).commit( );
+        }
+    }
+
+    /**
+     * Returns the type of the processing of a request
+     * @param request The HTTP request
+     * @return action if the request calls an action, otherwise view
+     */
+    static String getType( HttpServletRequest request )
+    {
+        return ( MVCUtils.getAction( request ) != null ) ? TYPE_ACTION : TYPE_VIEW;
+    }
+
+    /**
+     * Returns the name of the action or the view called by a request
+     * @param request The HTTP request
+     * @return The name of the action, else of the view, else default
+     */
+    static String getName( HttpServletRequest request )
+    {
+        String strAction = MVCUtils.getAction( request );
+
+        if ( strAction != null )
+        {
+            return strAction;
+        }
+
+        String strView = MVCUtils.getView( request );
+
+        return ( strView != null ) ? strView : NAME_DEFAULT_VIEW;
+    }
+
+    /**
+     * Event of a request, with its rendering
+     */
+    private static final class ControllerEvent
+    {
+        private final FlightRecorderEvent _event;
+        private int _nModelSize = -1;
+        private long _lRenderNanos;
+
+        /**
+         * Constructor
+         * @param event The Flight Recorder event
+         */
+        ControllerEvent( FlightRecorderEvent event )
+        {
+            _event = event;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.web;
+
+import fr.paris.lutece.plugins.testmoussia.service.tracing.Span;
+import fr.paris.lutece.plugins.testmoussia.service.tracing.Tracer;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Trace spans of the views and actions of the controllers. The span of a request is the root of the spans of the UserHome calls and the SQL
+ * statements it makes, and continues the trace of the traceparent header of the request.
+ */
+public final class ControllerSpans
+{
+    // Attributes of the spans
+    private static final String ATTRIBUTE_CONTROLLER = "controller";
+    private static final String ATTRIBUTE_TYPE = "mvc.type";
+    private static final String ATTRIBUTE_HTTP_METHOD = "http.method";
+
+    /**
+     * Private constructor
+     */
+    private ControllerSpans( )
+    {
+    }
+
+    /**
+     * Start the span of a request, named after the controller and the view or action
+     * @param strController The name of the controller
+     * @param request The HTTP request
+     * @return The span, to close once the request is processed
+     */
+    public static Span start( String strController, HttpServletRequest request )
+    {
+        if ( !Tracer.isEnabled( ) )
+        {
+            return Span.NOOP;
+        }
+
+        return Tracer.startRequestSpan( strController + "." + ControllerEvents.getName( request ), request.getHeader( Tracer.HEADER_TRACEPARENT ) )
+                .setAttribute( ATTRIBUTE_CONTROLLER, strController ).setAttribute( ATTRIBUTE_TYPE, ControllerEvents.getType( request ) )
+                .setAttribute( ATTRIBUTE_HTTP_METHOD, request.getMethod( ) );
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.web;
+
+import fr.paris.lutece.plugins.testmoussia.service.metrics.MetricsRegistry;
+import fr.paris.lutece.plugins.testmoussia.service.metrics.SlowStatementLog;
+import fr.paris.lutece.portal.service.admin.AccessDeniedException;
+import fr.paris.lutece.portal.service.security.SecurityTokenService;
+import fr.paris.lutece.portal.util.mvc.admin.annotations.Controller;
+import fr.paris.lutece.portal.util.mvc.commons.annotations.Action;
+import fr.paris.lutece.portal.util.mvc.commons.annotations.View;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * This class provides the metrics of the plugin and the log of its slow SQL statements to the administrators
+ */
+@Controller( controllerJsp = "ManageSlowStatements.jsp", controllerPath = "jsp/admin/plugins/testmoussia/", right = "TESTMOUSSIA_MANAGEMENT" )
+public class MetricsJspBean extends AbstractManageUsersJspBean
+{
+    // Templates
+    private static final String TEMPLATE_MANAGE_SLOW_STATEMENTS = "/admin/plugins/testmoussia/manage_slow_statements.html";
+
+    // Properties for page titles
+    private static final String PROPERTY_PAGE_TITLE_MANAGE_SLOW_STATEMENTS = "testmoussia.manage_slow_statements.pageTitle";
+
+    // Markers
+    private static final String MARK_SLOW_STATEMENT_LIST = "slow_statement_list";
+    private static final String MARK_THRESHOLD = "threshold";
+    private static final String MARK_BUFFER_SIZE = "buffer_size";
+    private static final String MARK_RECORDED_COUNT = "recorded_count";
+
+    // Views
+    private static final String VIEW_MANAGE_SLOW_STATEMENTS = "manageSlowStatements";
+
+    // Actions
+    private static final String ACTION_CLEAR_SLOW_STATEMENTS = "clearSlowStatements";
+
+    // Infos
+    private static final String INFO_SLOW_STATEMENTS_CLEARED = "testmoussia.info.slowStatements.cleared";
+
+    // Content type of the Prometheus text exposition format
+    private static final String CONTENT_TYPE_TEXT = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * Build the view of the slow statements log
+     * @param request The HTTP request
+     * @return The page
+     */
+    @View( value = VIEW_MANAGE_SLOW_STATEMENTS, defaultView = true )
+    public String getManageSlowStatements( HttpServletRequest request )
+    {
+        SlowStatementLog log = SlowStatementLog.getInstance( );
+
+        Map<String, Object> model = getModel( );
+        model.put( MARK_SLOW_STATEMENT_LIST, log.getStatements( ) );
+        model.put( MARK_THRESHOLD, log.getThresholdMillis( ) );
+        model.put( MARK_BUFFER_SIZE, log.getBufferSize( ) );
+        model.put( MARK_RECORDED_COUNT, log.getRecordedCount( ) );
+        model.put( SecurityTokenService.MARK_TOKEN, SecurityTokenService.getInstance( ).getToken( request, ACTION_CLEAR_SLOW_STATEMENTS ) );
+
+        return getPage( PROPERTY_PAGE_TITLE_MANAGE_SLOW_STATEMENTS, TEMPLATE_MANAGE_SLOW_STATEMENTS, model );
+    }
+
+    /**
+     * Clear the slow statements log
+     * @param request The HTTP request
+     * @return The Jsp URL of the process result
+     * @throws AccessDeniedException
+     */
+    @Action( ACTION_CLEAR_SLOW_STATEMENTS )
+    public String doClearSlowStatements( HttpServletRequest request ) throws AccessDeniedException
+    {
+        if ( !SecurityTokenService.getInstance( ).validate( request, ACTION_CLEAR_SLOW_STATEMENTS ) )
+        {
+            throw new AccessDeniedException ( "Invalid security token" );
+        }
+
+        SlowStatementLog.getInstance( ).clear( );
+        addInfo( INFO_SLOW_STATEMENTS_CLEARED, getLocale( ) );
+
+        return redirectView( request, VIEW_MANAGE_SLOW_STATEMENTS );
+    }
+
+    /**
+     * Write the metrics of all the registries in the Prometheus text exposition format
+     * @param request The HTTP request
+     * @param response The HTTP response
+     * @throws IOException if the metrics cannot be written
+     */
+    public void doGetMetrics( HttpServletRequest request, HttpServletResponse response ) throws IOException
+    {
+        response.setContentType( CONTENT_TYPE_TEXT );
+        response.setHeader( "Cache-Control", "no-cache" );
+
+        Writer writer = new OutputStreamWriter( response.getOutputStream( ), StandardCharsets.UTF_8 );
+        MetricsRegistry.writeText( writer );
+    }
+}
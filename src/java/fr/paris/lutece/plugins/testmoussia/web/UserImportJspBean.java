@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.web;
+
+import fr.paris.lutece.plugins.testmoussia.business.UserImportHome;
+import fr.paris.lutece.plugins.testmoussia.service.UserImportService;
+import fr.paris.lutece.portal.service.admin.AccessDeniedException;
+import fr.paris.lutece.portal.service.security.SecurityTokenService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.portal.util.mvc.admin.annotations.Controller;
+import fr.paris.lutece.portal.util.mvc.commons.annotations.Action;
+import fr.paris.lutece.portal.util.mvc.commons.annotations.View;
+import fr.paris.lutece.portal.web.upload.MultipartHttpServletRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.fileupload.FileItem;
+import org.apache.commons.lang3.math.NumberUtils;
+
+/**
+ * This class provides the user interface to import users from CSV files and follow the imports
+ */
+@Controller( controllerJsp = "ManageUserImports.jsp", controllerPath = "jsp/admin/plugins/testmoussia/", right = "TESTMOUSSIA_MANAGEMENT" )
+public class UserImportJspBean extends AbstractManageUsersJspBean
+{
+    // Templates
+    private static final String TEMPLATE_MANAGE_USER_IMPORTS = "/admin/plugins/testmoussia/manage_user_imports.html";
+
+    // Parameters
+    private static final String PARAMETER_ID_IMPORT = "id";
+    private static final String PARAMETER_FILE = "file";
+
+    // Properties for page titles
+    private static final String PROPERTY_PAGE_TITLE_MANAGE_USER_IMPORTS = "testmoussia.manage_user_imports.pageTitle";
+
+    // Markers
+    private static final String MARK_USER_IMPORT_LIST = "user_import_list";
+    private static final String MARK_RESUME_TOKEN = "resume_token";
+
+    // Views
+    private static final String VIEW_MANAGE_USER_IMPORTS = "manageUserImports";
+
+    // Actions
+    private static final String ACTION_IMPORT_USERS = "importUsers";
+    private static final String ACTION_RESUME_USER_IMPORT = "resumeUserImport";
+
+    // Infos
+    private static final String INFO_USER_IMPORT_STARTED = "testmoussia.info.userImport.started";
+    private static final String INFO_USER_IMPORT_RESUMED = "testmoussia.info.userImport.resumed";
+
+    // Errors
+    private static final String ERROR_USER_IMPORT_FILE = "testmoussia.error.userImport.file";
+    private static final String ERROR_USER_IMPORT_RESUME = "testmoussia.error.userImport.resume";
+
+    /**
+     * Build the view of the imports, with the upload form
+     * @param request The HTTP request
+     * @return The page
+     */
+    @View( value = VIEW_MANAGE_USER_IMPORTS, defaultView = true )
+    public String getManageUserImports( HttpServletRequest request )
+    {
+        Map<String, Object> model = getModel( );
+        model.put( MARK_USER_IMPORT_LIST, UserImportHome.getUserImportsList( ) );
+        model.put( SecurityTokenService.MARK_TOKEN, SecurityTokenService.getInstance( ).getToken( request, ACTION_IMPORT_USERS ) );
+        model.put( MARK_RESUME_TOKEN, SecurityTokenService.getInstance( ).getToken( request, ACTION_RESUME_USER_IMPORT ) );
+
+        return getPage( PROPERTY_PAGE_TITLE_MANAGE_USER_IMPORTS, TEMPLATE_MANAGE_USER_IMPORTS, model );
+    }
+
+    /**
+     * Process the upload of a CSV file and start its import
+     * @param request The HTTP request
+     * @return The Jsp URL of the process result
+     * @throws AccessDeniedException
+     */
+    @Action( ACTION_IMPORT_USERS )
+    public String doImportUsers( HttpServletRequest request ) throws AccessDeniedException
+    {
+        if ( !SecurityTokenService.getInstance( ).validate( request, ACTION_IMPORT_USERS ) )
+        {
+            throw new AccessDeniedException ( "Invalid security token" );
+        }
+
+        FileItem fileItem = ( request instanceof MultipartHttpServletRequest ) ? ( (MultipartHttpServletRequest) request ).getFile( PARAMETER_FILE ) : null;
+
+        if ( ( fileItem == null ) || ( fileItem.getSize( ) == 0 ) )
+        {
+            addError( ERROR_USER_IMPORT_FILE, getLocale( ) );
+
+            return redirectView( request, VIEW_MANAGE_USER_IMPORTS );
+        }
+
+        try ( InputStream inputStream = fileItem.getInputStream( ) )
+        {
+            UserImportService.getInstance( ).startImport( fileItem.getName( ), inputStream );
+        }
+        catch( IOException e )
+        {
+            AppLogService.error( "Error uploading the users file : " + e.getMessage( ), e );
+            addError( ERROR_USER_IMPORT_FILE, getLocale( ) );
+
+            return redirectView( request, VIEW_MANAGE_USER_IMPORTS );
+        }
+
+        addInfo( INFO_USER_IMPORT_STARTED, getLocale( ) );
+
+        return redirectView( request, VIEW_MANAGE_USER_IMPORTS );
+    }
+
+    /**
+     * Resume a failed import from its last checkpoint
+     * @param request The HTTP request
+     * @return The Jsp URL of the process result
+     * @throws AccessDeniedException
+     */
+    @Action( ACTION_RESUME_USER_IMPORT )
+    public String doResumeUserImport( HttpServletRequest request ) throws AccessDeniedException
+    {
+        if ( !SecurityTokenService.getInstance( ).validate( request, ACTION_RESUME_USER_IMPORT ) )
+        {
+            throw new AccessDeniedException ( "Invalid security token" );
+        }
+
+        int nIdImport = NumberUtils.toInt( request.getParameter( PARAMETER_ID_IMPORT ), -1 );
+
+        if ( UserImportService.getInstance( ).resumeImport( nIdImport ) )
+        {
+            addInfo( INFO_USER_IMPORT_RESUMED, getLocale( ) );
+        }
+        else
+        {
+            addError( ERROR_USER_IMPORT_RESUME, getLocale( ) );
+        }
+
+        return redirectView( request, VIEW_MANAGE_USER_IMPORTS );
+    }
+}
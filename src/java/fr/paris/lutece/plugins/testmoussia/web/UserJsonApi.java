@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.web;
+
+import fr.paris.lutece.plugins.testmoussia.business.User;
+import fr.paris.lutece.plugins.testmoussia.business.UserHome;
+import fr.paris.lutece.plugins.testmoussia.business.UserPage;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+/**
+ * Read only JSON access to the users, for the other applications.
+ * <p>
+ * A single user is read with the id parameter. Otherwise a page of users ordered by id is returned, starting after the id given by the after
+ * parameter : the next field of a page is the after value of the following one.
+ * </p>
+ * <p>
+ * The responses carry an ETag built from the version of the users table stored in the database. A client sending it back in If-None-Match
+ * gets a 304 Not Modified response, read with the version alone, until a user is created, modified or removed.
+ * </p>
+ */
+public class UserJsonApi
+{
+    // Parameters
+    private static final String PARAMETER_ID_USER = "id";
+    private static final String PARAMETER_AFTER = "after";
+    private static final String PARAMETER_LIMIT = "limit";
+
+    // Properties
+    private static final String PROPERTY_DEFAULT_LIMIT = "testmoussia.api.users.defaultLimit";
+    private static final String PROPERTY_MAX_LIMIT = "testmoussia.api.users.maxLimit";
+    private static final int DEFAULT_DEFAULT_LIMIT = 50;
+    private static final int DEFAULT_MAX_LIMIT = 500;
+
+    // HTTP
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_CACHE_CONTROL = "Cache-Control";
+    private static final String CACHE_CONTROL_NO_CACHE = "no-cache";
+    private static final String CONTENT_TYPE_JSON = "application/json";
+    private static final String ETAG_ANY = "*";
+
+    /**
+     * Write the requested user or page of users to the response, or a 304 status if the client already has them
+     * @param request The HTTP request
+     * @param response The HTTP response
+     * @throws IOException if the response cannot be written
+     */
+    public void doGetUsers( HttpServletRequest request, HttpServletResponse response ) throws IOException
+    {
+        // The tag is read before the data, so it is never newer than the returned users
+        String strETag = "\"" + UserHome.getUsersVersionTag( ) + "\"";
+        response.setHeader( HEADER_ETAG, strETag );
+        response.setHeader( HEADER_CACHE_CONTROL, CACHE_CONTROL_NO_CACHE );
+
+        if ( isNotModified( request.getHeader( HEADER_IF_NONE_MATCH ), strETag ) )
+        {
+            response.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+
+            return;
+        }
+
+        String strJson;
+        String strIdUser = request.getParameter( PARAMETER_ID_USER );
+
+        if ( strIdUser != null )
+        {
+            User user = UserHome.findByPrimaryKey( NumberUtils.toInt( strIdUser, -1 ) );
+
+            if ( user == null )
+            {
+                response.sendError( HttpServletResponse.SC_NOT_FOUND );
+
+                return;
+            }
+
+            strJson = UserJsonUtils.toJson( user );
+        }
+        else
+        {
+            strJson = UserJsonUtils.toJson( getPage( request ) );
+        }
+
+        response.setContentType( CONTENT_TYPE_JSON );
+        response.setCharacterEncoding( StandardCharsets.UTF_8.name( ) );
+        response.getWriter( ).write( strJson );
+    }
+
+    /**
+     * Load the page of users requested by the after and limit parameters
+     * @param request The HTTP request
+     * @return The page of users
+     */
+    private static UserPage getPage( HttpServletRequest request )
+    {
+        int nDefaultLimit = AppPropertiesService.getPropertyInt( PROPERTY_DEFAULT_LIMIT, DEFAULT_DEFAULT_LIMIT );
+        int nMaxLimit = AppPropertiesService.getPropertyInt( PROPERTY_MAX_LIMIT, DEFAULT_MAX_LIMIT );
+        int nLimit = NumberUtils.toInt( request.getParameter( PARAMETER_LIMIT ), nDefaultLimit );
+        nLimit = Math.max( 1, Math.min( nLimit, nMaxLimit ) );
+
+        User userCursor = null;
+        String strAfter = request.getParameter( PARAMETER_AFTER );
+
+        if ( NumberUtils.isDigits( strAfter ) )
+        {
+            userCursor = new User( );
+            userCursor.setId( NumberUtils.toInt( strAfter ) );
+        }
+
+        return UserHome.getUsersPageAfter( userCursor, false, nLimit );
+    }
+
+    /**
+     * Tells if an If-None-Match header matches the current ETag
+     * @param strIfNoneMatch The header value, a list of tags or *
+     * @param strETag The current ETag
+     * @return true if the client already has the current version
+     */
+    private static boolean isNotModified( String strIfNoneMatch, String strETag )
+    {
+        if ( StringUtils.isBlank( strIfNoneMatch ) )
+        {
+            return false;
+        }
+
+        for ( String strTag : strIfNoneMatch.split( "," ) )
+        {
+            String strTrimmedTag = StringUtils.removeStart( strTag.trim( ), "W/" );
+
+            if ( strTrimmedTag.equals( strETag ) || strTrimmedTag.equals( ETAG_ANY ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
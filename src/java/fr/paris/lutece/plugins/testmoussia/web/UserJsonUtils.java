@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.web;
+
+import fr.paris.lutece.plugins.testmoussia.business.User;
+import fr.paris.lutece.plugins.testmoussia.business.UserPage;
+import fr.paris.lutece.portal.service.util.AppException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.List;
+
+/**
+ * JSON representation of the users
+ */
+public final class UserJsonUtils
+{
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_NOM = "nom";
+    private static final String FIELD_ITEMS = "items";
+    private static final String FIELD_NEXT = "next";
+
+    private static final ObjectMapper _mapper = new ObjectMapper( );
+
+    /**
+     * Private constructor
+     */
+    private UserJsonUtils( )
+    {
+    }
+
+    /**
+     * Build the JSON array of a list of users
+     * @param listUsers The users
+     * @return The JSON string
+     */
+    public static String toJson( List<User> listUsers )
+    {
+        ArrayNode arrayNode = _mapper.createArrayNode( );
+
+        for ( User user : listUsers )
+        {
+            arrayNode.add( toJsonNode( user ) );
+        }
+
+        return write( arrayNode );
+    }
+
+    /**
+     * Build the JSON object of a user
+     * @param user The user
+     * @return The JSON string
+     */
+    public static String toJson( User user )
+    {
+        return write( toJsonNode( user ) );
+    }
+
+    /**
+     * Build the JSON object of a page of users : the users, and the id to read the next page from, or null on the last page
+     * @param page The page
+     * @return The JSON string
+     */
+    public static String toJson( UserPage page )
+    {
+        ObjectNode node = _mapper.createObjectNode( );
+        ArrayNode arrayNode = node.putArray( FIELD_ITEMS );
+
+        for ( User user : page.getItems( ) )
+        {
+            arrayNode.add( toJsonNode( user ) );
+        }
+
+        if ( page.isNextAvailable( ) )
+        {
+            node.put( FIELD_NEXT, page.getLastItem( ).getId( ) );
+        }
+        else
+        {
+            node.putNull( FIELD_NEXT );
+        }
+
+        return write( node );
+    }
+
+    /**
+     * Build the JSON object of a user
+     * @param user The user
+     * @return The JSON node
+     */
+    static ObjectNode toJsonNode( User user )
+    {
+        ObjectNode node = _mapper.createObjectNode( );
+        node.put( FIELD_ID, user.getId( ) );
+        node.put( FIELD_NOM, user.getNom( ) );
+
+        return node;
+    }
+
+    /**
+     * Write a JSON node
+     * @param node The node
+     * @return The JSON string
+     */
+    static String write( Object node )
+    {
+        try
+        {
+            return _mapper.writeValueAsString( node );
+        }
+        catch( JsonProcessingException e )
+        {
+            throw new AppException( e.getMessage( ), e );
+        }
+    }
+}
@@ -37,17 +37,33 @@ package fr.paris.lutece.plugins.testmoussia.web;
 import fr.paris.lutece.portal.service.message.AdminMessage;
 import fr.paris.lutece.portal.service.message.AdminMessageService;
 import fr.paris.lutece.portal.service.security.SecurityTokenService;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
 import fr.paris.lutece.portal.service.admin.AccessDeniedException;
 import fr.paris.lutece.portal.util.mvc.admin.annotations.Controller;
 import fr.paris.lutece.portal.util.mvc.commons.annotations.Action;
 import fr.paris.lutece.portal.util.mvc.commons.annotations.View;
+import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.util.url.UrlItem;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import fr.paris.lutece.plugins.testmoussia.business.User;
 import fr.paris.lutece.plugins.testmoussia.business.UserHome;
+import fr.paris.lutece.plugins.testmoussia.service.UserExportService;
+import fr.paris.lutece.plugins.testmoussia.service.UserNameIndexService;
+import fr.paris.lutece.plugins.testmoussia.service.tracing.Span;
+import fr.paris.lutece.plugins.testmoussia.service.tracing.Tracer;
 
 /**
  * This class provides the user interface to manage User features ( manage, create, modify, remove )
@@ -62,6 +78,11 @@ public class UserJspBean extends AbstractManageUsersJspBean
 
     // Parameters
     private static final String PARAMETER_ID_USER = "id";
+    private static final String PARAMETER_VERSION = "version";
+    private static final String PARAMETER_QUERY = "query";
+    private static final String PARAMETER_SEARCH = "search";
+    private static final String PARAMETER_FORMAT = "format";
+    private static final String PARAMETER_GZIP = "gzip";
 
     // Properties for page titles
     private static final String PROPERTY_PAGE_TITLE_MANAGE_USERS = "testmoussia.manage_users.pageTitle";
@@ -71,11 +92,26 @@ public class UserJspBean extends AbstractManageUsersJspBean
     // Markers
     private static final String MARK_USER_LIST = "user_list";
     private static final String MARK_USER = "user";
+    private static final String MARK_SEARCH = "search";
 
     private static final String JSP_MANAGE_USERS = "jsp/admin/plugins/testmoussia/ManageUsers.jsp";
 
+    // Export
+    private static final String EXPORT_FILE_NAME = "users.";
+    private static final String EXPORT_GZIP_EXTENSION = ".gz";
+    private static final String HEADER_RETRY_AFTER = "Retry-After";
+    private static final String EXPORT_RETRY_AFTER_SECONDS = "10";
+    private static final String CONTENT_TYPE_CSV = "text/csv; charset=UTF-8";
+    private static final String CONTENT_TYPE_NDJSON = "application/x-ndjson; charset=UTF-8";
+    private static final String CONTENT_TYPE_GZIP = "application/gzip";
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
     // Properties
     private static final String MESSAGE_CONFIRM_REMOVE_USER = "testmoussia.message.confirmRemoveUser";
+    private static final String PROPERTY_AUTOCOMPLETE_MAX_RESULTS = "testmoussia.autocomplete.maxResults";
+    private static final int DEFAULT_AUTOCOMPLETE_MAX_RESULTS = 10;
+    private static final String PROPERTY_SEARCH_MAX_RESULTS = "testmoussia.search.maxResults";
+    private static final int DEFAULT_SEARCH_MAX_RESULTS = 50;
 
     // Validations
     private static final String VALIDATION_ATTRIBUTES_PREFIX = "testmoussia.model.entity.user.attribute.";
@@ -95,25 +131,149 @@ public class UserJspBean extends AbstractManageUsersJspBean
     private static final String INFO_USER_CREATED = "testmoussia.info.user.created";
     private static final String INFO_USER_UPDATED = "testmoussia.info.user.updated";
     private static final String INFO_USER_REMOVED = "testmoussia.info.user.removed";
-    
-    // Session variable to store working values
-    private User _user;
-    
+
+    // Errors
+    private static final String ERROR_USER_MODIFIED = "testmoussia.error.user.modified";
+
+    // Name of the controller in the Flight Recorder events and the trace spans
+    private static final String CONTROLLER_NAME = "UserJspBean";
+
     /**
-     * Build the Manage View
+     * Build the Manage View. If a search is given, only the users whose nom starts with it are listed.
      * @param request The HTTP request
      * @return The page
      */
     @View( value = VIEW_MANAGE_USERS, defaultView = true )
     public String getManageUsers( HttpServletRequest request )
     {
-        _user = null;
-        List<User> listUsers = UserHome.getUsersList(  );
-        Map<String, Object> model = getPaginatedListModel( request, MARK_USER_LIST, listUsers, JSP_MANAGE_USERS );
+        String strSearch = request.getParameter( PARAMETER_SEARCH );
+
+        if ( StringUtils.isNotBlank( strSearch ) )
+        {
+            int nMaxResults = AppPropertiesService.getPropertyInt( PROPERTY_SEARCH_MAX_RESULTS, DEFAULT_SEARCH_MAX_RESULTS );
+            List<User> listUsers = UserHome.findUsersByName( strSearch, nMaxResults );
+            UrlItem url = new UrlItem( JSP_MANAGE_USERS );
+
+            try
+            {
+                url.addParameter( PARAMETER_SEARCH, URLEncoder.encode( strSearch, StandardCharsets.UTF_8.name( ) ) );
+            }
+            catch( UnsupportedEncodingException e )
+            {
+                throw new AppException( e.getMessage( ), e );
+            }
+
+            Map<String, Object> model = getPaginatedListModel( request, MARK_USER_LIST, listUsers, url.getUrl( ) );
+            model.put( MARK_SEARCH, strSearch );
+
+            return getPage( PROPERTY_PAGE_TITLE_MANAGE_USERS, TEMPLATE_MANAGE_USERS, model );
+        }
+
+        IPaginatedListSource<User> source = new IPaginatedListSource<User>( )
+        {
+            @Override
+            public int getItemsCount( )
+            {
+                return UserHome.getUsersCount( );
+            }
+
+            @Override
+            public List<User> getPageItems( int nOffset, int nLimit )
+            {
+                return UserHome.getUsersPage( nOffset, nLimit );
+            }
+        };
+        Map<String, Object> model = getManageUsersModel( request, source );
 
         return getPage( PROPERTY_PAGE_TITLE_MANAGE_USERS, TEMPLATE_MANAGE_USERS, model );
     }
 
+    /**
+     * Returns the model of the paginated list of users
+     * @param request The Http request
+     * @param source The source of the users
+     * @return The model
+     */
+    protected Map<String, Object> getManageUsersModel( HttpServletRequest request, IPaginatedListSource<User> source )
+    {
+        return getPaginatedListModel( request, MARK_USER_LIST, source, JSP_MANAGE_USERS );
+    }
+
+    /**
+     * Returns the users whose nom starts with the query parameter, for the autocomplete of the forms
+     * @param request The HTTP request
+     * @return The JSON array of the users
+     */
+    public String getAutocompleteUsers( HttpServletRequest request )
+    {
+        int nMaxResults = AppPropertiesService.getPropertyInt( PROPERTY_AUTOCOMPLETE_MAX_RESULTS, DEFAULT_AUTOCOMPLETE_MAX_RESULTS );
+        List<User> listUsers = UserNameIndexService.getInstance( ).search( request.getParameter( PARAMETER_QUERY ), nMaxResults );
+
+        return UserJsonUtils.toJson( listUsers );
+    }
+
+    /**
+     * Write all the users to the response as a CSV or NDJSON file, optionally gzipped. The users are streamed, not loaded in memory.
+     * @param request The HTTP request, with the format parameter (csv or ndjson) and the optional gzip parameter
+     * @param response The HTTP response
+     * @throws IOException if the response cannot be written
+     */
+    public void doExportUsers( HttpServletRequest request, HttpServletResponse response ) throws IOException
+    {
+        String strFormat = StringUtils.defaultIfEmpty( request.getParameter( PARAMETER_FORMAT ), UserExportService.FORMAT_CSV );
+
+        if ( !UserExportService.isFormatSupported( strFormat ) )
+        {
+            response.sendError( HttpServletResponse.SC_BAD_REQUEST );
+
+            return;
+        }
+
+        boolean bGzip = Boolean.parseBoolean( request.getParameter( PARAMETER_GZIP ) );
+        String strFileName = EXPORT_FILE_NAME + strFormat + ( bGzip ? EXPORT_GZIP_EXTENSION : StringUtils.EMPTY );
+
+        if ( bGzip )
+        {
+            response.setContentType( CONTENT_TYPE_GZIP );
+        }
+        else
+        {
+            response.setContentType( UserExportService.FORMAT_CSV.equals( strFormat ) ? CONTENT_TYPE_CSV : CONTENT_TYPE_NDJSON );
+        }
+
+        response.setHeader( "Content-Disposition", "attachment; filename=\"" + strFileName + "\"" );
+
+        OutputStream out = response.getOutputStream( );
+        boolean bExported;
+
+        if ( bGzip )
+        {
+            GZIPOutputStream gzipOut = new GZIPOutputStream( out, GZIP_BUFFER_SIZE );
+            bExported = UserExportService.getInstance( ).export( gzipOut, strFormat );
+
+            if ( bExported )
+            {
+                gzipOut.finish( );
+            }
+        }
+        else
+        {
+            bExported = UserExportService.getInstance( ).export( out, strFormat );
+        }
+
+        if ( !bExported )
+        {
+            // Too many exports are running : only the gzip header has been buffered, the response is not committed yet
+            response.reset( );
+            response.setHeader( HEADER_RETRY_AFTER, EXPORT_RETRY_AFTER_SECONDS );
+            response.sendError( HttpServletResponse.SC_SERVICE_UNAVAILABLE );
+
+            return;
+        }
+
+        out.flush( );
+    }
+
     /**
      * Returns the form to create a user
      *
@@ -123,13 +283,7 @@ public class UserJspBean extends AbstractManageUsersJspBean
     @View( VIEW_CREATE_USER )
     public String getCreateUser( HttpServletRequest request )
     {
-        _user = ( _user != null ) ? _user : new User(  );
-
-        Map<String, Object> model = getModel(  );
-        model.put( MARK_USER, _user );
-        model.put( SecurityTokenService.MARK_TOKEN, SecurityTokenService.getInstance( ).getToken( request, ACTION_CREATE_USER ) );
-
-        return getPage( PROPERTY_PAGE_TITLE_CREATE_USER, TEMPLATE_CREATE_USER, model );
+        return getCreateUserPage( request, new User(  ) );
     }
 
     /**
@@ -142,25 +296,41 @@ public class UserJspBean extends AbstractManageUsersJspBean
     @Action( ACTION_CREATE_USER )
     public String doCreateUser( HttpServletRequest request ) throws AccessDeniedException
     {
-        populate( _user, request, getLocale( ) );
+        User user = new User(  );
+        populate( user, request, getLocale( ) );
 
         if ( !SecurityTokenService.getInstance( ).validate( request, ACTION_CREATE_USER ) )
         {
             throw new AccessDeniedException ( "Invalid security token" );
         }
 
-        // Check constraints
-        if ( !validateBean( _user, VALIDATION_ATTRIBUTES_PREFIX ) )
+        // Check constraints : the form is displayed again with the posted values
+        if ( !validateBean( user, VALIDATION_ATTRIBUTES_PREFIX ) )
         {
-            return redirectView( request, VIEW_CREATE_USER );
+            return getCreateUserPage( request, user );
         }
 
-        UserHome.create( _user );
+        UserHome.create( user );
         addInfo( INFO_USER_CREATED, getLocale(  ) );
 
         return redirectView( request, VIEW_MANAGE_USERS );
     }
 
+    /**
+     * Build the form to create a user
+     * @param request The Http request
+     * @param user The user to display
+     * @return the html code of the user form
+     */
+    private String getCreateUserPage( HttpServletRequest request, User user )
+    {
+        Map<String, Object> model = getModel(  );
+        model.put( MARK_USER, user );
+        model.put( SecurityTokenService.MARK_TOKEN, SecurityTokenService.getInstance( ).getToken( request, ACTION_CREATE_USER ) );
+
+        return getPage( PROPERTY_PAGE_TITLE_CREATE_USER, TEMPLATE_CREATE_USER, model );
+    }
+
     /**
      * Manages the removal form of a user whose identifier is in the http
      * request
@@ -205,22 +375,19 @@ public class UserJspBean extends AbstractManageUsersJspBean
     @View( VIEW_MODIFY_USER )
     public String getModifyUser( HttpServletRequest request )
     {
-        int nId = Integer.parseInt( request.getParameter( PARAMETER_ID_USER ) );
+        int nId = NumberUtils.toInt( request.getParameter( PARAMETER_ID_USER ), -1 );
+        User user = UserHome.findByPrimaryKey( nId );
 
-        if ( _user == null || ( _user.getId(  ) != nId ) )
+        if ( user == null )
         {
-            _user = UserHome.findByPrimaryKey( nId );
+            return redirectView( request, VIEW_MANAGE_USERS );
         }
 
-        Map<String, Object> model = getModel(  );
-        model.put( MARK_USER, _user );
-        model.put( SecurityTokenService.MARK_TOKEN, SecurityTokenService.getInstance( ).getToken( request, ACTION_MODIFY_USER ) );
-
-        return getPage( PROPERTY_PAGE_TITLE_MODIFY_USER, TEMPLATE_MODIFY_USER, model );
+        return getModifyUserPage( request, user );
     }
 
     /**
-     * Process the change form of a user
+     * Process the change form of a user. The form carries the id of the user and the version it was displayed with.
      *
      * @param request The Http request
      * @return The Jsp URL of the process result
@@ -229,22 +396,101 @@ public class UserJspBean extends AbstractManageUsersJspBean
     @Action( ACTION_MODIFY_USER )
     public String doModifyUser( HttpServletRequest request ) throws AccessDeniedException
     {
-        populate( _user, request, getLocale( ) );
+        int nId = NumberUtils.toInt( request.getParameter( PARAMETER_ID_USER ), -1 );
+        User user = UserHome.findByPrimaryKey( nId );
+
+        if ( user == null )
+        {
+            return redirectView( request, VIEW_MANAGE_USERS );
+        }
+
+        // Without the version it was displayed with, the form would be checked against the version of the cached user
+        if ( request.getParameter( PARAMETER_VERSION ) == null )
+        {
+            addError( ERROR_USER_MODIFIED, getLocale( ) );
+
+            return getModifyUserPage( request, user );
+        }
+
+        populate( user, request, getLocale( ) );
 
         if ( !SecurityTokenService.getInstance( ).validate( request, ACTION_MODIFY_USER ) )
         {
             throw new AccessDeniedException ( "Invalid security token" );
         }
 
-        // Check constraints
-        if ( !validateBean( _user, VALIDATION_ATTRIBUTES_PREFIX ) )
+        // Check constraints : the form is displayed again with the posted values
+        if ( !validateBean( user, VALIDATION_ATTRIBUTES_PREFIX ) )
+        {
+            return getModifyUserPage( request, user );
+        }
+
+        if ( UserHome.update( user ) == null )
         {
-            return redirect( request, VIEW_MODIFY_USER, PARAMETER_ID_USER, _user.getId( ) );
+            // Modified or removed by someone else since the form was displayed : show the current values
+            User userCurrent = UserHome.findByPrimaryKey( nId );
+
+            if ( userCurrent == null )
+            {
+                return redirectView( request, VIEW_MANAGE_USERS );
+            }
+
+            addError( ERROR_USER_MODIFIED, getLocale( ) );
+
+            return getModifyUserPage( request, userCurrent );
         }
 
-        UserHome.update( _user );
         addInfo( INFO_USER_UPDATED, getLocale(  ) );
 
         return redirectView( request, VIEW_MANAGE_USERS );
     }
+
+    /**
+     * Build the form to update a user
+     * @param request The Http request
+     * @param user The user to display
+     * @return The HTML form to update info
+     */
+    private String getModifyUserPage( HttpServletRequest request, User user )
+    {
+        Map<String, Object> model = getModel(  );
+        model.put( MARK_USER, user );
+        model.put( SecurityTokenService.MARK_TOKEN, SecurityTokenService.getInstance( ).getToken( request, ACTION_MODIFY_USER ) );
+
+        return getPage( PROPERTY_PAGE_TITLE_MODIFY_USER, TEMPLATE_MODIFY_USER, model );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public String processController( HttpServletRequest request, HttpServletResponse response ) throws AccessDeniedException
+    {
+        ControllerEvents.begin( CONTROLLER_NAME, request );
+        Span span = ControllerSpans.start( CONTROLLER_NAME, request );
+
+        try
+        {
+            return super.processController( request, response );
+        }
+        finally
+        {
+            span.close( );
+            ControllerEvents.end( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    protected String getPage( String strPageTitleProperty, String strTemplate, Map<String, Object> model )
+    {
+        long lRenderStart = System.nanoTime( );
+        String strPage = Tracer.inSpan( strTemplate, ( ) -> super.getPage( strPageTitleProperty, strTemplate, model ) );
+
+        ControllerEvents.rendered( model, lRenderStart );
+
+        return strPage;
+    }
 }
@@ -36,6 +36,12 @@ package fr.paris.lutece.plugins.testmoussia.web;
 
 import fr.paris.lutece.plugins.testmoussia.business.User;
 import fr.paris.lutece.plugins.testmoussia.business.UserHome;
+import fr.paris.lutece.plugins.testmoussia.business.UserPage;
+import fr.paris.lutece.plugins.testmoussia.service.UserNameIndexService;
+import fr.paris.lutece.plugins.testmoussia.service.metrics.RoundTripCounter;
+import fr.paris.lutece.plugins.testmoussia.service.metrics.RoundTripScope;
+import fr.paris.lutece.plugins.testmoussia.service.tracing.Span;
+import fr.paris.lutece.plugins.testmoussia.service.tracing.Tracer;
 import fr.paris.lutece.portal.util.mvc.commons.annotations.Action;
 import fr.paris.lutece.portal.web.xpages.XPage;
 import fr.paris.lutece.portal.util.mvc.xpage.MVCApplication;
@@ -47,10 +53,18 @@ import fr.paris.lutece.portal.service.message.SiteMessage;
 import fr.paris.lutece.portal.service.message.SiteMessageException;
 import fr.paris.lutece.portal.service.security.SecurityTokenService;
 import fr.paris.lutece.portal.service.admin.AccessDeniedException;
+import fr.paris.lutece.portal.service.util.AppPropertiesService;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.security.UserNotSignedException;
 
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import javax.servlet.http.HttpServletRequest; 
 
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
 /**
  * This class provides the user interface to manage User xpages ( manage, create, modify, remove )
  */
@@ -64,10 +78,32 @@ public class UserXPage extends MVCApplication
     
     // Parameters
     private static final String PARAMETER_ID_USER = "id";
+    private static final String PARAMETER_VERSION = "version";
+    private static final String PARAMETER_AFTER = "after";
+    private static final String PARAMETER_BEFORE = "before";
+    private static final String PARAMETER_CURSOR_NOM = "cursor_nom";
+    private static final String PARAMETER_SORT = "sort";
+    private static final String PARAMETER_QUERY = "query";
+    private static final String PARAMETER_SEARCH = "search";
+    
+    // Properties
+    private static final String PROPERTY_ITEMS_PER_PAGE = "testmoussia.xpage.listItems.itemsPerPage";
+    private static final int DEFAULT_ITEMS_PER_PAGE = 50;
+    private static final String PROPERTY_AUTOCOMPLETE_MAX_RESULTS = "testmoussia.autocomplete.maxResults";
+    private static final int DEFAULT_AUTOCOMPLETE_MAX_RESULTS = 10;
+    private static final String PROPERTY_SEARCH_MAX_RESULTS = "testmoussia.search.maxResults";
+    private static final int DEFAULT_SEARCH_MAX_RESULTS = 50;
     
     // Markers
     private static final String MARK_USER_LIST = "user_list";
     private static final String MARK_USER = "user";
+    private static final String MARK_USERS_PAGE = "users_page";
+    private static final String MARK_SORT = "sort";
+    private static final String MARK_SEARCH = "search";
+    
+    // Sorts
+    private static final String SORT_ID = "id";
+    private static final String SORT_NOM = "nom";
     
     // Message
     private static final String MESSAGE_CONFIRM_REMOVE_USER = "testmoussia.message.confirmRemoveUser";
@@ -87,25 +123,101 @@ public class UserXPage extends MVCApplication
     private static final String INFO_USER_CREATED = "testmoussia.info.user.created";
     private static final String INFO_USER_UPDATED = "testmoussia.info.user.updated";
     private static final String INFO_USER_REMOVED = "testmoussia.info.user.removed";
-    
-    // Session variable to store working values
-    private User _user;
-    
+
+    // Errors
+    private static final String ERROR_USER_MODIFIED = "testmoussia.error.user.modified";
+
+    // Name of the controller in the Flight Recorder events and the trace spans
+    private static final String CONTROLLER_NAME = "UserXPage";
+
     /**
-     * return the form to manage users
+     * return the form to manage users. The list is read one page at a time with a keyset cursor
+     * passed in the <code>after</code> or <code>before</code> parameters. If a search is given,
+     * only the first users whose nom starts with it are listed.
      * @param request The Http request
      * @return the html code of the list of users
      */
     @View( value = VIEW_MANAGE_USERS, defaultView = true )
     public XPage getManageUsers( HttpServletRequest request )
     {
-        _user = null;
-        Map<String, Object> model = getModel(  );
-        model.put( MARK_USER_LIST, UserHome.getUsersList(  ) );
+        int nItemsPerPage = AppPropertiesService.getPropertyInt( PROPERTY_ITEMS_PER_PAGE, DEFAULT_ITEMS_PER_PAGE );
+        boolean bOrderByNom = SORT_NOM.equals( request.getParameter( PARAMETER_SORT ) );
+        String strCursorNom = request.getParameter( PARAMETER_CURSOR_NOM );
+        String strSearch = request.getParameter( PARAMETER_SEARCH );
+        UserPage page;
+
+        if ( StringUtils.isNotBlank( strSearch ) )
+        {
+            int nMaxResults = AppPropertiesService.getPropertyInt( PROPERTY_SEARCH_MAX_RESULTS, DEFAULT_SEARCH_MAX_RESULTS );
+            page = new UserPage( UserHome.findUsersByName( strSearch, nMaxResults ), false, false );
+        }
+        else if ( request.getParameter( PARAMETER_BEFORE ) != null )
+        {
+            page = UserHome.getUsersPageBefore( getCursor( request.getParameter( PARAMETER_BEFORE ), strCursorNom ), bOrderByNom, nItemsPerPage );
+        }
+        else
+        {
+            page = UserHome.getUsersPageAfter( getCursor( request.getParameter( PARAMETER_AFTER ), strCursorNom ), bOrderByNom, nItemsPerPage );
+        }
+
+        Map<String, Object> model = getManageUsersModel( page, bOrderByNom, strSearch );
         
         return getXPage( TEMPLATE_MANAGE_USERS, request.getLocale(  ), model );
     }
 
+    /**
+     * Returns the model of a page of the list of users
+     * @param page The page of users
+     * @param bOrderByNom true if the users are sorted by nom, false if they are sorted by id
+     * @param strSearch The searched nom, or null
+     * @return The model
+     */
+    protected Map<String, Object> getManageUsersModel( UserPage page, boolean bOrderByNom, String strSearch )
+    {
+        Map<String, Object> model = getModel(  );
+        model.put( MARK_USER_LIST, page.getItems( ) );
+        model.put( MARK_USERS_PAGE, page );
+        model.put( MARK_SORT, bOrderByNom ? SORT_NOM : SORT_ID );
+        model.put( MARK_SEARCH, strSearch );
+
+        return model;
+    }
+
+    /**
+     * Build the keyset cursor from the request parameters
+     * @param strId The id of the cursor user
+     * @param strNom The nom of the cursor user
+     * @return The cursor or null if no valid id is provided
+     */
+    private static User getCursor( String strId, String strNom )
+    {
+        int nId = NumberUtils.toInt( strId, -1 );
+
+        if ( nId < 0 )
+        {
+            return null;
+        }
+
+        User user = new User( );
+        user.setId( nId );
+        user.setNom( ( strNom != null ) ? strNom : "" );
+
+        return user;
+    }
+
+    /**
+     * Returns the users whose nom starts with the query parameter, for the autocomplete of the forms
+     * @param request The Http request
+     * @return The JSON array of the users
+     */
+    public String getAutocompleteUsers( HttpServletRequest request )
+    {
+        int nMaxResults = AppPropertiesService.getPropertyInt( PROPERTY_AUTOCOMPLETE_MAX_RESULTS, DEFAULT_AUTOCOMPLETE_MAX_RESULTS );
+        List<User> listUsers = UserNameIndexService.getInstance( ).search( request.getParameter( PARAMETER_QUERY ), nMaxResults );
+
+        return UserJsonUtils.toJson( listUsers );
+    }
+
     /**
      * Returns the form to create a user
      *
@@ -115,13 +227,7 @@ public class UserXPage extends MVCApplication
     @View( VIEW_CREATE_USER )
     public XPage getCreateUser( HttpServletRequest request )
     {
-        _user = ( _user != null ) ? _user : new User(  );
-
-        Map<String, Object> model = getModel(  );
-        model.put( MARK_USER, _user );
-        model.put( SecurityTokenService.MARK_TOKEN, SecurityTokenService.getInstance( ).getToken( request, ACTION_CREATE_USER ) );
-
-        return getXPage( TEMPLATE_CREATE_USER, request.getLocale(  ), model );
+        return getCreateUserPage( request, new User(  ) );
     }
 
     /**
@@ -134,25 +240,41 @@ public class UserXPage extends MVCApplication
     @Action( ACTION_CREATE_USER )
     public XPage doCreateUser( HttpServletRequest request ) throws AccessDeniedException
     {
-        populate( _user, request, getLocale( request ) );
+        User user = new User(  );
+        populate( user, request, getLocale( request ) );
 
         if ( !SecurityTokenService.getInstance( ).validate( request, ACTION_CREATE_USER ) )
         {
             throw new AccessDeniedException ( "Invalid security token" );
         }
 
-        // Check constraints
-        if ( !validateBean( _user ) )
+        // Check constraints : the form is displayed again with the posted values
+        if ( !validateBean( user ) )
         {
-            return redirectView( request, VIEW_CREATE_USER );
+            return getCreateUserPage( request, user );
         }
 
-        UserHome.create( _user );
+        UserHome.create( user );
         addInfo( INFO_USER_CREATED, getLocale( request ) );
 
         return redirectView( request, VIEW_MANAGE_USERS );
     }
 
+    /**
+     * Build the form to create a user
+     * @param request The Http request
+     * @param user The user to display
+     * @return the html code of the user form
+     */
+    private XPage getCreateUserPage( HttpServletRequest request, User user )
+    {
+        Map<String, Object> model = getModel(  );
+        model.put( MARK_USER, user );
+        model.put( SecurityTokenService.MARK_TOKEN, SecurityTokenService.getInstance( ).getToken( request, ACTION_CREATE_USER ) );
+
+        return getXPage( TEMPLATE_CREATE_USER, request.getLocale(  ), model );
+    }
+
     /**
      * Manages the removal form of a user whose identifier is in the http
      * request
@@ -198,22 +320,19 @@ public class UserXPage extends MVCApplication
     @View( VIEW_MODIFY_USER )
     public XPage getModifyUser( HttpServletRequest request )
     {
-        int nId = Integer.parseInt( request.getParameter( PARAMETER_ID_USER ) );
+        int nId = NumberUtils.toInt( request.getParameter( PARAMETER_ID_USER ), -1 );
+        User user = UserHome.findByPrimaryKey( nId );
 
-        if ( _user == null  || ( _user.getId( ) != nId ) )
+        if ( user == null )
         {
-            _user = UserHome.findByPrimaryKey( nId );
+            return redirectView( request, VIEW_MANAGE_USERS );
         }
 
-        Map<String, Object> model = getModel(  );
-        model.put( MARK_USER, _user );
-        model.put( SecurityTokenService.MARK_TOKEN, SecurityTokenService.getInstance( ).getToken( request, ACTION_MODIFY_USER ) );
-
-        return getXPage( TEMPLATE_MODIFY_USER, request.getLocale(  ), model );
+        return getModifyUserPage( request, user );
     }
 
     /**
-     * Process the change form of a user
+     * Process the change form of a user. The form carries the id of the user and the version it was displayed with.
      *
      * @param request The Http request
      * @return The Jsp URL of the process result
@@ -222,22 +341,103 @@ public class UserXPage extends MVCApplication
     @Action( ACTION_MODIFY_USER )
     public XPage doModifyUser( HttpServletRequest request ) throws AccessDeniedException
     {
-        populate( _user, request, getLocale( request ) );
+        int nId = NumberUtils.toInt( request.getParameter( PARAMETER_ID_USER ), -1 );
+        User user = UserHome.findByPrimaryKey( nId );
+
+        if ( user == null )
+        {
+            return redirectView( request, VIEW_MANAGE_USERS );
+        }
+
+        // Without the version it was displayed with, the form would be checked against the version of the cached user
+        if ( request.getParameter( PARAMETER_VERSION ) == null )
+        {
+            addError( ERROR_USER_MODIFIED, getLocale( request ) );
+
+            return getModifyUserPage( request, user );
+        }
+
+        populate( user, request, getLocale( request ) );
 
         if ( !SecurityTokenService.getInstance( ).validate( request, ACTION_MODIFY_USER ) )
         {
             throw new AccessDeniedException ( "Invalid security token" );
         }
 
-        // Check constraints
-        if ( !validateBean( _user ) )
+        // Check constraints : the form is displayed again with the posted values
+        if ( !validateBean( user ) )
         {
-            return redirect( request, VIEW_MODIFY_USER, PARAMETER_ID_USER, _user.getId( ) );
+            return getModifyUserPage( request, user );
+        }
+
+        if ( UserHome.update( user ) == null )
+        {
+            // Modified or removed by someone else since the form was displayed : show the current values
+            User userCurrent = UserHome.findByPrimaryKey( nId );
+
+            if ( userCurrent == null )
+            {
+                return redirectView( request, VIEW_MANAGE_USERS );
+            }
+
+            addError( ERROR_USER_MODIFIED, getLocale( request ) );
+
+            return getModifyUserPage( request, userCurrent );
         }
 
-        UserHome.update( _user );
         addInfo( INFO_USER_UPDATED, getLocale( request ) );
 
         return redirectView( request, VIEW_MANAGE_USERS );
     }
+
+    /**
+     * Build the form to update a user
+     * @param request The Http request
+     * @param user The user to display
+     * @return The HTML form to update info
+     */
+    private XPage getModifyUserPage( HttpServletRequest request, User user )
+    {
+        Map<String, Object> model = getModel(  );
+        model.put( MARK_USER, user );
+        model.put( SecurityTokenService.MARK_TOKEN, SecurityTokenService.getInstance( ).getToken( request, ACTION_MODIFY_USER ) );
+
+        return getXPage( TEMPLATE_MODIFY_USER, request.getLocale(  ), model );
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    public XPage getPage( HttpServletRequest request, int nMode, Plugin plugin ) throws SiteMessageException, UserNotSignedException
+    {
+        ControllerEvents.begin( CONTROLLER_NAME, request );
+        Span span = ControllerSpans.start( CONTROLLER_NAME, request );
+        RoundTripScope scope = RoundTripCounter.begin( CONTROLLER_NAME + "." + ControllerEvents.getName( request ) );
+
+        try
+        {
+            return super.getPage( request, nMode, plugin );
+        }
+        finally
+        {
+            scope.close( );
+            span.close( );
+            ControllerEvents.end( );
+        }
+    }
+
+    /**
+     * {@inheritDoc }
+     */
+    @Override
+    protected XPage getXPage( String strTemplate, Locale locale, Map<String, Object> model )
+    {
+        long lRenderStart = System.nanoTime( );
+        XPage page = Tracer.inSpan( strTemplate, ( ) -> super.getXPage( strTemplate, locale, model ) );
+
+        ControllerEvents.rendered( model, lRenderStart );
+
+        return page;
+    }
 }
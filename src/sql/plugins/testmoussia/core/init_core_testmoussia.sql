@@ -13,3 +13,10 @@ INSERT INTO core_admin_right (id_right,name,level_right,admin_url,description,is
 DELETE FROM core_user_right WHERE id_right = 'TESTMOUSSIA_MANAGEMENT';
 INSERT INTO core_user_right (id_right,id_user) VALUES ('TESTMOUSSIA_MANAGEMENT',1);
 
+
+
+--
+-- Data for table core_dashboard
+--
+DELETE FROM core_dashboard WHERE dashboard_name = 'testmoussiaPerformance';
+INSERT INTO core_dashboard (dashboard_name,dashboard_column,dashboard_order) VALUES ('testmoussiaPerformance',1,4);
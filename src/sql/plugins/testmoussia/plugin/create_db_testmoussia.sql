@@ -7,5 +7,41 @@ DROP TABLE IF EXISTS testmoussia_user;
 CREATE TABLE testmoussia_user (
 id_user int AUTO_INCREMENT,
 nom varchar(50) default '',
+nom_search varchar(50) default NULL,
+version int default 0 NOT NULL,
 PRIMARY KEY (id_user)
 );
+
+CREATE INDEX idx_testmoussia_user_nom ON testmoussia_user ( nom, id_user );
+CREATE INDEX idx_testmoussia_user_nom_search ON testmoussia_user ( nom_search, id_user );
+
+--
+-- Structure for table testmoussia_user_version
+--
+
+DROP TABLE IF EXISTS testmoussia_user_version;
+CREATE TABLE testmoussia_user_version (
+id_version int default 0 NOT NULL,
+version bigint default 0 NOT NULL,
+PRIMARY KEY (id_version)
+);
+
+--
+-- Structure for table testmoussia_user_import
+--
+
+DROP TABLE IF EXISTS testmoussia_user_import;
+CREATE TABLE testmoussia_user_import (
+id_import int AUTO_INCREMENT,
+file_name varchar(255) default '',
+file_path varchar(255) default '',
+file_size bigint default 0,
+bytes_read bigint default 0,
+lines_read int default 0,
+users_created int default 0,
+errors int default 0,
+last_error varchar(255) default NULL,
+status varchar(20) default '',
+date_update timestamp default NULL,
+PRIMARY KEY (id_import)
+);
@@ -0,0 +1,4 @@
+--
+-- Version of the users table, incremented with every modification of the users
+--
+INSERT INTO testmoussia_user_version (id_version,version) VALUES (1,0);
@@ -0,0 +1,107 @@
+--
+-- Data for table testmoussia_user
+-- 100 users generated with the seed 0 by fr.paris.lutece.plugins.testmoussia.business.UserGenerator of the test sources,
+-- whose main method writes larger samples : UserGenerator <number of users> [<seed> [<rows per insert>]]
+--
+
+INSERT INTO testmoussia_user ( nom, nom_search ) VALUES
+( 'Lucie Meunier', 'lucie meunier' ),
+( 'Pascal Roux', 'pascal roux' ),
+( 'Emma Fabre-Leclerc', 'emma fabre-leclerc' ),
+( 'Bernard Thibault', 'bernard thibault' ),
+( 'Noémie Leclerc', 'noemie leclerc' ),
+( 'Mélanie Meunier', 'melanie meunier' ),
+( 'Jean-François Caron-Côté', 'jean-francois caron-cote' ),
+( 'Élise Le Goff', 'elise le goff' ),
+( 'Gaëlle Côté', 'gaelle cote' ),
+( 'Alice Richard-François-Vincent-Barbier-Girard-Lévê', 'alice richard-francois-vincent-barbier-girard-leve' ),
+( 'Raphaël Vidal-François', 'raphael vidal-francois' ),
+( 'Céline Bourgeois', 'celine bourgeois' ),
+( 'Noémie de La Hauteclocque', 'noemie de la hauteclocque' ),
+( 'Julie Vincent', 'julie vincent' ),
+( 'Marie-Thérèse Barbier-Lévêque', 'marie-therese barbier-leveque' ),
+( 'André Girard', 'andre girard' ),
+( 'Michel de Aubigné', 'michel de aubigne' ),
+( 'Pierre Perrin', 'pierre perrin' ),
+( 'Louis-Étienne Muller', 'louis-etienne muller' ),
+( 'Chloé Delacroix', 'chloe delacroix' ),
+( 'Étienne Fournier', 'etienne fournier' ),
+( 'Mathilde Simon', 'mathilde simon' ),
+( 'Baptiste Roux', 'baptiste roux' ),
+( 'Rémi Fabre', 'remi fabre' ),
+( 'Béatrice Guérin', 'beatrice guerin' ),
+( 'Manon Fabre-Masson', 'manon fabre-masson' ),
+( 'Clément Richard', 'clement richard' ),
+( 'Georges Masson', 'georges masson' ),
+( 'Louis Fournier', 'louis fournier' ),
+( 'Béatrice Da Silva-Vasseur', 'beatrice da silva-vasseur' ),
+( 'Émilie Michel-Moreau', 'emilie michel-moreau' ),
+( 'Pascal Vasseur', 'pascal vasseur' ),
+( 'Alice Le Orléans', 'alice le orleans' ),
+( 'Jean-François Thomas', 'jean-francois thomas' ),
+( 'Jean-François Thibault', 'jean-francois thibault' ),
+( 'Maxime Fontaine-Joly', 'maxime fontaine-joly' ),
+( 'Zoé Blanchard', 'zoe blanchard' ),
+( 'Julien Joly', 'julien joly' ),
+( 'Océane Richard', 'oceane richard' ),
+( 'François Dumas', 'francois dumas' ),
+( 'Antoine Delacroix', 'antoine delacroix' ),
+( 'Alice Roche', 'alice roche' ),
+( 'Céline Chevalier', 'celine chevalier' ),
+( 'Louis Renard', 'louis renard' ),
+( 'Marie Masson', 'marie masson' ),
+( 'Josée Le Goff', 'josee le goff' ),
+( 'Zoé Robert', 'zoe robert' ),
+( 'Pierre Lacroix-Lévêque', 'pierre lacroix-leveque' ),
+( 'Baptiste Delacroix', 'baptiste delacroix' ),
+( 'Margaux Lévêque', 'margaux leveque' ),
+( 'Aurélie Petit', 'aurelie petit' ),
+( 'Paul-Émile Lévêque', 'paul-emile leveque' ),
+( 'Clément Le Gall', 'clement le gall' ),
+( 'Jean Henry', 'jean henry' ),
+( 'Denis Masson', 'denis masson' ),
+( 'Damien Noël', 'damien noel' ),
+( 'Élodie Masson', 'elodie masson' ),
+( 'Jacques Le Goff', 'jacques le goff' ),
+( 'Loïc Girard', 'loic girard' ),
+( 'Véronique Lemaître', 'veronique lemaitre' ),
+( 'Hervé Thibault-Denis', 'herve thibault-denis' ),
+( 'Pénélope Perrin', 'penelope perrin' ),
+( 'Yves Denis-Hébert', 'yves denis-hebert' ),
+( 'Sophie Gaillard', 'sophie gaillard' ),
+( 'Pierre-Édouard Le Clermont-Tonnerre', 'pierre-edouard le clermont-tonnerre' ),
+( 'Loïc Gérard', 'loic gerard' ),
+( 'Marie-Françoise Thomas', 'marie-francoise thomas' ),
+( 'Hervé Thibault', 'herve thibault' ),
+( 'Laëtitia Dumas', 'laetitia dumas' ),
+( 'Jean Henry', 'jean henry' ),
+( 'Amélie Lévêque', 'amelie leveque' ),
+( 'Céline Lemoine', 'celine lemoine' ),
+( 'Maël Durand', 'mael durand' ),
+( 'Paul Dufour', 'paul dufour' ),
+( 'Pierre Garnier', 'pierre garnier' ),
+( 'Brigitte Thibault', 'brigitte thibault' ),
+( 'Éric Laurent', 'eric laurent' ),
+( 'Antoine Bourgeois', 'antoine bourgeois' ),
+( 'Loïc Gauthier', 'loic gauthier' ),
+( 'Hélène Le Goff', 'helene le goff' ),
+( 'Margaux Faure', 'margaux faure' ),
+( 'Laëtitia Perrin', 'laetitia perrin' ),
+( 'Hervé Meunier', 'herve meunier' ),
+( 'Chloé Lefèbvre', 'chloe lefebvre' ),
+( 'Inès Lemaître', 'ines lemaitre' ),
+( 'Thomas Richard', 'thomas richard' ),
+( 'Hélène Lacroix-Rousseau-Meunier-Mercier-Henry-Math', 'helene lacroix-rousseau-meunier-mercier-henry-math' ),
+( 'Julien Bertrand-Rousseau', 'julien bertrand-rousseau' ),
+( 'Béatrice Dumas', 'beatrice dumas' ),
+( 'Mathilde du Argentré', 'mathilde du argentre' ),
+( 'Georges Meunier', 'georges meunier' ),
+( 'Marie-Josée Mercier', 'marie-josee mercier' ),
+( 'Camille Henry', 'camille henry' ),
+( 'Camille Mathieu', 'camille mathieu' ),
+( 'Élodie Côté-Joly', 'elodie cote-joly' ),
+( 'Jérémie Denis', 'jeremie denis' ),
+( 'Julie Joly', 'julie joly' ),
+( 'Béatrice Henry', 'beatrice henry' ),
+( 'Marie-Claire Girard', 'marie-claire girard' ),
+( 'Agnès Marchand-Barbier', 'agnes marchand-barbier' );
@@ -0,0 +1,5 @@
+--
+-- Data for table core_dashboard
+--
+DELETE FROM core_dashboard WHERE dashboard_name = 'testmoussiaPerformance';
+INSERT INTO core_dashboard (dashboard_name,dashboard_column,dashboard_order) VALUES ('testmoussiaPerformance',1,4);
@@ -0,0 +1,48 @@
+
+--
+-- Keyset pagination of the users ordered by nom
+--
+CREATE INDEX idx_testmoussia_user_nom ON testmoussia_user ( nom, id_user );
+
+--
+-- Normalized (lower-cased, accents stripped) nom used by the searches
+--
+ALTER TABLE testmoussia_user ADD COLUMN nom_search varchar(50) default NULL;
+-- The column is filled at the plugin startup by UserHome.storeMissingNomSearch, with the normalization of the searches
+CREATE INDEX idx_testmoussia_user_nom_search ON testmoussia_user ( nom_search, id_user );
+
+--
+-- Checkpoints of the CSV imports of users
+--
+
+DROP TABLE IF EXISTS testmoussia_user_import;
+CREATE TABLE testmoussia_user_import (
+id_import int AUTO_INCREMENT,
+file_name varchar(255) default '',
+file_path varchar(255) default '',
+file_size bigint default 0,
+bytes_read bigint default 0,
+lines_read int default 0,
+users_created int default 0,
+errors int default 0,
+last_error varchar(255) default NULL,
+status varchar(20) default '',
+date_update timestamp default NULL,
+PRIMARY KEY (id_import)
+);
+
+--
+-- Version of the users, compared by the updates to detect concurrent modifications
+--
+ALTER TABLE testmoussia_user ADD COLUMN version int default 0 NOT NULL;
+
+--
+-- Version of the users table, incremented with every modification of the users and used as ETag of the users API
+--
+DROP TABLE IF EXISTS testmoussia_user_version;
+CREATE TABLE testmoussia_user_version (
+id_version int default 0 NOT NULL,
+version bigint default 0 NOT NULL,
+PRIMARY KEY (id_version)
+);
+INSERT INTO testmoussia_user_version (id_version,version) VALUES (1,0);
@@ -34,7 +34,22 @@
 
 package fr.paris.lutece.plugins.testmoussia.business;
 
+import fr.paris.lutece.plugins.testmoussia.service.UserNameIndexService;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.util.AppException;
 import fr.paris.lutece.test.LuteceTestCase;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang3.StringUtils;
 
 
 /**
@@ -44,6 +59,9 @@ public class UserBusinessTest extends LuteceTestCase
 {
     private static final String NOM1 = "Nom1";
     private static final String NOM2 = "Nom2";
+    private static final int NOM_SEARCH_MAX_LENGTH = 50;
+    private static final String SQL_INSERT_WITHOUT_NOM_SEARCH = "INSERT INTO testmoussia_user ( nom ) VALUES ( ? )";
+    private static final String SQL_SELECT_NOM_SEARCH = "SELECT nom_search FROM testmoussia_user WHERE id_user = ?";
 
 	/**
 	* test User
@@ -74,6 +92,374 @@ public class UserBusinessTest extends LuteceTestCase
         assertNull( userStored );
         
     }
+
+    /**
+     * test that an update based on an outdated version is rejected
+     */
+    public void testOptimisticLocking( )
+    {
+        User user = createUser( NOM1 );
+        User userFirst = UserHome.findByPrimaryKey( user.getId( ) );
+        User userSecond = UserHome.findByPrimaryKey( user.getId( ) );
+
+        userFirst.setNom( NOM2 );
+        assertNotNull( UserHome.update( userFirst ) );
+        assertEquals( user.getVersion( ) + 1, userFirst.getVersion( ) );
+
+        userSecond.setNom( NOM1 );
+        assertNull( UserHome.update( userSecond ) );
+        assertEquals( NOM2, UserHome.findByPrimaryKey( user.getId( ) ).getNom( ) );
+
+        UserHome.remove( user.getId( ) );
+    }
+
+    /**
+     * test that a rejected update replaces the outdated cached user by the current row
+     */
+    public void testOptimisticLockingOutdatedCache( )
+    {
+        User user = createUser( NOM1 );
+        User userCached = UserHome.findByPrimaryKey( user.getId( ) );
+
+        // Modified without UserHome, as by another webapp sharing the database : the cache keeps the outdated user
+        Plugin plugin = PluginService.getPlugin( "testmoussia" );
+        UserDAO dao = new UserDAO( );
+        User userOther = dao.load( user.getId( ), plugin );
+        userOther.setNom( NOM2 );
+        assertTrue( dao.store( userOther, plugin ) );
+        assertEquals( NOM1, UserHome.findByPrimaryKey( user.getId( ) ).getNom( ) );
+
+        userCached.setNom( NOM1 + NOM2 );
+        assertNull( UserHome.update( userCached ) );
+
+        User userCurrent = UserHome.findByPrimaryKey( user.getId( ) );
+        assertEquals( NOM2, userCurrent.getNom( ) );
+        assertEquals( userOther.getVersion( ), userCurrent.getVersion( ) );
+
+        UserHome.remove( user.getId( ) );
+    }
+
+    /**
+     * test that an update is rolled back with the increment of the version of the table when the increment fails
+     * @throws ReflectiveOperationException if the DAO of UserHome cannot be replaced
+     */
+    public void testUpdateRolledBackOnVersionFailure( ) throws ReflectiveOperationException
+    {
+        User user = createUser( NOM1 );
+        int nVersion = user.getVersion( );
+        String strVersionTag = UserHome.getUsersVersionTag( );
+
+        Field fieldDAO = UserHome.class.getDeclaredField( "_dao" );
+        fieldDAO.setAccessible( true );
+        IUserDAO dao = (IUserDAO) fieldDAO.get( null );
+        fieldDAO.set( null, Proxy.newProxyInstance( IUserDAO.class.getClassLoader( ), new Class<?> [ ] {
+                IUserDAO.class
+        }, ( proxy, method, args ) -> {
+            if ( "incrementUsersVersion".equals( method.getName( ) ) )
+            {
+                throw new AppException( "The version of the users cannot be incremented" );
+            }
+
+            try
+            {
+                return method.invoke( dao, args );
+            }
+            catch( InvocationTargetException e )
+            {
+                throw e.getCause( );
+            }
+        } ) );
+
+        try
+        {
+            user.setNom( NOM2 );
+            UserHome.update( user );
+            fail( "The failure of the increment must be thrown" );
+        }
+        catch( AppException e )
+        {
+            // The update must have been rolled back
+        }
+        finally
+        {
+            fieldDAO.set( null, dao );
+        }
+
+        User userStored = dao.load( user.getId( ), PluginService.getPlugin( "testmoussia" ) );
+        assertEquals( NOM1, userStored.getNom( ) );
+        assertEquals( nVersion, userStored.getVersion( ) );
+        assertEquals( strVersionTag, UserHome.getUsersVersionTag( ) );
+        assertEquals( nVersion, user.getVersion( ) );
+        assertTrue( user.isModified( ) );
+
+        UserHome.remove( user.getId( ) );
+    }
+
+    /**
+     * test that an unmodified user is not written
+     */
+    public void testUnmodifiedUpdate( )
+    {
+        User user = createUser( NOM1 );
+        assertFalse( user.isModified( ) );
+
+        User userStored = UserHome.findByPrimaryKey( user.getId( ) );
+        userStored.setNom( NOM1 );
+        assertFalse( userStored.isModified( ) );
+        assertSame( userStored, UserHome.update( userStored ) );
+        assertEquals( user.getVersion( ), userStored.getVersion( ) );
+
+        userStored.setNom( NOM2 );
+        assertTrue( userStored.isModified( ) );
+        UserHome.update( userStored );
+        assertFalse( userStored.isModified( ) );
+        assertEquals( user.getVersion( ) + 1, userStored.getVersion( ) );
+
+        UserHome.remove( user.getId( ) );
+    }
+
+    /**
+     * test the keyset pagination
+     */
+    public void testSeekPagination( )
+    {
+        User user1 = createUser( NOM1 );
+        User user2 = createUser( NOM2 );
+        User user3 = createUser( NOM2 );
+
+        UserPage page = UserHome.getUsersPageAfter( user1, false, 1 );
+        assertEquals( 1, page.getItems( ).size( ) );
+        assertEquals( user2.getId( ), page.getFirstItem( ).getId( ) );
+        assertTrue( page.isPreviousAvailable( ) );
+        assertTrue( page.isNextAvailable( ) );
+
+        page = UserHome.getUsersPageBefore( user3, false, 1 );
+        assertEquals( user2.getId( ), page.getFirstItem( ).getId( ) );
+        assertTrue( page.isNextAvailable( ) );
+
+        page = UserHome.getUsersPageAfter( user2, true, 1 );
+        assertEquals( user3.getId( ), page.getFirstItem( ).getId( ) );
+
+        UserHome.remove( user1.getId( ) );
+        UserHome.remove( user2.getId( ) );
+        UserHome.remove( user3.getId( ) );
+    }
+
+    /**
+     * test the count and the offset pagination
+     */
+    public void testPage( )
+    {
+        User user = createUser( NOM1 );
+        int nCount = UserHome.getUsersCount( );
+        assertTrue( nCount > 0 );
+
+        List<User> listUsers = UserHome.getUsersPage( nCount - 1, 10 );
+        assertEquals( 1, listUsers.size( ) );
+        assertEquals( user.getId( ), listUsers.get( 0 ).getId( ) );
+
+        UserHome.remove( user.getId( ) );
+        assertEquals( nCount - 1, UserHome.getUsersCount( ) );
+    }
+
+    /**
+     * test the streamed read of the users
+     */
+    public void testForEachUser( )
+    {
+        User user = createUser( NOM1 );
+        AtomicInteger nCount = new AtomicInteger( );
+        UserHome.forEachUser( u -> nCount.incrementAndGet( ), true );
+        assertEquals( UserHome.getUsersCount( ), nCount.get( ) );
+
+        UserHome.remove( user.getId( ) );
+    }
+
+    /**
+     * test the streaming of the users of an id range
+     */
+    public void testForEachUserInRange( )
+    {
+        User user1 = createUser( NOM1 );
+        User user2 = createUser( NOM2 );
+
+        int [ ] bounds = UserHome.getIdUsersBounds( );
+        assertNotNull( bounds );
+        assertTrue( bounds [0] <= user1.getId( ) );
+        assertTrue( bounds [1] >= user2.getId( ) );
+
+        List<Integer> listIds = new ArrayList<>( );
+        UserHome.forEachUserInRange( user1.getId( ), user2.getId( ), u -> listIds.add( u.getId( ) ), true );
+        assertEquals( user1.getId( ), (int) listIds.get( 0 ) );
+        assertEquals( user2.getId( ), (int) listIds.get( listIds.size( ) - 1 ) );
+
+        UserHome.remove( user1.getId( ) );
+        UserHome.remove( user2.getId( ) );
+    }
+
+    /**
+     * test that the shared list of the users gives copies, which can be updated without changing the list seen by the other callers
+     */
+    public void testUsersListCopies( )
+    {
+        User user = createUser( NOM1 );
+
+        User userListed = UserHome.getUsersList( ).stream( ).filter( u -> u.getId( ) == user.getId( ) ).findFirst( ).orElse( null );
+        assertNotNull( userListed );
+        assertEquals( user.getVersion( ), userListed.getVersion( ) );
+
+        userListed.setNom( NOM2 );
+        UserHome.getUsersReferenceList( ).clear( );
+        assertTrue( UserHome.getUsersList( ).stream( ).anyMatch( u -> ( u.getId( ) == user.getId( ) ) && NOM1.equals( u.getNom( ) ) ) );
+        assertTrue( UserHome.getUsersReferenceList( ).stream( ).anyMatch( i -> i.getCode( ).equals( Integer.toString( user.getId( ) ) ) ) );
+
+        assertNotNull( UserHome.update( userListed ) );
+        assertTrue( UserHome.getUsersList( ).stream( ).anyMatch( u -> ( u.getId( ) == user.getId( ) ) && NOM2.equals( u.getNom( ) ) ) );
+
+        UserHome.remove( user.getId( ) );
+    }
+
+    /**
+     * test that the version tag changes with the users table
+     */
+    public void testVersionTag( )
+    {
+        String strTag = UserHome.getUsersVersionTag( );
+        assertEquals( strTag, UserHome.getUsersVersionTag( ) );
+
+        User user = createUser( NOM1 );
+        String strTagCreated = UserHome.getUsersVersionTag( );
+        assertFalse( strTag.equals( strTagCreated ) );
+
+        UserHome.remove( user.getId( ) );
+        assertFalse( strTagCreated.equals( UserHome.getUsersVersionTag( ) ) );
+    }
+
+    /**
+     * test the batched creation of users
+     */
+    public void testCreateAll( )
+    {
+        List<User> listUsers = new ArrayList<>( );
+
+        for ( int i = 0; i < 3; i++ )
+        {
+            User user = new User( );
+            user.setNom( NOM1 + i );
+            listUsers.add( user );
+        }
+
+        UserHome.createAll( listUsers );
+
+        for ( User user : listUsers )
+        {
+            User userStored = UserHome.findByPrimaryKey( user.getId( ) );
+            assertNotNull( userStored );
+            assertEquals( user.getNom( ), userStored.getNom( ) );
+            UserHome.remove( user.getId( ) );
+        }
+    }
+
+    /**
+     * test that the cached users are not shared with the callers
+     */
+    public void testCache( )
+    {
+        User user = createUser( NOM1 );
+        User userStored = UserHome.findByPrimaryKey( user.getId( ) );
+        userStored.setNom( NOM2 );
+        assertEquals( NOM1, UserHome.findByPrimaryKey( user.getId( ) ).getNom( ) );
+
+        UserHome.remove( user.getId( ) );
+        assertNull( UserHome.findByPrimaryKey( user.getId( ) ) );
+    }
+
+    /**
+     * test the prefix search of the names index
+     */
+    public void testNameIndex( )
+    {
+        User user = createUser( "\u00c9lo\u00efse Test" );
+        List<User> listUsers = UserNameIndexService.getInstance( ).search( "elois", 100 );
+        assertTrue( listUsers.stream( ).anyMatch( u -> u.getId( ) == user.getId( ) ) );
+
+        user.setNom( NOM1 );
+        UserHome.update( user );
+        listUsers = UserNameIndexService.getInstance( ).search( "elois", 100 );
+        assertFalse( listUsers.stream( ).anyMatch( u -> u.getId( ) == user.getId( ) ) );
+
+        UserHome.remove( user.getId( ) );
+    }
+
+    /**
+     * test the search of the users by nom
+     */
+    public void testFindUsersByName( )
+    {
+        User user = createUser( "\u00c9milie_Test" );
+        List<User> listUsers = UserHome.findUsersByName( "EMILIE_", 100 );
+        assertTrue( listUsers.stream( ).anyMatch( u -> u.getId( ) == user.getId( ) ) );
+        assertTrue( UserHome.findUsersByName( "emilie%test", 100 ).isEmpty( ) );
+
+        UserHome.remove( user.getId( ) );
+    }
+
+    /**
+     * test that the search column filled for the users of a previous version is the one written and searched by the DAO
+     */
+    public void testStoreMissingNomSearch( )
+    {
+        Plugin plugin = PluginService.getPlugin( "testmoussia" );
+        String [ ] names = {
+            "\u00c9lo\u00efse Test", " Zo\u00eb Test ", "Dvo\u0159\u00e1k Test", "\u00c5ngstr\u00f6m Test", "\u0141ukasz Test", "\u0152uvre Test",
+            "Nguy\u1ec5n Test", "\u00c7ELINE Test", "Tr\u00e8s long nom de test qui d\u00e9passe la taille de la colonne"
+        };
+        List<Integer> listIds = new ArrayList<>( );
+
+        for ( String strName : names )
+        {
+            try ( DAOUtil daoUtil = new DAOUtil( SQL_INSERT_WITHOUT_NOM_SEARCH, Statement.RETURN_GENERATED_KEYS, plugin ) )
+            {
+                daoUtil.setString( 1, strName );
+                daoUtil.executeUpdate( );
+
+                if ( daoUtil.nextGeneratedKey( ) )
+                {
+                    listIds.add( daoUtil.getGeneratedKeyInt( 1 ) );
+                }
+            }
+        }
+
+        assertTrue( UserHome.storeMissingNomSearch( ) >= names.length );
+
+        for ( int i = 0; i < names.length; i++ )
+        {
+            try ( DAOUtil daoUtil = new DAOUtil( SQL_SELECT_NOM_SEARCH, plugin ) )
+            {
+                daoUtil.setInt( 1, listIds.get( i ) );
+                daoUtil.executeQuery( );
+                assertTrue( daoUtil.next( ) );
+                assertEquals( StringUtils.left( NameNormalizer.normalize( names [i] ), NOM_SEARCH_MAX_LENGTH ), daoUtil.getString( 1 ) );
+            }
+
+            int nId = listIds.get( i );
+            assertTrue( UserHome.findUsersByName( names [i], 1000 ).stream( ).anyMatch( u -> u.getId( ) == nId ) );
+            UserHome.remove( nId );
+        }
+    }
+
+    /**
+     * Create a user
+     * @param strNom the nom
+     * @return the created user
+     */
+    private static User createUser( String strNom )
+    {
+        User user = new User( );
+        user.setNom( strNom );
+
+        return UserHome.create( user );
+    }
     
     
      
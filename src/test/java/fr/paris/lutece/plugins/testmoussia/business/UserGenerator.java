@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.business;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Generates users with realistic French names, to fill the users table with large volumes of data.
+ * <p>
+ * The nom of a user only depends on the seed and on the index of the user : the same seed always gives the same users, and a generation can
+ * be resumed or split from any index. Some noms carry accents, hyphens, particles or apostrophes, and some reach the 50 characters of the
+ * column.
+ * </p>
+ * <p>
+ * The generator belongs to the test sources : it is used by the tests and the benchmarks, and its main method writes the SQL samples.
+ * </p>
+ */
+public class UserGenerator
+{
+    /** Maximum length of a nom */
+    public static final int NOM_MAX_LENGTH = 50;
+
+    private static final String SQL_INSERT = "INSERT INTO testmoussia_user ( nom, nom_search ) VALUES\n";
+    private static final int DEFAULT_ROWS_PER_INSERT = 1000;
+    private static final long INDEX_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    // Percentages of the noms with a compound first name, a particle, a double last name, and of the noms truncated to the maximum length
+    private static final int PERCENT_COMPOUND_FIRST_NAME = 10;
+    private static final int PERCENT_PARTICLE = 5;
+    private static final int PERCENT_DOUBLE_LAST_NAME = 12;
+    private static final int PERCENT_MAX_LENGTH = 1;
+
+    private static final String [ ] FIRST_NAMES = {
+        "Adèle", "Agnès", "Alexandre", "Alice", "Amélie", "Anaïs", "André", "Anne", "Antoine", "Aurélie", "Baptiste", "Béatrice", "Benoît",
+        "Bernard", "Brigitte", "Camille", "Catherine", "Cécile", "Céline", "Charles", "Chloé", "Christophe", "Claire", "Clément", "Corinne",
+        "Damien", "Daniel", "Denis", "Dominique", "Édouard", "Élise", "Élodie", "Émilie", "Emma", "Éric", "Étienne", "Fabien", "Florence",
+        "Françoise", "François", "Frédéric", "Gaëlle", "Gaëtan", "Geneviève", "Georges", "Gérard", "Grégoire", "Guillaume", "Hélène", "Henri",
+        "Hervé", "Hugo", "Inès", "Isabelle", "Jacques", "Jean", "Jérémie", "Jérôme", "Joël", "Josée", "Julie", "Julien", "Laëtitia", "Laure",
+        "Léa", "Léon", "Loïc", "Louis", "Lucie", "Madeleine", "Maël", "Manon", "Marc", "Margaux", "Marie", "Mathilde", "Maxime", "Michèle",
+        "Michel", "Mélanie", "Nathalie", "Noël", "Noémie", "Océane", "Olivier", "Pascal", "Patrick", "Paul", "Pénélope", "Philippe", "Pierre",
+        "Raphaël", "Rémi", "René", "Sébastien", "Sophie", "Stéphane", "Sylvie", "Thérèse", "Thomas", "Valérie", "Véronique", "Yves", "Zoé"
+    };
+
+    private static final String [ ] COMPOUND_FIRST_NAMES = {
+        "Anne-Laure", "Anne-Sophie", "Jean-Baptiste", "Jean-Christophe", "Jean-François", "Jean-Luc", "Jean-Michel", "Jean-Noël", "Jean-Pierre",
+        "Jean-Rémi", "Louis-Étienne", "Marie-Agnès", "Marie-Christine", "Marie-Claire", "Marie-Françoise", "Marie-Hélène", "Marie-Josée",
+        "Marie-Thérèse", "Paul-Émile", "Pierre-Édouard"
+    };
+
+    private static final String [ ] LAST_NAMES = {
+        "André", "Barbier", "Béranger", "Bertrand", "Blanchard", "Bonnet", "Boucher", "Bourgeois", "Brunet", "Caron", "Chevalier", "Clément",
+        "Colin", "Côté", "Da Silva", "David", "Delacroix", "Denis", "Dubois", "Dufour", "Dumas", "Dupont", "Dupré", "Durand", "Fabre", "Faure",
+        "Fontaine", "Fournier", "François", "Gaillard", "Garnier", "Gauthier", "Gérard", "Girard", "Guérin", "Hébert", "Henry", "Joly", "Lacroix",
+        "Lambert", "Laurent", "Le Gall", "Le Goff", "Lebrun", "Leclerc", "Lefèbvre", "Lefèvre", "Legrand", "Lemaître", "Lemoine", "Leroy",
+        "Lévêque", "Marchand", "Martin", "Masson", "Mathieu", "Ménard", "Mercier", "Meunier", "Michel", "Moreau", "Morel", "Muller", "Noël",
+        "Nguyen", "Perrin", "Petit", "Picard", "Poirier", "Rémy", "Renard", "Richard", "Robert", "Roche", "Rousseau", "Roux", "Sénéchal",
+        "Simon", "Thibault", "Thomas", "Vasseur", "Vidal", "Vincent"
+    };
+
+    private static final String [ ] PARTICLES = {
+        "de ", "du ", "de La ", "d'", "Le "
+    };
+
+    private static final String [ ] PARTICLE_NAMES = {
+        "Aubigné", "Argentré", "Beauvoir", "Bellefonds", "Castelnau", "Chambord", "Clermont-Tonnerre", "Estrées", "Hauteclocque",
+        "Montmorency", "Orléans", "Rochefoucauld", "Saint-Exupéry", "Vaudreuil"
+    };
+
+    private final long _lSeed;
+
+    /**
+     * Constructor
+     * @param lSeed The seed of the generation
+     */
+    public UserGenerator( long lSeed )
+    {
+        _lSeed = lSeed;
+    }
+
+    /**
+     * Returns the nom of the user of the given index
+     * @param lIndex The index of the user
+     * @return The nom, of at most {@link #NOM_MAX_LENGTH} characters
+     */
+    public String getNom( long lIndex )
+    {
+        SplittableRandom random = new SplittableRandom( _lSeed + lIndex * INDEX_MULTIPLIER );
+        StringBuilder sbNom = new StringBuilder( NOM_MAX_LENGTH * 2 );
+
+        if ( random.nextInt( 100 ) < PERCENT_COMPOUND_FIRST_NAME )
+        {
+            sbNom.append( pick( random, COMPOUND_FIRST_NAMES ) );
+        }
+        else
+        {
+            sbNom.append( pick( random, FIRST_NAMES ) );
+        }
+
+        sbNom.append( ' ' );
+
+        if ( random.nextInt( 100 ) < PERCENT_PARTICLE )
+        {
+            sbNom.append( pick( random, PARTICLES ) ).append( pick( random, PARTICLE_NAMES ) );
+        }
+        else
+        {
+            sbNom.append( pick( random, LAST_NAMES ) );
+
+            if ( random.nextInt( 100 ) < PERCENT_DOUBLE_LAST_NAME )
+            {
+                sbNom.append( '-' ).append( pick( random, LAST_NAMES ) );
+            }
+        }
+
+        if ( random.nextInt( 100 ) < PERCENT_MAX_LENGTH )
+        {
+            // Lengthen the nom with more last names, to reach the size of the column
+            while ( sbNom.length( ) < NOM_MAX_LENGTH )
+            {
+                sbNom.append( '-' ).append( pick( random, LAST_NAMES ) );
+            }
+        }
+
+        return truncate( sbNom );
+    }
+
+    /**
+     * Returns a new user with the nom of the given index. Its id is set once created.
+     * @param lIndex The index of the user
+     * @return The user
+     */
+    public User getUser( long lIndex )
+    {
+        User user = new User( );
+        user.setNom( getNom( lIndex ) );
+
+        return user;
+    }
+
+    /**
+     * Returns new users with the noms of consecutive indexes
+     * @param lFirstIndex The index of the first user
+     * @param nUsers The number of users
+     * @return The users
+     */
+    public List<User> getUsers( long lFirstIndex, int nUsers )
+    {
+        List<User> listUsers = new ArrayList<>( nUsers );
+
+        for ( int i = 0; i < nUsers; i++ )
+        {
+            listUsers.add( getUser( lFirstIndex + i ) );
+        }
+
+        return listUsers;
+    }
+
+    /**
+     * Writes the SQL statements inserting users into the users table, several rows per statement
+     * @param writer The writer of the SQL script
+     * @param lUsers The number of users
+     * @param nRowsPerInsert The number of rows of each INSERT statement
+     * @throws IOException if the script cannot be written
+     */
+    public void writeSql( Writer writer, long lUsers, int nRowsPerInsert ) throws IOException
+    {
+        writeSql( writer, 0L, lUsers, nRowsPerInsert );
+    }
+
+    /**
+     * Writes the SQL statements inserting the users of consecutive indexes into the users table, several rows per statement
+     * @param writer The writer of the SQL script
+     * @param lFirstIndex The index of the first user
+     * @param lUsers The number of users
+     * @param nRowsPerInsert The number of rows of each INSERT statement
+     * @throws IOException if the script cannot be written
+     */
+    public void writeSql( Writer writer, long lFirstIndex, long lUsers, int nRowsPerInsert ) throws IOException
+    {
+        for ( long lRow = 0; lRow < lUsers; lRow++ )
+        {
+            boolean bFirstRow = ( lRow % nRowsPerInsert ) == 0;
+            boolean bLastRow = ( ( lRow + 1 ) % nRowsPerInsert == 0 ) || ( lRow + 1 == lUsers );
+            String strNom = getNom( lFirstIndex + lRow );
+
+            writer.write( bFirstRow ? SQL_INSERT : ",\n" );
+            writer.write( "( '" );
+            writer.write( escapeSql( strNom ) );
+            writer.write( "', '" );
+            writer.write( escapeSql( StringUtils.left( NameNormalizer.normalize( strNom ), NOM_MAX_LENGTH ) ) );
+            writer.write( "' )" );
+
+            if ( bLastRow )
+            {
+                writer.write( ";\n" );
+            }
+        }
+
+        writer.flush( );
+    }
+
+    /**
+     * Writes on the standard output the SQL script inserting generated users, to be loaded with the client of the database.
+     * <p>
+     * Arguments : the number of users, then optionally the seed (default 0) and the number of rows per INSERT statement (default 1000).
+     * </p>
+     * @param args The arguments
+     * @throws IOException if the script cannot be written
+     */
+    public static void main( String [ ] args ) throws IOException
+    {
+        if ( args.length < 1 )
+        {
+            System.err.println( "Usage : UserGenerator <number of users> [<seed> [<rows per insert>]]" );
+            System.exit( 1 );
+        }
+
+        long lUsers = Long.parseLong( args [0] );
+        long lSeed = ( args.length > 1 ) ? Long.parseLong( args [1] ) : 0L;
+        int nRowsPerInsert = ( args.length > 2 ) ? Integer.parseInt( args [2] ) : DEFAULT_ROWS_PER_INSERT;
+
+        Writer writer = new BufferedWriter( new OutputStreamWriter( System.out, StandardCharsets.UTF_8 ) );
+        new UserGenerator( lSeed ).writeSql( writer, lUsers, Math.max( 1, nRowsPerInsert ) );
+    }
+
+    /**
+     * Returns a random element of an array
+     * @param random The random generator
+     * @param values The array
+     * @return The element
+     */
+    private static String pick( SplittableRandom random, String [ ] values )
+    {
+        return values [random.nextInt( values.length )];
+    }
+
+    /**
+     * Truncate a nom to the maximum length, without leaving a separator at its end
+     * @param sbNom The nom
+     * @return The truncated nom
+     */
+    private static String truncate( StringBuilder sbNom )
+    {
+        if ( sbNom.length( ) > NOM_MAX_LENGTH )
+        {
+            sbNom.setLength( NOM_MAX_LENGTH );
+        }
+
+        int nLength = sbNom.length( );
+
+        while ( nLength > 0 && ( sbNom.charAt( nLength - 1 ) == '-' || sbNom.charAt( nLength - 1 ) == ' ' || sbNom.charAt( nLength - 1 ) == '\'' ) )
+        {
+            nLength--;
+        }
+
+        sbNom.setLength( nLength );
+
+        return sbNom.toString( );
+    }
+
+    /**
+     * Escape a value for a SQL string literal
+     * @param strValue The value
+     * @return The escaped value
+     */
+    private static String escapeSql( String strValue )
+    {
+        return strValue.replace( "'", "''" );
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.business;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+/**
+ * This is the test class of the UserGenerator
+ */
+public class UserGeneratorTest extends LuteceTestCase
+{
+    private static final long SEED = 42L;
+    private static final int USERS_COUNT = 10000;
+
+    /**
+     * The same seed gives the same noms, from any index
+     */
+    public void testDeterministic( )
+    {
+        UserGenerator generator = new UserGenerator( SEED );
+        List<User> listUsers = new UserGenerator( SEED ).getUsers( 100, 10 );
+
+        for ( int i = 0; i < listUsers.size( ); i++ )
+        {
+            assertEquals( generator.getNom( 100 + i ), listUsers.get( i ).getNom( ) );
+        }
+
+        assertFalse( generator.getNom( 0 ).equals( new UserGenerator( SEED + 1 ).getNom( 0 ) )
+                && generator.getNom( 1 ).equals( new UserGenerator( SEED + 1 ).getNom( 1 ) ) );
+    }
+
+    /**
+     * The noms fit in the column, and some carry accents or reach its size
+     */
+    public void testNoms( )
+    {
+        UserGenerator generator = new UserGenerator( SEED );
+        boolean bAccents = false;
+        boolean bMaxLength = false;
+
+        for ( int i = 0; i < USERS_COUNT; i++ )
+        {
+            String strNom = generator.getNom( i );
+
+            assertFalse( strNom.isEmpty( ) );
+            assertTrue( strNom.length( ) <= UserGenerator.NOM_MAX_LENGTH );
+            assertEquals( strNom.trim( ), strNom );
+            bAccents |= !NameNormalizer.normalize( strNom ).equals( strNom.toLowerCase( ) );
+            bMaxLength |= ( strNom.length( ) == UserGenerator.NOM_MAX_LENGTH );
+        }
+
+        assertTrue( bAccents );
+        assertTrue( bMaxLength );
+    }
+
+    /**
+     * The SQL script groups the rows in INSERT statements
+     * @throws IOException if the script cannot be written
+     */
+    public void testWriteSql( ) throws IOException
+    {
+        StringWriter writer = new StringWriter( );
+        new UserGenerator( SEED ).writeSql( writer, 5, 2 );
+        String strSql = writer.toString( );
+
+        assertEquals( 3, strSql.split( "INSERT INTO testmoussia_user", -1 ).length - 1 );
+        assertEquals( 3, strSql.split( ";", -1 ).length - 1 );
+        assertTrue( strSql.endsWith( ";\n" ) );
+    }
+}
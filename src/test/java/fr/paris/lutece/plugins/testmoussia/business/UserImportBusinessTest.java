@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.business;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+
+/**
+ * This is the business class test for the object UserImport
+ */
+public class UserImportBusinessTest extends LuteceTestCase
+{
+    private static final String FILE_NAME = "users.csv";
+    private static final String FILE_PATH = "/tmp/users.csv";
+
+	/**
+	* test UserImport
+	*/
+    public void testBusiness(  )
+    {
+        // Initialize an object
+        UserImport userImport = new UserImport();
+        userImport.setFileName( FILE_NAME );
+        userImport.setFilePath( FILE_PATH );
+        userImport.setFileSize( 1000L );
+        userImport.setStatus( UserImport.STATUS_RUNNING );
+
+        // Create test
+        UserImportHome.create( userImport );
+        UserImport userImportStored = UserImportHome.findByPrimaryKey( userImport.getId( ) );
+        assertEquals( userImportStored.getFileName() , userImport.getFileName( ) );
+        assertEquals( userImportStored.getStatus() , UserImport.STATUS_RUNNING );
+        assertEquals( userImportStored.getProgress() , 0 );
+
+        // Update test : a checkpoint
+        userImport.setLinesRead( 10 );
+        userImport.setBytesRead( 500L );
+        userImport.setUsersCreated( 9 );
+        userImport.setErrors( 1 );
+        userImport.setLastError( "10 : error" );
+        UserImportHome.update( userImport );
+        userImportStored = UserImportHome.findByPrimaryKey( userImport.getId( ) );
+        assertEquals( userImportStored.getLinesRead() , 10 );
+        assertEquals( userImportStored.getUsersCreated() , 9 );
+        assertEquals( userImportStored.getErrors() , 1 );
+        assertEquals( userImportStored.getLastError() , "10 : error" );
+        assertEquals( userImportStored.getProgress() , 50 );
+
+        // List test
+        assertTrue( UserImportHome.getUserImportsList( ).stream( ).anyMatch( i -> i.getId( ) == userImport.getId( ) ) );
+
+        // Count test
+        assertEquals( UserImportHome.getUserImportsCount( ), UserImportHome.getUserImportsList( ).size( ) );
+    }
+
+    /**
+     * test that the status is only changed by the first of two concurrent changes
+     */
+    public void testUpdateStatus( )
+    {
+        UserImport userImport = new UserImport( );
+        userImport.setFileName( FILE_NAME );
+        userImport.setFilePath( FILE_PATH );
+        userImport.setStatus( UserImport.STATUS_FAILED );
+        userImport.setLastError( "10 : error" );
+        UserImportHome.create( userImport );
+
+        UserImport userImportFirst = UserImportHome.findByPrimaryKey( userImport.getId( ) );
+        UserImport userImportSecond = UserImportHome.findByPrimaryKey( userImport.getId( ) );
+        userImportFirst.setStatus( UserImport.STATUS_RUNNING );
+        userImportSecond.setStatus( UserImport.STATUS_RUNNING );
+
+        assertTrue( UserImportHome.updateStatus( userImportFirst, UserImport.STATUS_FAILED ) );
+        assertFalse( UserImportHome.updateStatus( userImportSecond, UserImport.STATUS_FAILED ) );
+
+        UserImport userImportStored = UserImportHome.findByPrimaryKey( userImport.getId( ) );
+        assertEquals( UserImport.STATUS_RUNNING, userImportStored.getStatus( ) );
+        assertNull( userImportStored.getLastError( ) );
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.dashboard;
+
+import fr.paris.lutece.plugins.testmoussia.service.metrics.MetricsRegistry;
+import fr.paris.lutece.plugins.testmoussia.service.metrics.OperationMetrics;
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This is the test class of the figures of the performance dashboard
+ */
+public class PerformanceDashboardServiceTest extends LuteceTestCase
+{
+    private static final String REGISTRY_NAME = "performanceDashboardServiceTest";
+    private static final String OPERATION = "operation";
+    private static final long ONE_SECOND_NANOS = 1000000000L;
+
+    /**
+     * The rates are computed from the calls made since the previous refresh
+     */
+    public void testOperationsRates( )
+    {
+        OperationMetrics operation = MetricsRegistry.getRegistry( REGISTRY_NAME ).getOperation( OPERATION );
+        operation.reset( );
+        recordCalls( operation, 5 );
+
+        Map<String, long [ ]> mapCounts = new HashMap<>( );
+        List<OperationSnapshot> listOperations = PerformanceDashboardService.getOperations( MetricsRegistry.getRegistry( REGISTRY_NAME ),
+                new HashMap<>( ), mapCounts, 0L );
+        assertEquals( 1, listOperations.size( ) );
+        assertEquals( 5L, listOperations.get( 0 ).getCount( ) );
+        assertEquals( 0.0, listOperations.get( 0 ).getRatePerSecond( ), 0.0 );
+        assertNotNull( mapCounts.get( OPERATION ) );
+
+        recordCalls( operation, 10 );
+
+        Map<String, long [ ]> mapPreviousCounts = mapCounts;
+        mapCounts = new HashMap<>( );
+        listOperations = PerformanceDashboardService.getOperations( MetricsRegistry.getRegistry( REGISTRY_NAME ), mapPreviousCounts, mapCounts,
+                2 * ONE_SECOND_NANOS );
+        assertEquals( 15L, listOperations.get( 0 ).getCount( ) );
+        assertEquals( 5.0, listOperations.get( 0 ).getRatePerSecond( ), 0.001 );
+        assertTrue( listOperations.get( 0 ).getP99Micros( ) >= listOperations.get( 0 ).getP50Micros( ) );
+
+        // A reset of the metrics does not give a negative rate
+        operation.reset( );
+        recordCalls( operation, 2 );
+        listOperations = PerformanceDashboardService.getOperations( MetricsRegistry.getRegistry( REGISTRY_NAME ), mapCounts, new HashMap<>( ),
+                ONE_SECOND_NANOS );
+        assertEquals( 2.0, listOperations.get( 0 ).getRatePerSecond( ), 0.001 );
+    }
+
+    /**
+     * Test that the latencies are the ones of the calls made since the previous refresh
+     */
+    public void testOperationsIntervalLatencies( )
+    {
+        OperationMetrics operation = MetricsRegistry.getRegistry( REGISTRY_NAME ).getOperation( OPERATION );
+        operation.reset( );
+
+        for ( int i = 0; i < 100; i++ )
+        {
+            operation.record( ONE_SECOND_NANOS, false );
+        }
+
+        Map<String, long [ ]> mapCounts = new HashMap<>( );
+        List<OperationSnapshot> listOperations = PerformanceDashboardService.getOperations( MetricsRegistry.getRegistry( REGISTRY_NAME ),
+                new HashMap<>( ), mapCounts, 0L );
+        assertTrue( listOperations.get( 0 ).getP50Micros( ) >= 1000000.0 );
+
+        recordCalls( operation, 10 );
+        listOperations = PerformanceDashboardService.getOperations( MetricsRegistry.getRegistry( REGISTRY_NAME ), mapCounts, new HashMap<>( ),
+                ONE_SECOND_NANOS );
+        assertTrue( listOperations.get( 0 ).getP99Micros( ) < 1000.0 );
+        assertEquals( 110L, listOperations.get( 0 ).getCount( ) );
+    }
+
+    /**
+     * Test the increase of the cache counters
+     */
+    public void testDelta( )
+    {
+        assertEquals( 5L, PerformanceDashboardService.getDelta( 10L, 15L ) );
+        assertEquals( 3L, PerformanceDashboardService.getDelta( 10L, 3L ) );
+    }
+
+    /**
+     * The ratios are not available until there is something to divide
+     */
+    public void testSnapshotRatios( )
+    {
+        PerformanceSnapshot snapshot = new PerformanceSnapshot( );
+        assertEquals( PerformanceSnapshot.NOT_AVAILABLE, snapshot.getPoolUsagePercent( ) );
+        assertEquals( PerformanceSnapshot.NOT_AVAILABLE, snapshot.getCacheHitPercent( ) );
+
+        snapshot.setPoolCurrentConnections( 3 );
+        snapshot.setPoolMaxConnections( 12 );
+        assertEquals( 25, snapshot.getPoolUsagePercent( ) );
+
+        snapshot.setCacheHits( 9 );
+        snapshot.setCacheMisses( 1 );
+        assertEquals( 90, snapshot.getCacheHitPercent( ) );
+    }
+
+    /**
+     * Record calls of an operation
+     * @param operation The operation
+     * @param nCalls The number of calls
+     */
+    private static void recordCalls( OperationMetrics operation, int nCalls )
+    {
+        for ( int i = 0; i < nCalls; i++ )
+        {
+            operation.record( 1000L * ( i + 1 ), false );
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.metrics;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+/**
+ * This is the test class of the Flight Recorder event types
+ */
+public class FlightRecorderEventTypeTest extends LuteceTestCase
+{
+    private static final String EVENT_NAME = "fr.paris.lutece.plugins.testmoussia.FlightRecorderEventTypeTest";
+
+    private static final FlightRecorderEventType EVENT_TYPE = new FlightRecorderEventType( EVENT_NAME, "Test", "Event of the tests" )
+            .addField( "operation", String.class, "Operation" ).addDurationField( "renderDuration", "Render Duration" ).register( );
+
+    /**
+     * The events are not started when no recording is running
+     */
+    public void testDisabled( )
+    {
+        assertFalse( EVENT_TYPE.isEnabled( ) );
+        assertNull( EVENT_TYPE.begin( ) );
+    }
+
+    /**
+     * The events are started and committed while a recording is running. The recording is reached by reflection, as the plugin is built
+     * for Java 8.
+     * @throws Exception if the recording cannot be started
+     */
+    public void testRecording( ) throws Exception
+    {
+        if ( !FlightRecorderEventType.isAvailable( ) )
+        {
+            return;
+        }
+
+        Class<?> classRecording = Class.forName( "jdk.jfr.Recording" );
+        Object recording = classRecording.getConstructor( ).newInstance( );
+
+        try
+        {
+            classRecording.getMethod( "enable", String.class ).invoke( recording, EVENT_NAME );
+            classRecording.getMethod( "start" ).invoke( recording );
+
+            assertTrue( EVENT_TYPE.isEnabled( ) );
+
+            FlightRecorderEvent event = EVENT_TYPE.begin( );
+            assertNotNull( event );
+            event.set( 0, "operation" ).set( 1, 1000L ).commit( );
+        }
+        finally
+        {
+            classRecording.getMethod( "close" ).invoke( recording );
+        }
+
+        assertFalse( EVENT_TYPE.isEnabled( ) );
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.metrics;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * This is the test class of the metrics registry
+ */
+public class MetricsRegistryTest extends LuteceTestCase
+{
+    private static final String REGISTRY_NAME = "metricsRegistryTest";
+    private static final String OPERATION = "operation";
+
+    /**
+     * The percentiles of the histogram are within 12.5% of the recorded durations
+     */
+    public void testHistogram( )
+    {
+        LatencyHistogram histogram = new LatencyHistogram( );
+
+        for ( long lNanos = 1; lNanos <= 1000000L; lNanos++ )
+        {
+            histogram.record( lNanos );
+        }
+
+        assertTrue( Math.abs( histogram.getPercentile( 50.0 ) - 500000L ) <= 500000L / 8 );
+        assertTrue( Math.abs( histogram.getPercentile( 99.0 ) - 990000L ) <= 990000L / 8 );
+        assertEquals( 1L, histogram.getPercentile( 0.0 ) );
+
+        histogram.reset( );
+        assertEquals( 0L, histogram.getPercentile( 50.0 ) );
+    }
+
+    /**
+     * The calls and errors of an operation are counted and written in the text exposition format
+     * @throws IOException if the metrics cannot be written
+     */
+    public void testRegistry( ) throws IOException
+    {
+        MetricsRegistry registry = MetricsRegistry.getRegistry( REGISTRY_NAME );
+        assertSame( registry, MetricsRegistry.getRegistry( REGISTRY_NAME ) );
+
+        assertEquals( "result", registry.time( OPERATION, ( ) -> "result" ) );
+
+        try
+        {
+            registry.time( OPERATION, ( ) -> {
+                throw new IllegalStateException( );
+            } );
+            fail( "The exception of the operation must be thrown" );
+        }
+        catch( IllegalStateException e )
+        {
+            // expected
+        }
+
+        OperationMetrics metrics = registry.getOperation( OPERATION );
+        assertEquals( 2L, metrics.getCount( ) );
+        assertEquals( 1L, metrics.getErrors( ) );
+
+        StringWriter writer = new StringWriter( );
+        MetricsRegistry.writeText( writer );
+        String strText = writer.toString( );
+        assertTrue( strText.contains( "testmoussia_metricsregistrytest_calls_total{operation=\"operation\"} 2\n" ) );
+        assertTrue( strText.contains( "testmoussia_metricsregistrytest_errors_total{operation=\"operation\"} 1\n" ) );
+        assertTrue( strText.contains( "testmoussia_metricsregistrytest_duration_seconds{operation=\"operation\",quantile=\"0.99\"}" ) );
+
+        metrics.reset( );
+        assertEquals( 0L, metrics.getCount( ) );
+    }
+}
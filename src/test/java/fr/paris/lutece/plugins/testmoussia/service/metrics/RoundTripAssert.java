@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.metrics;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Assertions on the database round trips made through the DAOs of the plugin, for the tests :
+ * <pre>
+ * RoundTripAssert.assertMaxRoundTrips( "getManageUsers", 2, ( ) -&gt; jspbean.getManageUsers( request ) );
+ * </pre>
+ */
+public final class RoundTripAssert
+{
+    /**
+     * Private constructor
+     */
+    private RoundTripAssert( )
+    {
+    }
+
+    /**
+     * Run an operation and fail if it makes more round trips than allowed
+     * @param <T> The type of the result
+     * @param strName The name of the operation, in the failure message
+     * @param nMaxRoundTrips The highest number of round trips allowed
+     * @param operation The operation
+     * @return The result of the operation
+     * @throws Exception if the operation fails
+     */
+    public static <T> T assertMaxRoundTrips( String strName, int nMaxRoundTrips, Callable<T> operation ) throws Exception
+    {
+        try ( RoundTripScope scope = RoundTripCounter.begin( strName, nMaxRoundTrips ) )
+        {
+            T result = operation.call( );
+
+            if ( scope.isOverBudget( ) )
+            {
+                LuteceTestCase.fail( RoundTripCounter.getOverBudgetMessage( scope ) );
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Run an operation and returns the number of round trips it makes
+     * @param operation The operation
+     * @return The number of round trips
+     * @throws Exception if the operation fails
+     */
+    public static int countRoundTrips( Callable<?> operation ) throws Exception
+    {
+        try ( RoundTripScope scope = RoundTripCounter.begin( RoundTripAssert.class.getSimpleName( ), RoundTripCounter.NO_BUDGET ) )
+        {
+            operation.call( );
+
+            return scope.getCount( );
+        }
+    }
+}
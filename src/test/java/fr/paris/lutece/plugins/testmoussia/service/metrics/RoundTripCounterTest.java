@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.metrics;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.Map;
+
+/**
+ * This is the test class of the round trips counter
+ */
+public class RoundTripCounterTest extends LuteceTestCase
+{
+    private static final String STATEMENT_1 = "SELECT 1";
+    private static final String STATEMENT_2 = "SELECT 2";
+
+    /**
+     * The statements are counted in the open scopes only
+     */
+    public void testScopes( )
+    {
+        StatementTiming.start( STATEMENT_1, 0 ).end( 1 );
+
+        try ( RoundTripScope request = RoundTripCounter.begin( "request", 2 ) )
+        {
+            StatementTiming.start( STATEMENT_1, 0 ).end( 1 );
+
+            try ( RoundTripScope nested = RoundTripCounter.begin( "nested", RoundTripCounter.NO_BUDGET ) )
+            {
+                StatementTiming.start( STATEMENT_2, 0 ).end( 1 );
+                StatementTiming.start( STATEMENT_2, 0 ).end( 1 );
+                assertEquals( 2, nested.getCount( ) );
+                assertFalse( nested.isOverBudget( ) );
+            }
+
+            assertEquals( 3, request.getCount( ) );
+            assertTrue( request.isOverBudget( ) );
+
+            Map<String, Integer> mapCounts = request.getStatementCounts( );
+            assertEquals( STATEMENT_2, mapCounts.keySet( ).iterator( ).next( ) );
+            assertEquals( Integer.valueOf( 2 ), mapCounts.get( STATEMENT_2 ) );
+            assertEquals( "request made 3 database round trips, over its budget of 2 : SELECT 2 x 2 SELECT 1 x 1",
+                    RoundTripCounter.getOverBudgetMessage( request ) );
+        }
+    }
+
+    /**
+     * The assertion helper fails when the operation exceeds its round trips
+     * @throws Exception if the operation fails
+     */
+    public void testAssertMaxRoundTrips( ) throws Exception
+    {
+        assertEquals( "result", RoundTripAssert.assertMaxRoundTrips( "one statement", 1, ( ) -> {
+            StatementTiming.start( STATEMENT_1, 0 ).end( 1 );
+
+            return "result";
+        } ) );
+
+        boolean bFailed = false;
+
+        try
+        {
+            RoundTripAssert.assertMaxRoundTrips( "two statements", 1, ( ) -> {
+                StatementTiming.start( STATEMENT_1, 0 ).end( 1 );
+                StatementTiming.start( STATEMENT_2, 0 ).end( 1 );
+
+                return null;
+            } );
+        }
+        catch( AssertionError e )
+        {
+            bFailed = true;
+        }
+
+        assertTrue( bFailed );
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.metrics;
+
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This is the test class of the slow statements log
+ */
+public class SlowStatementLogTest extends LuteceTestCase
+{
+    private static final String SQL_SELECT_TEST = "SELECT id_test FROM slow_statement_log_test WHERE id_test = ?";
+    private static final String UNREGISTERED_SQL = "SELECT 1";
+    private static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos( 150 );
+    private static final long FAST_NANOS = TimeUnit.MILLISECONDS.toNanos( 1 );
+
+    /**
+     * The statements under the threshold are ignored and the slow ones are named after their SQL constant
+     */
+    public void testThreshold( )
+    {
+        StatementTiming.registerStatements( SlowStatementLogTest.class );
+        SlowStatementLog log = new SlowStatementLog( 100, 10 );
+
+        log.record( SQL_SELECT_TEST, 1, 1, FAST_NANOS, FAST_NANOS );
+        assertEquals( 0L, log.getRecordedCount( ) );
+        assertTrue( log.getStatements( ).isEmpty( ) );
+
+        log.record( SQL_SELECT_TEST, 1, 1, SLOW_NANOS, FAST_NANOS );
+        log.record( UNREGISTERED_SQL, 0, -1, FAST_NANOS, SLOW_NANOS );
+
+        List<SlowStatement> listStatements = log.getStatements( );
+        assertEquals( 2, listStatements.size( ) );
+        assertEquals( UNREGISTERED_SQL, listStatements.get( 0 ).getKey( ) );
+        assertEquals( -1, listStatements.get( 0 ).getRowsCount( ) );
+        assertEquals( "SlowStatementLogTest.SQL_SELECT_TEST", listStatements.get( 1 ).getKey( ) );
+        assertEquals( 1, listStatements.get( 1 ).getParametersCount( ) );
+        assertEquals( 150.0, listStatements.get( 1 ).getExecutionMillis( ), 0.001 );
+        assertEquals( 151.0, listStatements.get( 1 ).getTotalMillis( ), 0.001 );
+    }
+
+    /**
+     * The oldest statements are overwritten when the buffer is full, and the log can be cleared
+     */
+    public void testRingBuffer( )
+    {
+        SlowStatementLog log = new SlowStatementLog( 0, 3 );
+
+        for ( int i = 0; i < 5; i++ )
+        {
+            log.record( UNREGISTERED_SQL, 0, i, FAST_NANOS, FAST_NANOS );
+        }
+
+        List<SlowStatement> listStatements = log.getStatements( );
+        assertEquals( 5L, log.getRecordedCount( ) );
+        assertEquals( 3, listStatements.size( ) );
+        assertEquals( 4, listStatements.get( 0 ).getRowsCount( ) );
+        assertEquals( 2, listStatements.get( 2 ).getRowsCount( ) );
+
+        log.clear( );
+        assertTrue( log.getStatements( ).isEmpty( ) );
+        assertEquals( 5L, log.getRecordedCount( ) );
+    }
+}
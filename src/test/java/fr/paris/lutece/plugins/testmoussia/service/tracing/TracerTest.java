@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.service.tracing;
+
+import fr.paris.lutece.plugins.testmoussia.service.metrics.StatementTiming;
+import fr.paris.lutece.test.LuteceTestCase;
+
+import java.util.List;
+
+/**
+ * This is the test class of the tracer
+ */
+public class TracerTest extends LuteceTestCase
+{
+    private static final String SPAN_REQUEST = "request";
+    private static final String SPAN_HOME = "home";
+    private static final String STATEMENT = "SELECT id_user FROM testmoussia_user WHERE id_user = ?";
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+    private static final String PARENT_SPAN_ID = "00f067aa0ba902b7";
+
+    /**
+     * No span is recorded outside of a traced request
+     */
+    public void testNotTraced( )
+    {
+        InMemorySpanExporter exporter = new InMemorySpanExporter( );
+        Tracer.setExporter( exporter );
+
+        try
+        {
+            try ( Span span = Tracer.startSpan( SPAN_HOME ) )
+            {
+                assertSame( Span.NOOP, span );
+            }
+
+            assertTrue( exporter.getSpans( ).isEmpty( ) );
+            assertNull( Tracer.getTraceParent( ) );
+        }
+        finally
+        {
+            Tracer.setExporter( null );
+        }
+
+        assertSame( Span.NOOP, Tracer.startRequestSpan( SPAN_REQUEST, null ) );
+    }
+
+    /**
+     * The spans of a request are exported with their parents, down to the SQL statements
+     */
+    public void testRequestTrace( )
+    {
+        InMemorySpanExporter exporter = new InMemorySpanExporter( );
+        Tracer.setExporter( exporter );
+
+        try
+        {
+            try ( Span request = Tracer.startRequestSpan( SPAN_REQUEST, null ) )
+            {
+                try ( Span home = Tracer.startSpan( SPAN_HOME ) )
+                {
+                    assertSame( home, Tracer.getCurrentSpan( ) );
+                    StatementTiming.start( STATEMENT, 1 ).end( 1 );
+                }
+
+                assertSame( request, Tracer.getCurrentSpan( ) );
+                assertEquals( "00-" + request.getTraceId( ) + "-" + request.getSpanId( ) + "-01", Tracer.getTraceParent( ) );
+            }
+
+            assertSame( Span.NOOP, Tracer.getCurrentSpan( ) );
+
+            List<Span> listSpans = exporter.getSpans( );
+            assertEquals( 3, listSpans.size( ) );
+
+            Span statement = listSpans.get( 0 );
+            Span home = listSpans.get( 1 );
+            Span request = listSpans.get( 2 );
+            assertEquals( STATEMENT, statement.getName( ) );
+            assertEquals( 1, statement.getAttributes( ).get( "db.rows" ) );
+            assertEquals( home.getSpanId( ), statement.getParentSpanId( ) );
+            assertEquals( request.getSpanId( ), home.getParentSpanId( ) );
+            assertNull( request.getParentSpanId( ) );
+            assertEquals( 32, request.getTraceId( ).length( ) );
+            assertEquals( request.getTraceId( ), statement.getTraceId( ) );
+            assertTrue( request.getDurationNanos( ) >= home.getDurationNanos( ) );
+        }
+        finally
+        {
+            Tracer.setExporter( null );
+        }
+    }
+
+    /**
+     * The trace of the caller is continued, unless it is not sampled
+     */
+    public void testTraceParent( )
+    {
+        InMemorySpanExporter exporter = new InMemorySpanExporter( );
+        Tracer.setExporter( exporter );
+
+        try
+        {
+            try ( Span request = Tracer.startRequestSpan( SPAN_REQUEST, "00-" + TRACE_ID + "-" + PARENT_SPAN_ID + "-01" ) )
+            {
+                assertEquals( TRACE_ID, request.getTraceId( ) );
+                assertEquals( PARENT_SPAN_ID, request.getParentSpanId( ) );
+            }
+
+            assertSame( Span.NOOP, Tracer.startRequestSpan( SPAN_REQUEST, "00-" + TRACE_ID + "-" + PARENT_SPAN_ID + "-00" ) );
+
+            try ( Span request = Tracer.startRequestSpan( SPAN_REQUEST, "invalid" ) )
+            {
+                assertFalse( TRACE_ID.equals( request.getTraceId( ) ) );
+                assertNull( request.getParentSpanId( ) );
+            }
+
+            assertEquals( 2, exporter.getSpans( ).size( ) );
+        }
+        finally
+        {
+            Tracer.setExporter( null );
+        }
+    }
+
+    /**
+     * An operation run in a span is its child, and the span is ended even if the operation fails
+     */
+    public void testInSpan( )
+    {
+        InMemorySpanExporter exporter = new InMemorySpanExporter( );
+        Tracer.setExporter( exporter );
+
+        try
+        {
+            Span request = Tracer.startRequestSpan( SPAN_REQUEST, null );
+
+            try
+            {
+                assertEquals( SPAN_HOME, Tracer.inSpan( SPAN_HOME, ( ) -> Tracer.getCurrentSpan( ).getName( ) ) );
+
+                try
+                {
+                    Tracer.inSpan( SPAN_HOME, ( ) -> {
+                        throw new IllegalStateException( );
+                    } );
+                    fail( "The exception of the operation must be thrown" );
+                }
+                catch( IllegalStateException e )
+                {
+                    assertSame( request, Tracer.getCurrentSpan( ) );
+                }
+            }
+            finally
+            {
+                request.close( );
+            }
+
+            List<Span> listSpans = exporter.getSpans( );
+            assertEquals( 3, listSpans.size( ) );
+            assertEquals( request.getSpanId( ), listSpans.get( 0 ).getParentSpanId( ) );
+            assertEquals( request.getSpanId( ), listSpans.get( 1 ).getParentSpanId( ) );
+        }
+        finally
+        {
+            Tracer.setExporter( null );
+        }
+    }
+
+    /**
+     * A statement failing before the end of its timing is ended by the try-with-resources block, and a timing is ended once
+     */
+    public void testStatementTimingClosed( )
+    {
+        InMemorySpanExporter exporter = new InMemorySpanExporter( );
+        Tracer.setExporter( exporter );
+
+        try
+        {
+            try ( Span request = Tracer.startRequestSpan( SPAN_REQUEST, null ) )
+            {
+                try ( StatementTiming timing = StatementTiming.start( STATEMENT, 1 ) )
+                {
+                    timing.row( );
+                    throw new IllegalStateException( );
+                }
+                catch( IllegalStateException e )
+                {
+                    assertSame( request, Tracer.getCurrentSpan( ) );
+                }
+
+                try ( StatementTiming timing = StatementTiming.start( STATEMENT, 1 ) )
+                {
+                    timing.end( 2 );
+                }
+            }
+
+            List<Span> listSpans = exporter.getSpans( );
+            assertEquals( 3, listSpans.size( ) );
+            assertEquals( 1, listSpans.get( 0 ).getAttributes( ).get( "db.rows" ) );
+            assertEquals( 2, listSpans.get( 1 ).getAttributes( ).get( "db.rows" ) );
+        }
+        finally
+        {
+            Tracer.setExporter( null );
+        }
+    }
+
+    /**
+     * A span left open, for instance by an exception, is dropped when its parent ends
+     */
+    public void testUnclosedSpan( )
+    {
+        InMemorySpanExporter exporter = new InMemorySpanExporter( );
+        Tracer.setExporter( exporter );
+
+        try
+        {
+            try ( Span request = Tracer.startRequestSpan( SPAN_REQUEST, null ) )
+            {
+                Tracer.startSpan( SPAN_HOME );
+            }
+
+            assertSame( Span.NOOP, Tracer.getCurrentSpan( ) );
+            assertEquals( 1, exporter.getSpans( ).size( ) );
+            assertEquals( SPAN_REQUEST, exporter.getSpans( ).get( 0 ).getName( ) );
+        }
+        finally
+        {
+            Tracer.setExporter( null );
+        }
+    }
+}
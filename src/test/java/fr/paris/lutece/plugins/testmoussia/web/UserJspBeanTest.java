@@ -48,6 +48,7 @@ import fr.paris.lutece.portal.web.LocalVariables;
 import java.io.IOException;
 import fr.paris.lutece.plugins.testmoussia.business.User;
 import fr.paris.lutece.plugins.testmoussia.business.UserHome;
+import fr.paris.lutece.plugins.testmoussia.service.metrics.RoundTripAssert;
 /**
  * This is the business class test for the object User
  */
@@ -117,6 +118,9 @@ public void testJspBeans(  ) throws AccessDeniedException
 		//important pour que MVCController sache quelle action effectuer, sinon, il redirigera vers createUser, qui est l'action par défaut
 		request.addParameter("action","modifyUser");
 		request.addParameter( "token", SecurityTokenService.getInstance( ).getToken( request, "modifyUser" ));
+		// the form carries the id of the modified user and the version it was displayed with, nothing is kept in the session
+		request.addParameter( "id", String.valueOf( listIds.get( 0 ) ) );
+		request.addParameter( "version", String.valueOf( UserHome.findByPrimaryKey( listIds.get( 0 ) ).getVersion( ) ) );
 		adminUser = new AdminUser();
 		adminUser.setAccessCode("admin");
 
@@ -175,4 +179,16 @@ public void testJspBeans(  ) throws AccessDeniedException
 		}	
      
      }
+
+    /**
+     * The list of users is read with a count and a page query, whatever the number of users
+     * @throws Exception if the view cannot be built
+     */
+    public void testManageUsersRoundTrips( ) throws Exception
+    {
+        MockHttpServletRequest request = new MockHttpServletRequest( );
+        UserJspBean jspbean = new UserJspBean( );
+
+        assertNotNull( RoundTripAssert.assertMaxRoundTrips( "getManageUsers", 2, ( ) -> jspbean.getManageUsers( request ) ) );
+    }
 }
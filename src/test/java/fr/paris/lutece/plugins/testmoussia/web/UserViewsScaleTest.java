@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2002-2020, City of Paris
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ *
+ *  1. Redistributions of source code must retain the above copyright notice
+ *     and the following disclaimer.
+ *
+ *  2. Redistributions in binary form must reproduce the above copyright notice
+ *     and the following disclaimer in the documentation and/or other materials
+ *     provided with the distribution.
+ *
+ *  3. Neither the name of 'Mairie de Paris' nor 'Lutece' nor the names of its
+ *     contributors may be used to endorse or promote products derived from
+ *     this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ *
+ * License 1.0
+ */
+
+package fr.paris.lutece.plugins.testmoussia.web;
+
+import fr.paris.lutece.plugins.testmoussia.business.UserGenerator;
+import fr.paris.lutece.plugins.testmoussia.business.UserHome;
+import fr.paris.lutece.plugins.testmoussia.service.UserCacheService;
+import fr.paris.lutece.plugins.testmoussia.service.UserNameIndexService;
+import fr.paris.lutece.portal.service.plugin.Plugin;
+import fr.paris.lutece.portal.service.plugin.PluginService;
+import fr.paris.lutece.portal.service.util.AppLogService;
+import fr.paris.lutece.test.LuteceTestCase;
+import fr.paris.lutece.util.sql.DAOUtil;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Function;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * Scale tests of the user views : the users table is filled up to each of the tested sizes, then each view is requested with mock requests.
+ * The test fails when the median or the 99th percentile of the response times, or the average number of bytes allocated per request,
+ * exceeds the budget of the view.
+ * <p>
+ * The test only runs when the sizes are given by the testmoussia.scale.sizes system property, since it fills the table of the test database.
+ * The number of requests and the budgets can be changed with system properties too, for instance
+ * -Dtestmoussia.scale.sizes=10000,1000000 -Dtestmoussia.scale.budget.manageUsers.p99Ms=500
+ * </p>
+ */
+public class UserViewsScaleTest extends LuteceTestCase
+{
+    private static final String PLUGIN_NAME = "testmoussia";
+    private static final String PROPERTY_SIZES = "testmoussia.scale.sizes";
+    private static final String PROPERTY_WARMUP_REQUESTS = "testmoussia.scale.warmupRequests";
+    private static final String PROPERTY_REQUESTS = "testmoussia.scale.requests";
+    private static final String PROPERTY_BUDGET_PREFIX = "testmoussia.scale.budget.";
+    private static final String SUFFIX_P50 = ".p50Ms";
+    private static final String SUFFIX_P99 = ".p99Ms";
+    private static final String SUFFIX_BYTES = ".bytesPerRequest";
+    private static final int DEFAULT_WARMUP_REQUESTS = 50;
+    private static final int DEFAULT_REQUESTS = 200;
+    private static final long SEED = 0L;
+    private static final int ROWS_PER_INSERT = 1000;
+    private static final int ITEMS_PER_PAGE = 50;
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private static final String VIEW_MANAGE_USERS = "manageUsers";
+    private static final String VIEW_MODIFY_USER = "modifyUser";
+    private static final String VIEW_XPAGE_MANAGE_USERS = "xpageManageUsers";
+
+    private static final String PARAMETER_ID = "id";
+    private static final String PARAMETER_PAGE_INDEX = "page_index";
+    private static final String PARAMETER_AFTER = "after";
+
+    private static final String SQL_QUERY_DELETE_USERS_AFTER = "DELETE FROM testmoussia_user WHERE id_user > ?";
+    private static final String SQL_QUERY_INCREMENT_USERS_VERSION = "UPDATE testmoussia_user_version SET version = version + 1 WHERE id_version = 1";
+
+    private final Random _random = new Random( SEED );
+
+    /**
+     * Request the views on tables of growing sizes
+     * @throws IOException if the users cannot be generated
+     */
+    public void testViewsBudgets( ) throws IOException
+    {
+        String strSizes = System.getProperty( PROPERTY_SIZES );
+
+        if ( strSizes == null )
+        {
+            AppLogService.info( "UserViewsScaleTest skipped : set the " + PROPERTY_SIZES + " system property to run it" );
+
+            return;
+        }
+
+        int [ ] bounds = UserHome.getIdUsersBounds( );
+        int nIdMaxBefore = ( bounds != null ) ? bounds [1] : 0;
+
+        try
+        {
+            for ( String strSize : strSizes.split( "," ) )
+            {
+                int nSize = Integer.parseInt( strSize.trim( ) );
+                fillUsers( nSize );
+
+                int [ ] ids = UserHome.getIdUsersBounds( );
+                int nUsersCount = UserHome.getUsersCount( );
+                int nPagesCount = Math.max( 1, nUsersCount / ITEMS_PER_PAGE );
+                UserJspBean jspBean = new UserJspBean( );
+                UserXPage xpage = new UserXPage( );
+
+                assertWithinBudget( VIEW_MANAGE_USERS, nSize, 300, 1000, 10L << 20, request -> {
+                    request.addParameter( PARAMETER_PAGE_INDEX, String.valueOf( 1 + _random.nextInt( nPagesCount ) ) );
+                    return jspBean.getManageUsers( request );
+                } );
+                assertWithinBudget( VIEW_MODIFY_USER, nSize, 20, 100, 4L << 20, request -> {
+                    request.addParameter( PARAMETER_ID, String.valueOf( randomId( ids ) ) );
+                    return jspBean.getModifyUser( request );
+                } );
+                assertWithinBudget( VIEW_XPAGE_MANAGE_USERS, nSize, 50, 200, 6L << 20, request -> {
+                    request.addParameter( PARAMETER_AFTER, String.valueOf( randomId( ids ) ) );
+                    return xpage.getManageUsers( request );
+                } );
+            }
+        }
+        finally
+        {
+            removeUsersAfter( nIdMaxBefore );
+            notifyUsersModified( );
+        }
+    }
+
+    /**
+     * Request a view, then check its response times and allocations against its budget
+     * @param strView The name of the view, used as key of the budget properties
+     * @param nSize The number of users in the table
+     * @param nDefaultP50Ms The default budget of the median response time, in milliseconds
+     * @param nDefaultP99Ms The default budget of the 99th percentile of the response times, in milliseconds
+     * @param lDefaultBytes The default budget of the bytes allocated per request
+     * @param view The view, called with a new request whose parameters it completes
+     */
+    private void assertWithinBudget( String strView, int nSize, int nDefaultP50Ms, int nDefaultP99Ms, long lDefaultBytes,
+            Function<MockHttpServletRequest, Object> view )
+    {
+        int nWarmupRequests = Integer.getInteger( PROPERTY_WARMUP_REQUESTS, DEFAULT_WARMUP_REQUESTS );
+        int nRequests = Integer.getInteger( PROPERTY_REQUESTS, DEFAULT_REQUESTS );
+
+        for ( int i = 0; i < nWarmupRequests; i++ )
+        {
+            assertNotNull( view.apply( new MockHttpServletRequest( ) ) );
+        }
+
+        long [ ] durations = new long [ nRequests];
+        long lAllocatedBytes = 0L;
+        boolean bAllocationMeasured = getAllocatedBytes( ) >= 0;
+
+        for ( int i = 0; i < nRequests; i++ )
+        {
+            MockHttpServletRequest request = new MockHttpServletRequest( );
+            long lBytesBefore = getAllocatedBytes( );
+            long lStart = System.nanoTime( );
+            Object page = view.apply( request );
+            durations [i] = System.nanoTime( ) - lStart;
+            lAllocatedBytes += getAllocatedBytes( ) - lBytesBefore;
+            assertNotNull( page );
+        }
+
+        Arrays.sort( durations );
+
+        double dP50Ms = (double) percentile( durations, 50 ) / NANOS_PER_MILLI;
+        double dP99Ms = (double) percentile( durations, 99 ) / NANOS_PER_MILLI;
+        long lBytesPerRequest = bAllocationMeasured ? lAllocatedBytes / nRequests : -1L;
+        String strResult = String.format( "%s with %d users : p50 %.2f ms, p99 %.2f ms, %d bytes allocated per request", strView, nSize, dP50Ms,
+                dP99Ms, lBytesPerRequest );
+        AppLogService.info( strResult );
+
+        String strBudget = PROPERTY_BUDGET_PREFIX + strView;
+        assertTrue( strResult, dP50Ms <= Integer.getInteger( strBudget + SUFFIX_P50, nDefaultP50Ms ) );
+        assertTrue( strResult, dP99Ms <= Integer.getInteger( strBudget + SUFFIX_P99, nDefaultP99Ms ) );
+
+        if ( bAllocationMeasured )
+        {
+            assertTrue( strResult, lBytesPerRequest <= Long.getLong( strBudget + SUFFIX_BYTES, lDefaultBytes ) );
+        }
+    }
+
+    /**
+     * Add generated users until the table holds the given number of users
+     * @param nSize The number of users
+     * @throws IOException if the users cannot be generated
+     */
+    private static void fillUsers( int nSize ) throws IOException
+    {
+        int nMissingUsers = nSize - UserHome.getUsersCount( );
+
+        if ( nMissingUsers <= 0 )
+        {
+            return;
+        }
+
+        // The users are inserted with the SQL of the generator : the bulk creation of UserHome would also queue one indexer action per user
+        Plugin plugin = PluginService.getPlugin( PLUGIN_NAME );
+        UserGenerator generator = new UserGenerator( SEED );
+        int nFirstIndex = nSize - nMissingUsers;
+
+        for ( int nInserted = 0; nInserted < nMissingUsers; nInserted += ROWS_PER_INSERT )
+        {
+            StringWriter writer = new StringWriter( );
+            generator.writeSql( writer, nFirstIndex + nInserted, Math.min( ROWS_PER_INSERT, nMissingUsers - nInserted ), ROWS_PER_INSERT );
+
+            String strInsert = writer.toString( );
+            DAOUtil daoUtil = new DAOUtil( strInsert.substring( 0, strInsert.lastIndexOf( ';' ) ), plugin );
+            daoUtil.executeUpdate( );
+            daoUtil.free( );
+        }
+
+        notifyUsersModified( );
+    }
+
+    /**
+     * Remove the users created by the test
+     * @param nIdUser The highest id of the users that existed before the test
+     */
+    private static void removeUsersAfter( int nIdUser )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_DELETE_USERS_AFTER, PluginService.getPlugin( PLUGIN_NAME ) );
+        daoUtil.setInt( 1, nIdUser );
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+    }
+
+    /**
+     * Make the users modified by SQL visible, since the SQL does not go through UserHome : the version of the users table is incremented,
+     * and the user cache and the names index are emptied
+     */
+    private static void notifyUsersModified( )
+    {
+        DAOUtil daoUtil = new DAOUtil( SQL_QUERY_INCREMENT_USERS_VERSION, PluginService.getPlugin( PLUGIN_NAME ) );
+        daoUtil.executeUpdate( );
+        daoUtil.free( );
+
+        UserCacheService.getInstance( ).resetCache( );
+        UserNameIndexService.getInstance( ).clear( );
+    }
+
+    /**
+     * Returns a random id between the bounds of the ids
+     * @param ids The lowest and the highest ids
+     * @return The id
+     */
+    private int randomId( int [ ] ids )
+    {
+        return ids [0] + _random.nextInt( ids [1] - ids [0] + 1 );
+    }
+
+    /**
+     * Returns the value of a percentile of sorted values, by the nearest-rank method
+     * @param values The sorted values
+     * @param nPercentile The percentile
+     * @return The value
+     */
+    private static long percentile( long [ ] values, int nPercentile )
+    {
+        int nRank = (int) Math.ceil( nPercentile / 100.0 * values.length );
+
+        return values [Math.max( 0, nRank - 1 )];
+    }
+
+    /**
+     * Returns the number of bytes allocated so far by the current thread
+     * @return The number of bytes, or -1 if the JVM does not measure it
+     */
+    private static long getAllocatedBytes( )
+    {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean( );
+
+        if ( threadMXBean instanceof com.sun.management.ThreadMXBean )
+        {
+            return ( (com.sun.management.ThreadMXBean) threadMXBean ).getThreadAllocatedBytes( Thread.currentThread( ).getId( ) );
+        }
+
+        return -1L;
+    }
+}
@@ -92,6 +92,19 @@ public void testXPage(  ) throws AccessDeniedException
 		request.addParameter( "token", SecurityTokenService.getInstance( ).getToken( request, "modifyUser" ));
 		request.addParameter( "id", String.valueOf( listIds.get( 0 ) ) );
 		assertNotNull( xpage.doModifyUser( request ) );
+		// a form without the version it was displayed with is rejected
+		assertFalse( NOM2.equals( UserHome.findByPrimaryKey( listIds.get( 0 ) ).getNom( ) ) );
+
+		response = new MockHttpServletResponse();
+		request = new MockHttpServletRequest();
+		LocalVariables.setLocal(config, request, response);
+        request.addParameter( "nom" , NOM2 );
+
+		request.addParameter( "token", SecurityTokenService.getInstance( ).getToken( request, "modifyUser" ));
+		request.addParameter( "id", String.valueOf( listIds.get( 0 ) ) );
+		request.addParameter( "version", String.valueOf( UserHome.findByPrimaryKey( listIds.get( 0 ) ).getVersion( ) ) );
+		assertNotNull( xpage.doModifyUser( request ) );
+		assertEquals( NOM2, UserHome.findByPrimaryKey( listIds.get( 0 ) ).getNom( ) );
 
 		//do confirm remove User
 		request = new MockHttpServletRequest();
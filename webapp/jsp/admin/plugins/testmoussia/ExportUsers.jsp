@@ -0,0 +1,5 @@
+<%@ page trimDirectiveWhitespaces="true" %>
+<%@ page errorPage="../../ErrorPage.jsp" %>
+<jsp:useBean id="manageusersUser" scope="session" class="fr.paris.lutece.plugins.testmoussia.web.UserJspBean" />
+<% manageusersUser.init( request, fr.paris.lutece.plugins.testmoussia.web.UserJspBean.RIGHT_MANAGEUSERS ); %>
+<% manageusersUser.doExportUsers( request, response ); %>
@@ -0,0 +1,9 @@
+<jsp:useBean id="manageusersSlowStatements" scope="session" class="fr.paris.lutece.plugins.testmoussia.web.MetricsJspBean" />
+<% String strContent = manageusersSlowStatements.processController ( request , response ); %>
+
+<%@ page errorPage="../../ErrorPage.jsp" %>
+<jsp:include page="../../AdminHeader.jsp" />
+
+<%= strContent %>
+
+<%@ include file="../../AdminFooter.jsp" %>
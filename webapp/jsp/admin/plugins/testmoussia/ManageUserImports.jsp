@@ -0,0 +1,9 @@
+<jsp:useBean id="manageusersUserImport" scope="session" class="fr.paris.lutece.plugins.testmoussia.web.UserImportJspBean" />
+<% String strContent = manageusersUserImport.processController ( request , response ); %>
+
+<%@ page errorPage="../../ErrorPage.jsp" %>
+<jsp:include page="../../AdminHeader.jsp" />
+
+<%= strContent %>
+
+<%@ include file="../../AdminFooter.jsp" %>
@@ -0,0 +1,5 @@
+<%@ page trimDirectiveWhitespaces="true" %>
+<%@ page errorPage="../../ErrorPage.jsp" %>
+<jsp:useBean id="manageusersSlowStatements" scope="session" class="fr.paris.lutece.plugins.testmoussia.web.MetricsJspBean" />
+<% manageusersSlowStatements.init( request, fr.paris.lutece.plugins.testmoussia.web.MetricsJspBean.RIGHT_MANAGEUSERS ); %>
+<% manageusersSlowStatements.doGetMetrics( request, response ); %>
@@ -0,0 +1,3 @@
+<%@ page contentType="application/json; charset=UTF-8" %>
+<jsp:useBean id="userXPage" scope="request" class="fr.paris.lutece.plugins.testmoussia.web.UserXPage" />
+<%= userXPage.getAutocompleteUsers( request ) %>
@@ -0,0 +1,3 @@
+<%@ page trimDirectiveWhitespaces="true" %>
+<jsp:useBean id="userJsonApi" scope="request" class="fr.paris.lutece.plugins.testmoussia.web.UserJsonApi" />
+<% userJsonApi.doGetUsers( request, response ); %>